@@ -8,11 +8,27 @@ import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.ladyluh.desync.commands.DesyncCommand;
 import org.ladyluh.desync.events.EventService;
+import org.ladyluh.desync.events.MobClaims;
+import org.ladyluh.desync.listeners.BlockChangeListener;
+import org.ladyluh.desync.listeners.ChunkLoadListener;
+import org.ladyluh.desync.listeners.ChunkUnloadListener;
 import org.ladyluh.desync.listeners.PlayerQuitListener;
+import org.ladyluh.desync.listeners.PlayerWorldChangeListener;
 import org.ladyluh.desync.managers.ConfigurationManager;
 import org.ladyluh.desync.managers.CooldownManager;
+import org.ladyluh.desync.packets.FakeBlockOverlay;
+import org.ladyluh.desync.packets.FakeEntityIds;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.scheduling.ActiveEffectRegistry;
+import org.ladyluh.desync.scheduling.EffectEngine;
 import org.ladyluh.desync.scheduling.EventScheduler;
+import org.ladyluh.desync.scheduling.TimingWheel;
+import org.ladyluh.desync.utils.BlockDataCache;
 import org.ladyluh.desync.utils.SkinUtils;
+import org.ladyluh.desync.world.BlockSearchService;
+import org.ladyluh.desync.world.LineOfSightCache;
+import org.ladyluh.desync.world.SpotIndex;
 import org.slf4j.Logger;
 
 import java.util.Objects;
@@ -27,6 +43,15 @@ public final class Desync extends JavaPlugin {
     private EventScheduler eventScheduler;
     private CooldownManager cooldownManager;
     private EventService eventService;
+    private PacketDispatcher packetDispatcher;
+    private FakeEntityIds fakeEntityIds;
+    private FakeBlockOverlay fakeBlockOverlay;
+    private BlockSearchService blockSearchService;
+    private SpotIndex spotIndex;
+    private LineOfSightCache lineOfSightCache;
+    private EffectEngine effectEngine;
+    private TimingWheel timingWheel;
+    private ActiveEffectRegistry activeEffectRegistry;
 
     public Desync() {
         this.logger = this.getSLF4JLogger();
@@ -61,6 +86,60 @@ public final class Desync extends JavaPlugin {
         return eventService;
     }
 
+    public PacketDispatcher getPacketDispatcher() {
+        if (packetDispatcher == null)
+            throw new IllegalStateException("Attempted to get PacketDispatcher but it was not initialized!");
+        return packetDispatcher;
+    }
+
+    public FakeEntityIds getFakeEntityIds() {
+        if (fakeEntityIds == null)
+            throw new IllegalStateException("Attempted to get FakeEntityIds but it was not initialized!");
+        return fakeEntityIds;
+    }
+
+    public FakeBlockOverlay getFakeBlockOverlay() {
+        if (fakeBlockOverlay == null)
+            throw new IllegalStateException("Attempted to get FakeBlockOverlay but it was not initialized!");
+        return fakeBlockOverlay;
+    }
+
+    public BlockSearchService getBlockSearchService() {
+        if (blockSearchService == null)
+            throw new IllegalStateException("Attempted to get BlockSearchService but it was not initialized!");
+        return blockSearchService;
+    }
+
+    public SpotIndex getSpotIndex() {
+        if (spotIndex == null)
+            throw new IllegalStateException("Attempted to get SpotIndex but it was not initialized!");
+        return spotIndex;
+    }
+
+    public LineOfSightCache getLineOfSightCache() {
+        if (lineOfSightCache == null)
+            throw new IllegalStateException("Attempted to get LineOfSightCache but it was not initialized!");
+        return lineOfSightCache;
+    }
+
+    public EffectEngine getEffectEngine() {
+        if (effectEngine == null)
+            throw new IllegalStateException("Attempted to get EffectEngine but it was not initialized!");
+        return effectEngine;
+    }
+
+    public TimingWheel getTimingWheel() {
+        if (timingWheel == null)
+            throw new IllegalStateException("Attempted to get TimingWheel but it was not initialized!");
+        return timingWheel;
+    }
+
+    public ActiveEffectRegistry getActiveEffectRegistry() {
+        if (activeEffectRegistry == null)
+            throw new IllegalStateException("Attempted to get ActiveEffectRegistry but it was not initialized!");
+        return activeEffectRegistry;
+    }
+
     @Override
     public void onEnable() {
         instance = this;
@@ -74,10 +153,20 @@ public final class Desync extends JavaPlugin {
             return;
         }
         logger.info("Successfully hooked into ProtocolLib.");
+        PacketWriters.init(logger);
 
         logger.info("Initializing managers and services...");
         configurationManager = new ConfigurationManager(this);
         cooldownManager = new CooldownManager(this);
+        packetDispatcher = new PacketDispatcher(this, protocolManager, configurationManager);
+        fakeEntityIds = new FakeEntityIds(this, configurationManager);
+        fakeBlockOverlay = new FakeBlockOverlay(this, protocolManager, packetDispatcher);
+        blockSearchService = new BlockSearchService(this);
+        spotIndex = new SpotIndex(this, blockSearchService);
+        lineOfSightCache = new LineOfSightCache();
+        effectEngine = new EffectEngine(this);
+        timingWheel = new TimingWheel(this);
+        activeEffectRegistry = new ActiveEffectRegistry(this);
         eventService = new EventService(this, cooldownManager, configurationManager);
         eventScheduler = new EventScheduler(this, eventService, configurationManager);
 
@@ -89,6 +178,10 @@ public final class Desync extends JavaPlugin {
         PluginManager pm = getServer().getPluginManager();
 
         pm.registerEvents(new PlayerQuitListener(this, cooldownManager, eventService), this);
+        pm.registerEvents(new PlayerWorldChangeListener(this, eventService), this);
+        pm.registerEvents(new ChunkUnloadListener(eventService), this);
+        pm.registerEvents(new ChunkLoadListener(spotIndex), this);
+        pm.registerEvents(new BlockChangeListener(blockSearchService, spotIndex), this);
 
         logger.info("Registering commands...");
         try {
@@ -99,6 +192,12 @@ public final class Desync extends JavaPlugin {
         }
 
         logger.info("Starting tasks...");
+        packetDispatcher.start();
+        fakeBlockOverlay.start();
+        blockSearchService.start();
+        spotIndex.start();
+        effectEngine.start();
+        timingWheel.start();
         eventScheduler.start();
         SkinUtils.loadSkinProfile(this, getPluginLogger());
 
@@ -118,6 +217,18 @@ public final class Desync extends JavaPlugin {
             if (eventScheduler != null) {
                 eventScheduler.stop();
             }
+            if (effectEngine != null) {
+                effectEngine.stop();
+            }
+            if (timingWheel != null) {
+                timingWheel.stop();
+            }
+            if (spotIndex != null) {
+                spotIndex.stop();
+            }
+            if (blockSearchService != null) {
+                blockSearchService.stop();
+            }
 
             Bukkit.getScheduler().cancelTasks(this);
         } catch (Exception e) {
@@ -125,10 +236,24 @@ public final class Desync extends JavaPlugin {
         }
 
 
+        if (packetDispatcher != null) {
+            packetDispatcher.stop();
+        }
+
+
         logger.info("Cleaning up event resources...");
         if (eventService != null) {
             eventService.cleanup();
         }
+        if (fakeBlockOverlay != null) {
+            fakeBlockOverlay.stop();
+        }
+        if (effectEngine != null) {
+            effectEngine.clear();
+        }
+        if (timingWheel != null) {
+            timingWheel.clear();
+        }
 
         logger.info("Saving data (if needed)...");
 
@@ -137,6 +262,9 @@ public final class Desync extends JavaPlugin {
             cooldownManager.clearAllCooldowns();
         }
 
+        BlockDataCache.clear();
+        MobClaims.clear();
+
 
         logger.info("{} disabled.", pdf.getName());
         logger.info("Reality stabilizes... for now.");
@@ -147,6 +275,15 @@ public final class Desync extends JavaPlugin {
         cooldownManager = null;
         eventService = null;
         eventScheduler = null;
+        packetDispatcher = null;
+        fakeEntityIds = null;
+        fakeBlockOverlay = null;
+        blockSearchService = null;
+        spotIndex = null;
+        lineOfSightCache = null;
+        effectEngine = null;
+        timingWheel = null;
+        activeEffectRegistry = null;
     }
 
     private boolean setupProtocolLib() {
@@ -8,12 +8,16 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.events.CircuitBreaker;
 import org.ladyluh.desync.events.EventService;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
 import org.ladyluh.desync.managers.CooldownManager;
+import org.ladyluh.desync.scheduling.EffectEngine;
+import org.ladyluh.desync.world.LineOfSightCache;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -66,6 +70,9 @@ public class DesyncCommand implements CommandExecutor {
             case "reload":
                 handleReloadCommand(sender);
                 break;
+            case "stats":
+                handleStatsCommand(sender, args);
+                break;
 
             default:
                 sender.sendMessage(ChatColor.RED + "Unknown subcommand: " + args[0]);
@@ -212,12 +219,30 @@ public class DesyncCommand implements CommandExecutor {
 
             events.stream()
                     .sorted(Comparator.comparing(PlayerDesyncEvent::getKey))
-                    .forEach(event -> sender.sendMessage(ChatColor.YELLOW + " - " + event.getKey() + ChatColor.GRAY + ": " + event.getDescription()));
+                    .forEach(event -> sender.sendMessage(ChatColor.YELLOW + " - " + event.getKey() + formatBreakerState(eventService.getCircuitBreaker(event.getKey()))
+                            + ChatColor.GRAY + ": " + event.getDescription()));
             sender.sendMessage(ChatColor.GOLD + "-----------------------------");
         }
     }
 
 
+    private @NotNull String formatBreakerState(CircuitBreaker breaker) {
+        if (breaker == null) return "";
+
+        CircuitBreaker.State state = breaker.getState();
+        if (state == CircuitBreaker.State.OPEN) {
+            return ChatColor.RED + " [open " + breaker.getRemainingOpenSeconds() + "s, "
+                    + String.format("%.0f%% failed, p99 %.1f ms", breaker.getFailureRate() * 100, breaker.getP99Nanos() / 1_000_000.0) + "]";
+        }
+        if (state == CircuitBreaker.State.HALF_OPEN) {
+            return ChatColor.GOLD + " [half-open]";
+        }
+        return breaker.getTimesOpened() > 0
+                ? ChatColor.GREEN + " [closed, opened " + breaker.getTimesOpened() + "x]"
+                : ChatColor.GREEN + " [closed]";
+    }
+
+
     private void handleInfoCommand(@NotNull CommandSender sender) {
         if (!sender.hasPermission("desync.command.info") && !sender.hasPermission("desync.command")) {
             sender.sendMessage(ChatColor.RED + "You don't have permission to see plugin info.");
@@ -249,6 +274,58 @@ public class DesyncCommand implements CommandExecutor {
     }
 
 
+    private void handleStatsCommand(@NotNull CommandSender sender, @NotNull String[] args) {
+        if (!sender.hasPermission("desync.command.stats") && !sender.hasPermission("desync.command")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to see effect stats.");
+            return;
+        }
+
+        EffectEngine effectEngine = plugin.getEffectEngine();
+        if (args.length >= 2 && args[1].equalsIgnoreCase("reset")) {
+            effectEngine.resetTimings();
+            eventService.resetBudgetStats();
+            plugin.getLineOfSightCache().resetStats();
+            sender.sendMessage(ChatColor.GREEN + "Effect timings, event budget and line of sight stats reset.");
+            return;
+        }
+
+        Map<String, Integer> activeByType = effectEngine.getActiveCountsByType();
+        Map<String, EffectEngine.EffectTiming> timings = effectEngine.getTimings();
+
+        sender.sendMessage(ChatColor.GOLD + "--- Desync Effect Stats ---");
+        sender.sendMessage(ChatColor.YELLOW + "Active effects: " + effectEngine.getActiveCount());
+        if (timings.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No effect ticks recorded yet.");
+        }
+        timings.forEach((type, timing) -> sender.sendMessage(ChatColor.YELLOW + " - " + type + ChatColor.GRAY
+                + ": active " + activeByType.getOrDefault(type, 0)
+                + ", ticks " + timing.getTicks()
+                + ", avg " + String.format("%.1f", timing.getAverageMicros()) + "us"
+                + ", max " + String.format("%.1f", timing.getMaxNanos() / 1000.0) + "us"));
+
+        Map<String, EventService.BudgetStats> budgets = eventService.getBudgetStats();
+        long overruns = budgets.values().stream().mapToLong(EventService.BudgetStats::getOverruns).sum();
+        sender.sendMessage(ChatColor.YELLOW + "Event budget overruns: " + overruns);
+        budgets.forEach((key, stats) -> {
+            if (stats.getOverruns() == 0 && stats.getExhausted() == 0) return;
+
+            sender.sendMessage(ChatColor.YELLOW + " - " + key + ChatColor.GRAY
+                    + ": calls " + stats.getInvocations()
+                    + ", over budget " + stats.getOverruns()
+                    + ", gave up " + stats.getExhausted()
+                    + ", retried " + stats.getDeferred()
+                    + ", max " + String.format("%.1f", stats.getMaxNanos() / 1000.0) + "us");
+        });
+
+        LineOfSightCache lineOfSightCache = plugin.getLineOfSightCache();
+        sender.sendMessage(ChatColor.YELLOW + "Line of sight: " + ChatColor.GRAY
+                + "cached " + lineOfSightCache.getHits()
+                + ", traced " + lineOfSightCache.getMisses()
+                + ", deferred " + lineOfSightCache.getDeferrals());
+        sender.sendMessage(ChatColor.GOLD + "---------------------------");
+    }
+
+
     private void sendUsage(@NotNull CommandSender sender) {
         sender.sendMessage(ChatColor.GOLD + "--- Desync Commands ---");
         sender.sendMessage(ChatColor.YELLOW + "/ds trigger <EventType> [Player] [force]" + ChatColor.GRAY + " - Trigger an event.");
@@ -256,6 +333,7 @@ public class DesyncCommand implements CommandExecutor {
         sender.sendMessage(ChatColor.YELLOW + "/ds listevents" + ChatColor.GRAY + " - List available event types.");
         sender.sendMessage(ChatColor.YELLOW + "/ds info" + ChatColor.GRAY + " - Show plugin info.");
         sender.sendMessage(ChatColor.YELLOW + "/ds reload" + ChatColor.GRAY + " - Reload the config.");
+        sender.sendMessage(ChatColor.YELLOW + "/ds stats [reset]" + ChatColor.GRAY + " - Show effect tick times, event budget overruns and line of sight checks.");
         sender.sendMessage(ChatColor.GOLD + "-----------------------");
     }
 
@@ -0,0 +1,239 @@
+package org.ladyluh.desync.events;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Keeps a failing or slow event type from being retried on every scheduler pass.
+ * <p>
+ * The execution time of the last {@value #WINDOW_SIZE} calls (canTrigger checks and triggers) is kept in a ring,
+ * and the outcome of the last {@value #OUTCOME_WINDOW_SIZE} triggers in another. Successful checks are not outcomes,
+ * they run on every scheduler pass and would hide an event that fails every time it actually triggers; a failed
+ * check is one. Failures of the packets a trigger sent, which surface later on the dispatch threads, are reported
+ * through {@link #recordAsyncFailure} and counted as failed outcomes too.
+ * <p>
+ * Once enough outcomes are recorded and the failure rate crosses its threshold, or the 99th percentile time does,
+ * the circuit opens and the event is skipped. The percentile is only looked at with a full window, where it is the
+ * second slowest call, so a lone outlier (a GC pause, a chunk load) never opens the circuit. After the open window
+ * it half-opens: checks run again, and the next trigger is a trial that either closes the circuit or opens it for
+ * another window.
+ * <p>
+ * Main thread only, except for {@link #recordAsyncFailure}.
+ */
+public class CircuitBreaker {
+
+    private static final int WINDOW_SIZE = 100;
+    private static final int MIN_PERCENTILE_CALLS = WINDOW_SIZE;
+    private static final int OUTCOME_WINDOW_SIZE = 20;
+    private static final int MIN_OUTCOMES = 5;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Thresholds shared by all breakers.
+     *
+     * @param enabled       False to never open a circuit.
+     * @param failureRate   Share of failed outcomes (0.0 to 1.0) that opens the circuit.
+     * @param slowCallNanos 99th percentile execution time that opens the circuit.
+     * @param openNanos     How long an open circuit skips the event.
+     */
+    public record Settings(boolean enabled, double failureRate, long slowCallNanos, long openNanos) {
+    }
+
+    private final String eventKey;
+    private final Logger logger;
+    private Settings settings;
+
+    private final long[] durations = new long[WINDOW_SIZE];
+    private int next = 0;
+    private int recorded = 0;
+
+    private final boolean[] failures = new boolean[OUTCOME_WINDOW_SIZE];
+    private int nextOutcome = 0;
+    private int outcomes = 0;
+    private int failureCount = 0;
+    private final AtomicInteger asyncFailures = new AtomicInteger();
+
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    private int timesOpened = 0;
+
+    public CircuitBreaker(@NotNull String eventKey, @NotNull Logger logger, @NotNull Settings settings) {
+        this.eventKey = eventKey;
+        this.logger = logger;
+        this.settings = settings;
+    }
+
+    public void setSettings(@NotNull Settings settings) {
+        this.settings = settings;
+        if (!settings.enabled() && state != State.CLOSED) {
+            close();
+        }
+    }
+
+    /**
+     * @return True if the event may run. Moves an open circuit whose window has passed to half-open.
+     */
+    public boolean allowRequest() {
+        applyAsyncFailures();
+        if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            state = State.HALF_OPEN;
+            logger.info("Circuit for event '{}' is half-open, the next trigger is a trial run.", eventKey);
+        }
+        return state != State.OPEN;
+    }
+
+    /**
+     * Records a canTrigger check. Only a failed check is an outcome; in the half-open state it reopens the circuit.
+     */
+    public void recordCheck(long nanos, boolean failed) {
+        record(nanos, failed, false);
+    }
+
+    /**
+     * Records a trigger. In the half-open state it decides whether the circuit closes or opens again.
+     */
+    public void recordTrigger(long nanos, boolean failed) {
+        record(nanos, failed, true);
+    }
+
+    /**
+     * Records a failure of a trigger that only surfaced after it returned, such as a packet that could not be built.
+     * Safe to call from any thread, it is applied on the next main thread call.
+     */
+    public void recordAsyncFailure() {
+        asyncFailures.incrementAndGet();
+    }
+
+    public @NotNull State getState() {
+        // Report an expired open window without waiting for the next request.
+        if (state == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return Seconds until an open circuit half-opens, 0 if it is not open.
+     */
+    public long getRemainingOpenSeconds() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0L, TimeUnit.NANOSECONDS.toSeconds(openUntilNanos - System.nanoTime()));
+    }
+
+    /**
+     * @return The share of failed outcomes in the current window.
+     */
+    public double getFailureRate() {
+        return outcomes == 0 ? 0 : (double) failureCount / outcomes;
+    }
+
+    /**
+     * @return The 99th percentile execution time of the current window, in nanoseconds.
+     */
+    public long getP99Nanos() {
+        if (recorded == 0) return 0;
+
+        long[] sorted = Arrays.copyOf(durations, recorded);
+        Arrays.sort(sorted);
+        return sorted[Math.min(recorded - 1, (int) Math.ceil(recorded * 0.99) - 1)];
+    }
+
+    public int getTimesOpened() {
+        return timesOpened;
+    }
+
+    private void record(long nanos, boolean failed, boolean trigger) {
+        Settings current = settings;
+        if (!current.enabled()) return;
+        applyAsyncFailures();
+
+        boolean slow = nanos > current.slowCallNanos();
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open(failed ? "trial run failed" : "trial run took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+            } else if (trigger) {
+                close();
+                logger.info("Circuit for event '{}' closed, the trial run succeeded.", eventKey);
+            }
+            return;
+        }
+
+        durations[next] = nanos;
+        next = (next + 1) % WINDOW_SIZE;
+        if (recorded < WINDOW_SIZE) recorded++;
+
+        if ((trigger || failed) && recordOutcome(failed)) return;
+
+        // Only look at the percentile when this call was slow, no need to sort on every fast call.
+        if (state == State.CLOSED && slow && recorded >= MIN_PERCENTILE_CALLS) {
+            long p99 = getP99Nanos();
+            if (p99 > current.slowCallNanos()) {
+                open("p99 execution time is " + TimeUnit.NANOSECONDS.toMillis(p99) + " ms");
+            }
+        }
+    }
+
+    /**
+     * @return True if the outcome opened the circuit.
+     */
+    private boolean recordOutcome(boolean failed) {
+        if (outcomes == OUTCOME_WINDOW_SIZE && failures[nextOutcome]) {
+            failureCount--;
+        }
+        failures[nextOutcome] = failed;
+        if (failed) failureCount++;
+        nextOutcome = (nextOutcome + 1) % OUTCOME_WINDOW_SIZE;
+        if (outcomes < OUTCOME_WINDOW_SIZE) outcomes++;
+
+        if (state != State.CLOSED || outcomes < MIN_OUTCOMES) return false;
+
+        double failureRate = getFailureRate();
+        if (failureRate >= settings.failureRate() && failureCount > 0) {
+            open(String.format("%.0f%% of the last %d triggers failed", failureRate * 100, outcomes));
+            return true;
+        }
+        return false;
+    }
+
+    private void applyAsyncFailures() {
+        int pending = asyncFailures.getAndSet(0);
+        if (pending == 0 || !settings.enabled()) return;
+
+        for (int i = 0; i < pending && state != State.OPEN; i++) {
+            if (state == State.HALF_OPEN) {
+                open("trial run failed to send its packets");
+                return;
+            }
+            recordOutcome(true);
+        }
+    }
+
+    private void open(@NotNull String reason) {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + settings.openNanos();
+        timesOpened++;
+        logger.warn("Circuit for event '{}' opened ({}). Skipping it for {} s.", eventKey, reason,
+                TimeUnit.NANOSECONDS.toSeconds(settings.openNanos()));
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        Arrays.fill(durations, 0L);
+        next = 0;
+        recorded = 0;
+        Arrays.fill(failures, false);
+        nextOutcome = 0;
+        outcomes = 0;
+        failureCount = 0;
+    }
+}
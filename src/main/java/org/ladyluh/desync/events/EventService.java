@@ -1,19 +1,33 @@
 package org.ladyluh.desync.events;
 
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.impl.*;
 import org.ladyluh.desync.managers.ConfigurationManager;
 import org.ladyluh.desync.managers.CooldownManager;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.scheduling.ActiveEffectRegistry;
+import org.ladyluh.desync.scheduling.ExecutionBudget;
+import org.ladyluh.desync.utils.BlockDataCache;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
 /**
  * Manages the registration and execution of all player-specific desync events.
+ * <p>
+ * Every event type has a {@link CircuitBreaker}, so an event that keeps failing or running slowly is skipped for a
+ * while instead of being attempted for every player on every pass. Packets sent during a trigger are tagged with the
+ * event, so the ones the {@link PacketDispatcher} fails to build or send count against its breaker as well.
+ * <p>
+ * Every check and trigger also runs under an {@link ExecutionBudget}. A trigger whose search gave up on it is
+ * retried once on the next tick; overruns are counted per event for {@code /desync stats}.
  */
 public class EventService {
 
@@ -21,6 +35,8 @@ public class EventService {
     private final Logger logger;
     private final CooldownManager cooldownManager;
     private final Map<String, PlayerDesyncEvent> registeredEvents = new HashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, BudgetStats> budgetStats = new HashMap<>();
     private ConfigurationManager configManager;
 
     public EventService(@NotNull Desync plugin, @NotNull CooldownManager cooldownManager, @NotNull ConfigurationManager configurationManager) {
@@ -30,6 +46,10 @@ public class EventService {
         this.configManager = configurationManager;
 
         registerDefaultEvents();
+        plugin.getPacketDispatcher().setFailureListener(eventKey -> {
+            CircuitBreaker breaker = breakers.get(eventKey);
+            if (breaker != null) breaker.recordAsyncFailure();
+        });
     }
 
     /**
@@ -38,7 +58,15 @@ public class EventService {
     public void reloadSettings() {
         this.configManager = plugin.getConfigurationManager();
 
-        logger.debug("EventService settings reloaded (no specific settings managed here).");
+        CircuitBreaker.Settings settings = breakerSettings();
+        breakers.values().forEach(breaker -> breaker.setSettings(settings));
+        logger.debug("EventService settings reloaded.");
+    }
+
+    private @NotNull CircuitBreaker.Settings breakerSettings() {
+        return new CircuitBreaker.Settings(configManager.isCircuitBreakerEnabled(), configManager.getCircuitBreakerFailureRate(),
+                TimeUnit.MILLISECONDS.toNanos(configManager.getCircuitBreakerSlowCallMs()),
+                TimeUnit.SECONDS.toNanos(configManager.getCircuitBreakerOpenSeconds()));
     }
 
 
@@ -53,6 +81,7 @@ public class EventService {
             logger.warn("Duplicate event key registered: '{}'. Overwriting.", key);
         }
         registeredEvents.put(key, event);
+        breakers.put(key, new CircuitBreaker(key, logger, breakerSettings()));
         logger.debug("Registered event: '{}' ({})", key, event.getClass().getSimpleName());
     }
 
@@ -83,6 +112,19 @@ public class EventService {
         registerEvent(new NullSpawnEvent());
 
         logger.debug("Finished registering {} event types.", registeredEvents.size());
+
+        prewarmBlockData();
+    }
+
+    /**
+     * Fills the block data cache with the fixed palettes of the block events.
+     */
+    private void prewarmBlockData() {
+        int failed = VisualStructureEvent.prewarmBlockData() + BlockFlickerEvent.prewarmBlockData();
+        if (failed > 0) {
+            logger.warn("{} block states could not be pre-built and will be skipped by their events.", failed);
+        }
+        logger.debug("Pre-warmed {} block states.", BlockDataCache.size());
     }
 
     /**
@@ -104,9 +146,19 @@ public class EventService {
         return registeredEvents.values();
     }
 
+    /**
+     * Gets the circuit breaker of an event.
+     *
+     * @param key The event key (case-insensitive).
+     * @return The breaker, or null if no such event is registered.
+     */
+    public CircuitBreaker getCircuitBreaker(@NotNull String key) {
+        return breakers.get(key.toLowerCase());
+    }
+
     /**
      * Gets a list of event keys that are currently triggerable for a player,
-     * considering only the event's canTrigger() check (not cooldowns).
+     * considering only the event's canTrigger() check (not cooldowns) and skipping events whose circuit is open.
      * This is primarily for the scheduler to pick from eligible types.
      *
      * @param player The player to check triggerability for.
@@ -116,12 +168,21 @@ public class EventService {
 
         return registeredEvents.values().stream()
                 .filter(event -> {
-                    try {
-                        return event.canTrigger(player);
-                    } catch (Exception e) {
-
-                        logger.error("Error during canTrigger check for event {} for player {}", event.getKey(), player.getName(), e);
-                        return false;
+                    CircuitBreaker breaker = getCircuitBreaker(event.getKey());
+                    if (!breaker.allowRequest()) return false;
+
+                    try (ExecutionBudget budget = openBudget(event)) {
+                        try {
+                            boolean canTrigger = event.canTrigger(player);
+                            breaker.recordCheck(budget.getElapsedNanos(), false);
+                            return canTrigger && !budget.wasExhausted();
+                        } catch (Exception e) {
+                            breaker.recordCheck(budget.getElapsedNanos(), true);
+                            logger.error("Error during canTrigger check for event {} for player {}", event.getKey(), player.getName(), e);
+                            return false;
+                        } finally {
+                            recordBudget(event, budget);
+                        }
                     }
                 })
                 .map(PlayerDesyncEvent::getKey)
@@ -131,16 +192,20 @@ public class EventService {
 
     /**
      * Attempts to trigger a specific event type for a player.
-     * Checks if the event exists, if the player is on cooldown (global or event-specific),
+     * Checks if the event exists, if its circuit is closed, if the player is on cooldown (global or event-specific),
      * and if the event's pre-conditions (canTrigger) are met.
      * Applies cooldowns if triggered.
      *
      * @param player   The player to trigger the event for.
      * @param eventKey The key of the event to trigger.
-     * @param force    If true, bypasses cooldown and canTrigger checks.
+     * @param force    If true, bypasses the circuit breaker, cooldown and canTrigger checks.
      * @return True if the event was triggered, false otherwise.
      */
     public boolean triggerEvent(@NotNull Player player, @NotNull String eventKey, boolean force) {
+        return triggerEvent(player, eventKey, force, false);
+    }
+
+    private boolean triggerEvent(@NotNull Player player, @NotNull String eventKey, boolean force, boolean retry) {
 
         if (configManager == null) {
             logger.error("ConfigurationManager is null in EventService.triggerEvent! Cannot trigger events.");
@@ -155,6 +220,13 @@ public class EventService {
         }
 
 
+        CircuitBreaker breaker = getCircuitBreaker(event.getKey());
+        if (!force && !breaker.allowRequest()) {
+            logger.debug("Skipping event '{}' for {} as its circuit is open.", eventKey, player.getName());
+            return false;
+        }
+
+
         if (!force && cooldownManager.isOnGlobalCooldown(player)) {
             logger.debug("Skipping event '{}' for {} due to global cooldown.", eventKey, player.getName());
             return false;
@@ -168,34 +240,87 @@ public class EventService {
 
 
         if (!force) {
-            try {
-                if (!event.canTrigger(player)) {
-                    logger.debug("Skipping event '{}' for {} as canTrigger check failed.", event.getKey(), player.getName());
+            try (ExecutionBudget budget = openBudget(event)) {
+                try {
+                    boolean canTrigger = event.canTrigger(player);
+                    breaker.recordCheck(budget.getElapsedNanos(), false);
+                    if (budget.wasExhausted()) {
+                        logger.debug("canTrigger check of event '{}' for {} ran out of budget.", event.getKey(), player.getName());
+                        return deferTrigger(player, event, force, retry);
+                    }
+                    if (!canTrigger) {
+                        logger.debug("Skipping event '{}' for {} as canTrigger check failed.", event.getKey(), player.getName());
+                        return false;
+                    }
+                } catch (Exception e) {
+                    breaker.recordCheck(budget.getElapsedNanos(), true);
+                    logger.error("Error during canTrigger check for event {} for player {} before triggering", event.getKey(), player.getName(), e);
                     return false;
+                } finally {
+                    recordBudget(event, budget);
                 }
-            } catch (Exception e) {
-
-                logger.error("Error during canTrigger check for event {} for player {} before triggering", event.getKey(), player.getName(), e);
-                return false;
             }
         }
 
 
-        try {
-            logger.debug("Triggering event '{}' for {}", event.getKey(), player.getName());
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
+        try (ExecutionBudget budget = openBudget(event)) {
+            try {
+                logger.debug("Triggering event '{}' for {}", event.getKey(), player.getName());
+
+                packetDispatcher.setSource(event.getKey());
+                event.trigger(player, plugin);
+                breaker.recordTrigger(budget.getElapsedNanos(), false);
+
+                if (budget.wasExhausted()) {
+                    // The event gave up in its search, before showing anything.
+                    logger.debug("Event '{}' for {} ran out of budget.", event.getKey(), player.getName());
+                    return deferTrigger(player, event, force, retry);
+                }
 
-            event.trigger(player, plugin);
 
+                cooldownManager.applyEventCooldown(player, event.getKey());
+                cooldownManager.applyGlobalCooldown(player);
 
-            cooldownManager.applyEventCooldown(player, event.getKey());
-            cooldownManager.applyGlobalCooldown(player);
+                return true;
+            } catch (Exception e) {
+                breaker.recordTrigger(budget.getElapsedNanos(), true);
+                logger.error("Error triggering event '{}' for {}", event.getKey(), player.getName(), e);
 
-            return true;
-        } catch (Exception e) {
-            logger.error("Error triggering event '{}' for {}", event.getKey(), player.getName(), e);
+                return false;
+            } finally {
+                packetDispatcher.setSource(null);
+                recordBudget(event, budget);
+            }
+        }
+    }
 
+    /**
+     * Retries an event that ran out of budget once, on the next tick.
+     *
+     * @return Always false, the event did not trigger now.
+     */
+    private boolean deferTrigger(@NotNull Player player, @NotNull PlayerDesyncEvent event, boolean force, boolean retry) {
+        if (retry) {
+            logger.debug("Dropping event '{}' for {}, it ran out of budget again.", event.getKey(), player.getName());
             return false;
         }
+
+        budgetStats.computeIfAbsent(event.getKey(), k -> new BudgetStats()).deferred++;
+        plugin.getActiveEffectRegistry().schedule(player.getUniqueId(), event.getKey(), 1L, () -> {
+            if (player.isOnline()) {
+                triggerEvent(player, event.getKey(), force, true);
+            }
+        });
+        return false;
+    }
+
+    private @NotNull ExecutionBudget openBudget(@NotNull PlayerDesyncEvent event) {
+        return ExecutionBudget.open(TimeUnit.MICROSECONDS.toNanos(configManager.getEventBudgetMicros(event.getKey())));
+    }
+
+    private void recordBudget(@NotNull PlayerDesyncEvent event, @NotNull ExecutionBudget budget) {
+        budgetStats.computeIfAbsent(event.getKey(), k -> new BudgetStats()).record(budget);
     }
 
     /**
@@ -219,24 +344,32 @@ public class EventService {
         return registeredEvents.keySet();
     }
 
+    /**
+     * @return A snapshot of the execution budget stats per event key, sorted by key.
+     */
+    public @NotNull Map<String, BudgetStats> getBudgetStats() {
+        Map<String, BudgetStats> snapshot = new TreeMap<>();
+        budgetStats.forEach((key, stats) -> snapshot.put(key, stats.copy()));
+        return snapshot;
+    }
+
+    /**
+     * Clears the execution budget stats.
+     */
+    public void resetBudgetStats() {
+        budgetStats.clear();
+    }
+
     /**
      * Cleanup method called on plugin disable.
-     * Cancels all active tasks associated with events (like stare tasks).
+     * Reverts every active effect (stares, stalkers, fake blocks...) for the players that stay online.
      */
     public void cleanup() {
         logger.debug("Cleaning up EventService resources...");
 
+        int swept = plugin.getActiveEffectRegistry().sweepAll(ActiveEffectRegistry.SweepReason.SHUTDOWN);
 
-        new ArrayList<>(AnimalStareEvent.activeStaresByPlayer.keySet()).forEach(playerUUID -> AnimalStareEvent.cancelAllPlayerStares(playerUUID, logger));
-
-
-        new ArrayList<>(StalkerSpawnEvent.activeStalkers.keySet()).forEach(playerUUID -> StalkerSpawnEvent.cancelStalkerForPlayer(playerUUID, logger));
-
-
-        new ArrayList<>(AnimalFollowEvent.activeFollowsByPlayer.keySet()).forEach(playerUUID -> AnimalFollowEvent.cancelAllPlayerFollows(playerUUID, logger));
-
-
-        logger.debug("EventService cleanup complete.");
+        logger.debug("EventService cleanup complete. Reverted {} active effects.", swept);
     }
 
     /**
@@ -248,10 +381,92 @@ public class EventService {
     public void handlePlayerQuit(@NotNull UUID playerUUID) {
         logger.debug("Handling player quit for {} in EventService.", playerUUID);
 
-        AnimalStareEvent.cancelAllPlayerStares(playerUUID, logger);
-        StalkerSpawnEvent.cancelStalkerForPlayer(playerUUID, logger);
-        AnimalFollowEvent.cancelAllPlayerFollows(playerUUID, logger);
+        plugin.getActiveEffectRegistry().sweep(playerUUID, ActiveEffectRegistry.SweepReason.QUIT);
+    }
 
+    /**
+     * Ends the effects of a player who moved to another world, so nothing keeps running against the world they left.
+     * Called by the PlayerWorldChangeListener.
+     *
+     * @param playerUUID The UUID of the player who changed world.
+     */
+    public void handleWorldChange(@NotNull UUID playerUUID) {
+        logger.debug("Handling world change for {} in EventService.", playerUUID);
 
+        plugin.getActiveEffectRegistry().sweep(playerUUID, ActiveEffectRegistry.SweepReason.WORLD_CHANGE);
+    }
+
+    /**
+     * Cancels the effects anchored to an unloaded chunk and forgets the fake blocks, block summaries and spots of it.
+     * Called by the ChunkUnloadListener.
+     *
+     * @param world  The world of the chunk.
+     * @param chunkX The chunk X coordinate.
+     * @param chunkZ The chunk Z coordinate.
+     */
+    public void handleChunkUnload(@NotNull World world, int chunkX, int chunkZ) {
+        plugin.getActiveEffectRegistry().handleChunkUnload(world, chunkX, chunkZ);
+        plugin.getFakeBlockOverlay().forgetChunk(world, chunkX, chunkZ);
+        plugin.getBlockSearchService().forgetChunk(world, chunkX, chunkZ);
+        plugin.getSpotIndex().forgetChunk(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Execution budget usage of one event type.
+     */
+    public static final class BudgetStats {
+
+        private long invocations;
+        private long overruns;
+        private long exhausted;
+        private long deferred;
+        private long maxNanos;
+
+        private void record(@NotNull ExecutionBudget budget) {
+            invocations++;
+            if (budget.isOverrun()) overruns++;
+            if (budget.wasExhausted()) exhausted++;
+            long elapsed = budget.getElapsedNanos();
+            if (elapsed > maxNanos) maxNanos = elapsed;
+        }
+
+        private BudgetStats copy() {
+            BudgetStats copy = new BudgetStats();
+            copy.invocations = invocations;
+            copy.overruns = overruns;
+            copy.exhausted = exhausted;
+            copy.deferred = deferred;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * @return Checks and triggers that took longer than their budget.
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * @return Checks and triggers whose search gave up on the budget.
+         */
+        public long getExhausted() {
+            return exhausted;
+        }
+
+        /**
+         * @return Triggers retried on the next tick.
+         */
+        public long getDeferred() {
+            return deferred;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
     }
 }
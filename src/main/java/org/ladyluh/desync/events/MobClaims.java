@@ -0,0 +1,81 @@
+package org.ladyluh.desync.events;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Registry of real mobs currently driven by an effect (a stare, a follow...).
+ * <p>
+ * A mob can be claimed by one effect at a time. Claiming is a single atomic {@code putIfAbsent}, so two effects
+ * can never both decide a mob is free and take it over, and checking a mob is O(1) instead of scanning every
+ * player's active effects.
+ */
+public final class MobClaims {
+
+    private static final Map<UUID, Claim> CLAIMS = new ConcurrentHashMap<>();
+
+    private MobClaims() {
+    }
+
+    /**
+     * Who holds a mob.
+     *
+     * @param owner The player the effect is shown to.
+     * @param type  The effect type, normally the event key.
+     */
+    public record Claim(@NotNull UUID owner, @NotNull String type) {
+    }
+
+    /**
+     * Claims a mob if no other effect holds it.
+     *
+     * @return True if the claim was taken, false if the mob is already claimed.
+     */
+    public static boolean tryClaim(@NotNull UUID mobUuid, @NotNull UUID owner, @NotNull String type) {
+        return CLAIMS.putIfAbsent(mobUuid, new Claim(owner, type)) == null;
+    }
+
+    /**
+     * Releases a claim, if it is still held by the given owner and type.
+     *
+     * @return True if the claim was released.
+     */
+    public static boolean release(@NotNull UUID mobUuid, @NotNull UUID owner, @NotNull String type) {
+        return CLAIMS.remove(mobUuid, new Claim(owner, type));
+    }
+
+    public static boolean isClaimed(@NotNull UUID mobUuid) {
+        return CLAIMS.containsKey(mobUuid);
+    }
+
+    /**
+     * @return True if the mob is claimed by an effect of the given type.
+     */
+    public static boolean isClaimedBy(@NotNull UUID mobUuid, @NotNull String type) {
+        Claim claim = CLAIMS.get(mobUuid);
+        return claim != null && claim.type().equals(type);
+    }
+
+    public static @Nullable Claim getClaim(@NotNull UUID mobUuid) {
+        return CLAIMS.get(mobUuid);
+    }
+
+    /**
+     * @return The number of claimed mobs.
+     */
+    public static int size() {
+        return CLAIMS.size();
+    }
+
+    /**
+     * Drops every claim. Called on disable, after the effects holding them were ended.
+     */
+    public static void clear() {
+        CLAIMS.clear();
+    }
+}
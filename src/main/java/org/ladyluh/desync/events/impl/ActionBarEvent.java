@@ -9,6 +9,7 @@ import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
 import org.slf4j.Logger;
 
 import java.util.List;
@@ -69,6 +70,7 @@ public class ActionBarEvent implements PlayerDesyncEvent {
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
         ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         if (SPOOKY_ACTION_BAR_MESSAGES.isEmpty()) {
@@ -92,7 +94,7 @@ public class ActionBarEvent implements PlayerDesyncEvent {
             WrappedChatComponent chatComponent = WrappedChatComponent.fromLegacyText(formattedMessage);
             actionBarPacket.getChatComponents().write(0, chatComponent);
 
-            protocolManager.sendServerPacket(player, actionBarPacket);
+            packetDispatcher.send(player, actionBarPacket);
             logger.debug("Sent SET_ACTION_BAR_TEXT packet to {}", player.getName());
 
 
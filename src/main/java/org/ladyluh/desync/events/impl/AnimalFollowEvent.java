@@ -1,7 +1,5 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketContainer;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -9,12 +7,14 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.events.MobClaims;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.scheduling.EffectTask;
 import org.slf4j.Logger;
 
 import java.util.*;
@@ -39,9 +39,17 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
 
     );
     private static final double GAZE_THRESHOLD_DEGREES = 70.0;
-    private static final double FOLLOW_STEP_DISTANCE_MIN = 0.3;
-    private static final double FOLLOW_STEP_DISTANCE_MAX = 0.5;
-    private static final int FOLLOW_INTERVAL_TICKS = 5;
+    /**
+     * Steps are sent as relative moves, which the client interpolates over a few ticks,
+     * so fewer and longer steps still read as a continuous creep.
+     */
+    private static final double FOLLOW_STEP_DISTANCE_MIN = 0.36;
+    private static final double FOLLOW_STEP_DISTANCE_MAX = 0.6;
+    private static final int FOLLOW_INTERVAL_TICKS = 6;
+    /**
+     * Every n-th step is an absolute teleport, so any difference between our tracked position and the client's is corrected.
+     */
+    private static final int ABSOLUTE_SYNC_INTERVAL_STEPS = 5;
     private static final long MAX_FOLLOW_DURATION_TICKS = 20 * 20;
 
     /**
@@ -52,15 +60,12 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
      * @return True if the mob is currently following, false otherwise.
      */
     public static boolean isMobFollowing(@NotNull UUID mobUuid) {
-
-        return activeFollowsByPlayer.values().stream()
-                .flatMap(Collection::stream)
-                .anyMatch(follow -> follow.mobUuid().equals(mobUuid));
+        return MobClaims.isClaimedBy(mobUuid, KEY);
     }
 
     /**
      * Static helper to cancel all follow tasks targeting a specific player.
-     * Called by PlayerQuitListener or EventService cleanup.
+     * Quit, world change and shutdown end follows through the ActiveEffectRegistry instead.
      */
     public static void cancelAllPlayerFollows(@NotNull UUID playerUUID, @NotNull Logger logger) {
         logger.debug("Attempting follow cancellation for player {}", playerUUID);
@@ -70,50 +75,8 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
         if (followsToCancel != null && !followsToCancel.isEmpty()) {
             logger.debug("Globally cancelling {} animal follow tasks for player {}", followsToCancel.size(), playerUUID);
             for (FollowData data : followsToCancel) {
-
-
-                if (data.task() != null && !data.task().isCancelled()) {
-                    data.task().cancel();
-
-                    Mob mobForLog = (Mob) Bukkit.getEntity(data.mobUuid());
-                    logger.debug("Cancelled task for mob {} ({}) follow during global cancel.", data.mobUuid(), (mobForLog != null ? mobForLog.getType() : "Unknown"));
-                } else {
-                    Mob mobForLog = (Mob) Bukkit.getEntity(data.mobUuid());
-                    logger.debug("Task for mob {} ({}) was already cancelled/null during global cancel.", data.mobUuid(), (mobForLog != null ? mobForLog.getType() : "Unknown"));
-                }
-
-
-                Mob mob = (Mob) Bukkit.getEntity(data.mobUuid());
-                if (mob != null && mob.isValid() && !mob.isDead() && (data.task() == null || data.task().isCancelled())) {
-                    logger.debug("Force-restoring AI for mob {} ({}).", data.mobUuid(), mob.getType());
-                    mob.setAI(data.originalAiState());
-
-                    try {
-                        ProtocolManager protocolManager = Desync.getInstance().getProtocolManager();
-                        PacketContainer teleportPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_TELEPORT);
-                        teleportPacket.getIntegers().write(0, mob.getEntityId());
-                        teleportPacket.getDoubles()
-                                .write(0, mob.getLocation().getX())
-                                .write(1, mob.getLocation().getY())
-                                .write(2, mob.getLocation().getZ());
-                        teleportPacket.getBytes()
-                                .write(0, (byte) (mob.getLocation().getYaw() * 256.0F / 360.0F))
-                                .write(1, (byte) (mob.getLocation().getPitch() * 256.0F / 360.0F));
-                        teleportPacket.getBooleans().write(0, mob.isOnGround());
-
-                        Player targetPlayer = Bukkit.getPlayer(playerUUID);
-                        if (targetPlayer != null && targetPlayer.isOnline()) {
-                            protocolManager.sendServerPacket(targetPlayer, teleportPacket);
-                            logger.debug("Sent final sync teleport for mob {} ({}) to player {}", mob.getType(), data.mobUuid(), targetPlayer.getName());
-                        } else {
-
-                            logger.debug("Skipping final sync teleport for mob {} ({}) - player {} offline.", mob.getType(), data.mobUuid(), playerUUID);
-                        }
-
-                    } catch (Exception e) {
-                        logger.error("Failed to send final sync teleport packet for mob {} ({}) to player {}", mob.getType(), data.mobUuid(), playerUUID, e);
-                    }
-                }
+                // Restores the mob's AI through the task's onCancel.
+                data.task().cancel();
             }
         } else {
             logger.debug("No active follow tasks found for player {} during cancelAllPlayerFollows.", playerUUID);
@@ -147,12 +110,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                     UUID mobUuid = mob.getUniqueId();
 
 
-                    if (isMobFollowing(mobUuid)) {
-
-                        continue;
-                    }
-
-                    if (AnimalStareEvent.isMobStaring(mobUuid)) {
+                    if (MobClaims.isClaimed(mobUuid)) {
 
                         continue;
                     }
@@ -242,6 +200,10 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
 
         for (Mob targetMob : selectedAnimals) {
             UUID mobUuid = targetMob.getUniqueId();
+            if (!MobClaims.tryClaim(mobUuid, player.getUniqueId(), KEY)) {
+                logger.debug("Skipping {} ({}) for {}: claimed by another effect in the meantime.", targetMob.getType(), mobUuid, player.getName());
+                continue;
+            }
             boolean originalAiState = targetMob.hasAI();
             targetMob.setAI(false);
             Location initialServerLocation = targetMob.getLocation().clone();
@@ -249,7 +211,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
             logger.debug("Starting follow task for {} ({}) -> {}", targetMob.getType(), mobUuid, player.getName());
 
 
-            BukkitTask task = startIndividualFollowTask(plugin, targetMob, player, originalAiState, initialServerLocation);
+            EffectTask task = startIndividualFollowTask(plugin, targetMob, player, originalAiState, initialServerLocation);
 
             if (task != null) {
                 FollowData followData = new FollowData(mobUuid, player.getUniqueId(), task, originalAiState, initialServerLocation);
@@ -257,6 +219,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                 logger.debug("Added follow task for {} ({}) to active follows for player {}", targetMob.getType(), mobUuid, player.getName());
             } else {
                 logger.warn("Failed to start follow task for {}. Resetting AI.", mobUuid);
+                MobClaims.release(mobUuid, player.getUniqueId(), KEY);
 
                 if (targetMob.isValid()) targetMob.setAI(originalAiState);
             }
@@ -266,9 +229,9 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
     /**
      * Helper for starting individual follow task & returning it.
      */
-    private BukkitTask startIndividualFollowTask(@NotNull Desync plugin, @NotNull Mob targetMob, @NotNull Player player, boolean originalAiState, @NotNull Location initialServerLocation) {
+    private EffectTask startIndividualFollowTask(@NotNull Desync plugin, @NotNull Mob targetMob, @NotNull Player player, boolean originalAiState, @NotNull Location initialServerLocation) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         UUID mobUuid = targetMob.getUniqueId();
         UUID playerUUID = player.getUniqueId();
 
@@ -282,14 +245,19 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
 
-        return new BukkitRunnable() {
+        return new EffectTask(KEY, playerUUID) {
             private long ticksElapsed = 0;
 
 
             private Location clientsideLocation = initialServerLocation.clone();
 
+            private int stepsSent = 0;
+            private long sentX = PacketWriters.toDeltaUnits(initialServerLocation.getX());
+            private long sentY = PacketWriters.toDeltaUnits(initialServerLocation.getY());
+            private long sentZ = PacketWriters.toDeltaUnits(initialServerLocation.getZ());
+
             @Override
-            public void run() {
+            public void tick() {
                 Player currentPlayer = Bukkit.getPlayer(playerUUID);
                 Mob currentMob = (Mob) Bukkit.getEntity(mobUuid);
 
@@ -298,7 +266,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                     String reason = (this.isCancelled() ? "Cancelled" : (currentPlayer == null || !currentPlayer.isOnline() ? "Target Offline" : (currentMob == null || !currentMob.isValid() || currentMob.isDead() ? "Mob Invalid/Dead" : "Max Lifespan")));
                     logger.debug("AnimalFollow (ID {}) despawning: {}", mobUuid, reason);
 
-                    cleanupFollow(playerUUID, mobUuid, logger, originalAiState, this);
+                    this.cancel();
                     return;
                 }
 
@@ -320,7 +288,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                             } else {
                                 logger.debug("Gaze Aversion Detected: {} looked at {} ({}) - Stopping follow.", currentPlayer.getName(), currentMob.getType(), mobUuid);
 
-                                cleanupFollow(playerUUID, mobUuid, logger, originalAiState, this);
+                                this.cancel();
                                 return;
                             }
                         } else {
@@ -331,7 +299,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
 
                             if (clientsideLocation.distanceSquared(currentPlayer.getLocation()) < 2.0 * 2.0) {
                                 logger.debug("Player {} too close to mob {} ({}) clientside - Stopping follow.", currentPlayer.getName(), currentMob.getType(), mobUuid);
-                                cleanupFollow(playerUUID, mobUuid, logger, originalAiState, this);
+                                this.cancel();
                                 return;
                             }
                         }
@@ -353,6 +321,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                         Vector dirToPlayer = currentPlayer.getLocation().add(0, 0.5, 0).toVector()
                                 .subtract(clientsideLocation.toVector());
                         double distanceToPlayer = dirToPlayer.length();
+                        boolean stepped = false;
                         if (distanceToPlayer < FOLLOW_STEP_DISTANCE_MIN * 1.5) {
 
                             logger.debug("Mob {} ({}) clientside too close to player {} (dist: {}) - skipping follow step.", currentMob.getType(), mobUuid, currentPlayer.getName(), distanceToPlayer);
@@ -366,31 +335,10 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                             stepDistance = Math.min(stepDistance, distanceToPlayer * 0.8);
 
 
-                            Location newClientsideLoc = clientsideLocation.clone().add(dirToPlayer.multiply(stepDistance));
-
-
-                            PacketContainer teleportPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_TELEPORT);
-                            teleportPacket.getIntegers().write(0, currentMob.getEntityId());
-                            teleportPacket.getDoubles()
-                                    .write(0, newClientsideLoc.getX())
-                                    .write(1, newClientsideLoc.getY())
-                                    .write(2, newClientsideLoc.getZ());
-
-                            Vector lookDirForMob = currentPlayer.getLocation().add(0, currentPlayer.getHeight() * 0.8, 0).toVector().subtract(newClientsideLoc.toVector());
-                            float yaw = (float) (Math.toDegrees(Math.atan2(lookDirForMob.getZ(), lookDirForMob.getX())) - 90);
-                            float pitch = (float) Math.toDegrees(-Math.atan2(lookDirForMob.getY(), Math.sqrt(lookDirForMob.getX() * lookDirForMob.getX() + lookDirForMob.getZ() * lookDirForMob.getZ())));
-
-                            teleportPacket.getBytes()
-                                    .write(0, (byte) (yaw * 256.0F / 360.0F))
-                                    .write(1, (byte) (pitch * 256.0F / 360.0F));
-                            teleportPacket.getBooleans().write(0, true);
-
-                            protocolManager.sendServerPacket(currentPlayer, teleportPacket);
+                            clientsideLocation = clientsideLocation.clone().add(dirToPlayer.multiply(stepDistance));
+                            stepped = true;
                             logger.debug("Mob {} ({}) stepped towards {} ({} blocks) at clientside pos {}",
-                                    currentMob.getType(), mobUuid, currentPlayer.getName(), stepDistance, newClientsideLoc.toVector());
-
-
-                            clientsideLocation = newClientsideLoc;
+                                    currentMob.getType(), mobUuid, currentPlayer.getName(), stepDistance, clientsideLocation.toVector());
                         }
 
 
@@ -402,12 +350,15 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                             float pitch = (float) Math.toDegrees(-Math.atan2(lookDirForMob.getY(), Math.sqrt(lookDirForMob.getX() * lookDirForMob.getX() + lookDirForMob.getZ() * lookDirForMob.getZ())));
 
 
-                            PacketContainer entityLookPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_LOOK);
-                            entityLookPacket.getIntegers().write(0, currentMob.getEntityId());
-                            entityLookPacket.getBytes().write(0, (byte) (yaw * 256.0F / 360.0F)).write(1, (byte) (pitch * 256.0F / 360.0F));
-                            entityLookPacket.getBooleans().write(0, true);
-                            protocolManager.sendServerPacket(currentPlayer, entityLookPacket);
+                            int mobEntityId = currentMob.getEntityId();
+                            byte yawAngle = (byte) (yaw * 256.0F / 360.0F);
+                            byte pitchAngle = (byte) (pitch * 256.0F / 360.0F);
 
+                            if (stepped) {
+                                sendStep(currentPlayer, mobEntityId, yawAngle, pitchAngle);
+                            } else {
+                                packetDispatcher.send(currentPlayer, () -> PacketWriters.entityLook(mobEntityId, yawAngle, pitchAngle, true));
+                            }
                         }
 
 
@@ -415,7 +366,7 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                         logger.error("Failed during AnimalFollow task for mob {} (UUID: {}) following player {}",
                                 currentMob.getType(), mobUuid, currentPlayer.getName(), e);
 
-                        cleanupFollow(playerUUID, mobUuid, logger, originalAiState, this);
+                        this.cancel();
                         return;
                     }
                 }
@@ -425,12 +376,41 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
             }
 
 
-            /** Helper method to clean up this specific follow task state. */
-            private void cleanupFollow(@NotNull UUID playerUuid, @NotNull UUID mobUuid, @NotNull Logger logger, boolean originalAiState, @NotNull BukkitRunnable taskToCancel) {
-                if (!taskToCancel.isCancelled()) {
-                    taskToCancel.cancel();
+            /**
+             * Moves the mob to the current clientside location, as a relative move from the last position
+             * the client was sent, or as an absolute teleport every {@link #ABSOLUTE_SYNC_INTERVAL_STEPS} steps.
+             */
+            private void sendStep(@NotNull Player currentPlayer, int mobEntityId, byte yawAngle, byte pitchAngle) {
+                double stepX = clientsideLocation.getX();
+                double stepY = clientsideLocation.getY();
+                double stepZ = clientsideLocation.getZ();
+                long targetX = PacketWriters.toDeltaUnits(stepX);
+                long targetY = PacketWriters.toDeltaUnits(stepY);
+                long targetZ = PacketWriters.toDeltaUnits(stepZ);
+
+                if (stepsSent % ABSOLUTE_SYNC_INTERVAL_STEPS == 0) {
+                    packetDispatcher.send(currentPlayer, () -> PacketWriters.teleport(mobEntityId, stepX, stepY, stepZ, yawAngle, pitchAngle, true));
+                } else {
+                    short deltaX = (short) (targetX - sentX);
+                    short deltaY = (short) (targetY - sentY);
+                    short deltaZ = (short) (targetZ - sentZ);
+                    packetDispatcher.send(currentPlayer, () -> PacketWriters.relEntityMoveLook(mobEntityId, deltaX, deltaY, deltaZ, yawAngle, pitchAngle, true));
                 }
 
+                sentX = targetX;
+                sentY = targetY;
+                sentZ = targetZ;
+                stepsSent++;
+            }
+
+            @Override
+            protected void onCancel() {
+                cleanupFollow(playerUUID, mobUuid, logger, originalAiState, this);
+            }
+
+            /** Helper method to clean up this specific follow task state. Runs once, when the task is cancelled. */
+            private void cleanupFollow(@NotNull UUID playerUuid, @NotNull UUID mobUuid, @NotNull Logger logger, boolean originalAiState, @NotNull EffectTask taskToCancel) {
+                MobClaims.release(mobUuid, playerUuid, KEY);
 
                 List<FollowData> playerFollows = activeFollowsByPlayer.get(playerUuid);
                 if (playerFollows != null) {
@@ -454,21 +434,16 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                     mob.setAI(originalAiState);
 
                     try {
-                        ProtocolManager protocolManager = Desync.getInstance().getProtocolManager();
-                        PacketContainer teleportPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_TELEPORT);
-                        teleportPacket.getIntegers().write(0, mob.getEntityId());
-                        teleportPacket.getDoubles()
-                                .write(0, mob.getLocation().getX())
-                                .write(1, mob.getLocation().getY())
-                                .write(2, mob.getLocation().getZ());
-                        teleportPacket.getBytes()
-                                .write(0, (byte) (mob.getLocation().getYaw() * 256.0F / 360.0F))
-                                .write(1, (byte) (mob.getLocation().getPitch() * 256.0F / 360.0F));
-                        teleportPacket.getBooleans().write(0, mob.isOnGround());
+                        PacketDispatcher packetDispatcher = Desync.getInstance().getPacketDispatcher();
+                        Location mobLocation = mob.getLocation();
+                        PacketContainer teleportPacket = PacketWriters.teleport(mob.getEntityId(),
+                                mobLocation.getX(), mobLocation.getY(), mobLocation.getZ(),
+                                (byte) (mobLocation.getYaw() * 256.0F / 360.0F), (byte) (mobLocation.getPitch() * 256.0F / 360.0F),
+                                mob.isOnGround());
 
                         Player targetPlayer = Bukkit.getPlayer(playerUuid);
                         if (targetPlayer != null && targetPlayer.isOnline()) {
-                            protocolManager.sendServerPacket(targetPlayer, teleportPacket);
+                            packetDispatcher.send(targetPlayer, teleportPacket);
                             logger.debug("Sent final sync teleport for mob {} ({}) to player {}", mob.getType(), mobUuid, targetPlayer.getName());
                         } else {
 
@@ -484,10 +459,10 @@ public class AnimalFollowEvent implements PlayerDesyncEvent {
                     logger.debug("Skipping AI restore/sync for mob {} ({}) - mob is invalid, null or dead.", (mob != null ? Objects.requireNonNull(Bukkit.getEntity(mobUuid)).getType() : "Unknown"), mobUuid);
                 }
             }
-        }.runTaskTimer(plugin, 0L, 1L);
+        }.start(plugin, 0L, 1L);
     }
 
-    public record FollowData(UUID mobUuid, UUID targetPlayerUuid, BukkitTask task, boolean originalAiState,
+    public record FollowData(UUID mobUuid, UUID targetPlayerUuid, EffectTask task, boolean originalAiState,
                              Location initialServerLocation) {
     }
 }
\ No newline at end of file
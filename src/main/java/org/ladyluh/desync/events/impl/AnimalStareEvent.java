@@ -1,20 +1,19 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
-import com.comphenix.protocol.events.PacketContainer;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.events.MobClaims;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.scheduling.EffectTask;
 import org.slf4j.Logger;
 
 import java.util.*;
@@ -46,15 +45,12 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
      * @return True if the mob is currently staring, false otherwise.
      */
     public static boolean isMobStaring(@NotNull UUID mobUuid) {
-
-        return activeStaresByPlayer.values().stream()
-                .flatMap(Collection::stream)
-                .anyMatch(stare -> stare.mobUuid().equals(mobUuid));
+        return MobClaims.isClaimedBy(mobUuid, KEY);
     }
 
     /**
      * Central cleanup for all stares targeting a specific player.
-     * This static helper is called by the PlayerQuitListener or gaze aversion logic.
+     * This static helper is called by the gaze aversion logic.
      * It removes the player's entry from the map and cancels all their stare tasks.
      */
     public static void cancelAllPlayerStares(@NotNull UUID playerUUID, @NotNull Logger logger) {
@@ -65,24 +61,8 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
         if (tasksToCancel != null && !tasksToCancel.isEmpty()) {
             logger.debug("Globally cancelling {} animal stare tasks for player {}", tasksToCancel.size(), playerUUID);
             for (StareData data : tasksToCancel) {
-
-
-                if (data.task() != null && !data.task().isCancelled()) {
-                    data.task().cancel();
-
-                    Mob mobForLog = (Mob) Bukkit.getEntity(data.mobUuid());
-                    logger.debug("Cancelled task for mob {} ({}) stare during global cancel.", data.mobUuid(), (mobForLog != null ? mobForLog.getType() : "Unknown"));
-                } else {
-                    Mob mobForLog = (Mob) Bukkit.getEntity(data.mobUuid());
-                    logger.debug("Task for mob {} ({}) was already cancelled/null during global cancel.", data.mobUuid(), (mobForLog != null ? mobForLog.getType() : "Unknown"));
-                }
-
-
-                Mob mob = (Mob) Bukkit.getEntity(data.mobUuid());
-                if (mob != null && mob.isValid() && !mob.isDead() && (data.task() == null || data.task().isCancelled())) {
-                    logger.debug("Force-restoring AI for mob {} ({}).", data.mobUuid(), mob.getType());
-                    mob.setAI(data.originalAiState());
-                }
+                // Restores the mob's AI through the task's onCancel.
+                data.task().cancel();
             }
         } else {
             logger.debug("No active stare tasks found for player {} during global cancel.", playerUUID);
@@ -116,12 +96,7 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
                     UUID mobUuid = mob.getUniqueId();
 
 
-                    if (isMobStaring(mobUuid)) {
-
-                        continue;
-                    }
-
-                    if (AnimalFollowEvent.isMobFollowing(mobUuid)) {
+                    if (MobClaims.isClaimed(mobUuid)) {
 
                         continue;
                     }
@@ -196,6 +171,10 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
 
         for (Mob targetMob : nearbyAnimals) {
             UUID mobUuid = targetMob.getUniqueId();
+            if (!MobClaims.tryClaim(mobUuid, player.getUniqueId(), KEY)) {
+                logger.debug("Skipping {} ({}) for {}: claimed by another effect in the meantime.", targetMob.getType(), mobUuid, player.getName());
+                continue;
+            }
             boolean originalAiState = targetMob.hasAI();
             targetMob.setAI(false);
 
@@ -206,7 +185,7 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
             long stareDurationTicks = ThreadLocalRandom.current().nextLong(stareDurationMinTicks, stareDurationMaxTicks + 1);
 
 
-            BukkitTask task = startIndividualStareTask(plugin, targetMob, player, originalAiState, stareDurationTicks);
+            EffectTask task = startIndividualStareTask(plugin, targetMob, player, originalAiState, stareDurationTicks);
 
             if (task != null) {
                 StareData stareData = new StareData(mobUuid, player.getUniqueId(), task, originalAiState);
@@ -214,6 +193,7 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
                 logger.debug("Added stare task for {} ({}) to active stares for player {}", targetMob.getType(), mobUuid, player.getName());
             } else {
                 logger.warn("Failed to start stare task for {}. Resetting AI.", mobUuid);
+                MobClaims.release(mobUuid, player.getUniqueId(), KEY);
 
                 if (targetMob.isValid()) targetMob.setAI(originalAiState);
             }
@@ -224,9 +204,9 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
     /**
      * Helper for starting individual stare task & returning it.
      */
-    private BukkitTask startIndividualStareTask(@NotNull Desync plugin, @NotNull Mob targetMob, @NotNull Player player, boolean originalAiState, long stareDurationTicks) {
+    private EffectTask startIndividualStareTask(@NotNull Desync plugin, @NotNull Mob targetMob, @NotNull Player player, boolean originalAiState, long stareDurationTicks) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         UUID mobUuid = targetMob.getUniqueId();
         UUID playerUUID = player.getUniqueId();
 
@@ -239,11 +219,11 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
         final int GAZE_CHECK_RANGE_BLOCKS = 36;
         final int GAZE_CHECK_RANGE_SQ = GAZE_CHECK_RANGE_BLOCKS * GAZE_CHECK_RANGE_BLOCKS;
 
-        return new BukkitRunnable() {
+        return new EffectTask(KEY, playerUUID) {
             private long ticksElapsed = 0;
 
             @Override
-            public void run() {
+            public void tick() {
                 Player currentPlayer = Bukkit.getPlayer(playerUUID);
                 Mob currentMob = (Mob) Bukkit.getEntity(mobUuid);
 
@@ -251,7 +231,7 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
                 if (this.isCancelled() || currentPlayer == null || !currentPlayer.isOnline() || currentMob == null || !currentMob.isValid() || currentMob.isDead() || ticksElapsed >= stareDurationTicks) {
                     String reason = (this.isCancelled() ? "Cancelled" : (currentPlayer == null || !currentPlayer.isOnline() ? "Target Offline" : (currentMob == null || !currentMob.isValid() || currentMob.isDead() ? "Mob Invalid/Dead" : "TimerExpired")));
                     logger.debug("AnimalStare (ID {}) despawning: {}", mobUuid, reason);
-                    cleanupStare(playerUUID, mobUuid, logger, originalAiState, this);
+                    this.cancel();
                     return;
                 }
 
@@ -290,18 +270,13 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
                         float pitch = (float) Math.toDegrees(-Math.atan2(direction.getY(), Math.sqrt(direction.getX() * direction.getX() + direction.getZ() * direction.getZ())));
 
 
-                        PacketContainer entityLookPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_LOOK);
-                        entityLookPacket.getIntegers().write(0, currentMob.getEntityId());
-                        entityLookPacket.getBytes().write(0, (byte) (yaw * 256.0F / 360.0F));
-                        entityLookPacket.getBytes().write(1, (byte) (pitch * 256.0F / 360.0F));
-                        entityLookPacket.getBooleans().write(0, currentMob.isOnGround());
-                        protocolManager.sendServerPacket(currentPlayer, entityLookPacket);
+                        int mobEntityId = currentMob.getEntityId();
+                        byte yawAngle = (byte) (yaw * 256.0F / 360.0F);
+                        byte pitchAngle = (byte) (pitch * 256.0F / 360.0F);
+                        boolean onGround = currentMob.isOnGround();
 
-
-                        PacketContainer headRotationPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_HEAD_ROTATION);
-                        headRotationPacket.getIntegers().write(0, currentMob.getEntityId());
-                        headRotationPacket.getBytes().write(0, (byte) (yaw * 256.0F / 360.0F));
-                        protocolManager.sendServerPacket(currentPlayer, headRotationPacket);
+                        packetDispatcher.send(currentPlayer, () -> PacketWriters.entityLook(mobEntityId, yawAngle, pitchAngle, onGround));
+                        packetDispatcher.send(currentPlayer, () -> PacketWriters.headRotation(mobEntityId, yawAngle));
 
                         ticksElapsed++;
                     } catch (Exception e) {
@@ -314,12 +289,14 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
             }
 
 
-            /** Helper method to clean up this specific stare task state. */
-            private void cleanupStare(@NotNull UUID playerUuid, @NotNull UUID mobUuid, @NotNull Logger logger, boolean originalAiState, @NotNull BukkitRunnable taskToCancel) {
-                if (!taskToCancel.isCancelled()) {
-                    taskToCancel.cancel();
-                }
+            @Override
+            protected void onCancel() {
+                cleanupStare(playerUUID, mobUuid, logger, originalAiState, this);
+            }
 
+            /** Helper method to clean up this specific stare task state. Runs once, when the task is cancelled. */
+            private void cleanupStare(@NotNull UUID playerUuid, @NotNull UUID mobUuid, @NotNull Logger logger, boolean originalAiState, @NotNull EffectTask taskToCancel) {
+                MobClaims.release(mobUuid, playerUuid, KEY);
 
                 List<StareData> playerStares = activeStaresByPlayer.get(playerUuid);
                 if (playerStares != null) {
@@ -346,9 +323,9 @@ public class AnimalStareEvent implements PlayerDesyncEvent {
                     logger.debug("Skipping AI restore for mob {} ({}) - mob invalid or dead.", (mob != null ? Objects.requireNonNull(Bukkit.getEntity(mobUuid)).getType() : "Unknown"), mobUuid);
                 }
             }
-        }.runTaskTimer(plugin, 0L, 1L);
+        }.start(plugin, 0L, 1L);
     }
 
-    public record StareData(UUID mobUuid, UUID targetPlayerUuid, BukkitTask task, boolean originalAiState) {
+    public record StareData(UUID mobUuid, UUID targetPlayerUuid, EffectTask task, boolean originalAiState) {
     }
 }
\ No newline at end of file
@@ -1,20 +1,20 @@
 package org.ladyluh.desync.events.impl;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.Lightable;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.RayTraceResult;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
-import org.ladyluh.desync.utils.EffectUtils;
+import org.ladyluh.desync.scheduling.ActiveEffect;
+import org.ladyluh.desync.utils.BlockDataCache;
+import org.ladyluh.desync.world.BlockSearchService;
+import org.ladyluh.desync.world.MaterialClass;
 import org.slf4j.Logger;
 
-import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +50,30 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
 
     ));
 
+    private static final int FLICKER_TARGET = MaterialClass.register(type -> type == Material.TORCH || type == Material.WALL_TORCH
+            || (BLOCK_FLICKER_MAP.containsKey(type) && !BLOCK_FLICKER_MAP.get(type).isEmpty()));
+
+    private static final BlockSearchService.Query SEARCH_QUERY = new BlockSearchService.Query(SEARCH_RADIUS, SEARCH_RADIUS / 2,
+            BlockFlickerEvent::isFlickerCandidateType, data -> !(data instanceof Lightable lightable) || lightable.isLit()
+                    || BLOCK_FLICKER_MAP.containsKey(data.getMaterial()));
+
+
+    /**
+     * Builds the block data of every flicker target ahead of time, so triggers only do cache lookups.
+     *
+     * @return The number of flicker states that could not be created.
+     */
+    public static int prewarmBlockData() {
+        int failed = 0;
+        for (List<Material> flickers : BLOCK_FLICKER_MAP.values()) {
+            for (Material flicker : flickers) {
+                if (!BlockDataCache.prewarm(flicker, null)) failed++;
+            }
+        }
+        if (!BlockDataCache.prewarm(Material.REDSTONE_TORCH, null)) failed++;
+        if (!BlockDataCache.prewarm(Material.REDSTONE_WALL_TORCH, null)) failed++;
+        return failed;
+    }
 
     @Override
     public String getKey() {
@@ -79,32 +103,13 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
             }
 
 
-            Location startLoc = player.getEyeLocation();
-            ThreadLocalRandom random = ThreadLocalRandom.current();
-            int sampleSize = 10;
-
-            for (int i = 0; i < sampleSize; i++) {
-                int x = random.nextInt(-SEARCH_RADIUS, SEARCH_RADIUS + 1);
-                int y = random.nextInt(-SEARCH_RADIUS / 2, SEARCH_RADIUS / 2 + 1);
-                int z = random.nextInt(-SEARCH_RADIUS, SEARCH_RADIUS + 1);
-                if (x == 0 && y == 0 && z == 0) continue;
-
-                Location checkLoc = startLoc.clone().add(x, y, z);
-                if (checkLoc.getWorld() == null || !checkLoc.getWorld().isChunkLoaded(checkLoc.getChunk()))
-                    continue;
-
-                Block block = checkLoc.getBlock();
-                if (isEligibleFlickerBlock(block)) {
-                    return true;
-                }
-            }
+            return Desync.getInstance().getBlockSearchService().hasCandidates(player, SEARCH_QUERY);
 
         } catch (Exception e) {
 
             Desync.getInstance().getPluginLogger().error("Error during BlockFlicker canTrigger check for {}", player.getName(), e);
             return false;
         }
-        return false;
     }
 
     /**
@@ -117,28 +122,35 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
     @Override
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        long flickerDurationTicks = 10 + random.nextInt(11);
-
 
-        Block targetBlock = null;
         RayTraceResult rayTrace = player.rayTraceBlocks(SEARCH_RADIUS);
         if (rayTrace != null && rayTrace.getHitBlock() != null) {
             Block lookedAt = rayTrace.getHitBlock();
             if (isEligibleFlickerBlock(lookedAt)) {
-                targetBlock = lookedAt;
-                logger.debug("BlockFlicker trying block player is looking at: {}", targetBlock.getType());
+                logger.debug("BlockFlicker trying block player is looking at: {}", lookedAt.getType());
+                flicker(player, plugin, lookedAt);
+                return;
             }
         }
 
-
-        if (targetBlock == null) {
-            targetBlock = findRandomNearbyEligibleBlock(player, plugin);
-            if (targetBlock != null) {
-                logger.debug("BlockFlicker found random nearby candidate: {}", targetBlock.getType());
+        plugin.getBlockSearchService().pick(player, SEARCH_QUERY, candidate -> {
+            if (candidate != null && !isEligibleFlickerBlock(candidate)) {
+                // The search only knows block types, the light level is checked here.
+                logger.debug("BlockFlicker candidate {} at {} is too dark.", candidate.getType(), candidate.getLocation().toVector());
+                candidate = null;
             }
-        }
+            if (candidate != null) {
+                logger.debug("BlockFlicker found random nearby candidate: {}", candidate.getType());
+            }
+            flicker(player, plugin, candidate);
+        });
+    }
+
+    private void flicker(Player player, Desync plugin, Block targetBlock) {
+        Logger logger = plugin.getPluginLogger();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long flickerDurationTicks = 10 + random.nextInt(11);
 
         if (targetBlock == null) {
 
@@ -163,7 +175,7 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
             flickerMaterial = (originalMaterial == Material.TORCH) ? Material.REDSTONE_TORCH : Material.REDSTONE_WALL_TORCH;
             try {
 
-                flickerBlockData = Bukkit.createBlockData(flickerMaterial);
+                flickerBlockData = BlockDataCache.get(flickerMaterial).blockData();
 
                 logger.debug("Flickering torch {} to {} at {}", originalMaterial, flickerMaterial, blockLocation.toVector());
             } catch (IllegalArgumentException e) {
@@ -178,7 +190,7 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
                 try {
 
 
-                    flickerBlockData = Bukkit.createBlockData(flickerMaterial);
+                    flickerBlockData = BlockDataCache.get(flickerMaterial).blockData();
                     logger.debug("Flickering block {} to {} at {}", originalMaterial, flickerMaterial, blockLocation.toVector());
                 } catch (IllegalArgumentException e) {
 
@@ -197,28 +209,33 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
         }
 
 
-        EffectUtils.sendBlockChange(player, blockLocation, flickerBlockData, plugin);
+        plugin.getFakeBlockOverlay().show(player, blockLocation, flickerBlockData);
         logger.debug("Triggered BlockFlicker for {}: Changed {} at {} clientside.",
                 player.getName(), originalMaterial, blockLocation.toVector());
 
 
-        final BlockData finalOriginalBlockData = originalBlockData;
         final Location finalBlockLocation = blockLocation;
 
-        new BukkitRunnable() {
-            @Override
-            public void run() {
+        ActiveEffect revert = plugin.getActiveEffectRegistry().scheduleRevert(player.getUniqueId(), KEY, flickerDurationTicks, () -> {
 
-                if (player.isOnline()) {
+            if (player.isOnline()) {
 
 
-                    EffectUtils.sendBlockChange(player, finalBlockLocation, finalOriginalBlockData, plugin);
-                    logger.debug("BlockFlicker reverted block at {} for {}", finalBlockLocation.toVector(), player.getName());
-                } else {
-                    logger.debug("BlockFlicker skipping revert for {} - player offline.", player.getName());
-                }
+                plugin.getFakeBlockOverlay().release(player, finalBlockLocation);
+                logger.debug("BlockFlicker reverted block at {} for {}", finalBlockLocation.toVector(), player.getName());
+            } else {
+                logger.debug("BlockFlicker skipping revert for {} - player offline.", player.getName());
             }
-        }.runTaskLater(plugin, flickerDurationTicks);
+        }, resync -> plugin.getFakeBlockOverlay().release(player, finalBlockLocation, resync));
+        plugin.getActiveEffectRegistry().anchor(revert, finalBlockLocation);
+    }
+
+    /**
+     * Type-only pre-filter for the background search, the light level is checked on the live block.
+     */
+    private static boolean isFlickerCandidateType(Material type) {
+        int classes = MaterialClass.of(type);
+        return (classes & (MaterialClass.AIR | MaterialClass.GRAVITY)) == 0 && (classes & (FLICKER_TARGET | MaterialClass.LIGHTABLE)) != 0;
     }
 
     /**
@@ -228,7 +245,7 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
      * @return True if eligible, false otherwise.
      */
     private boolean isEligibleFlickerBlock(Block block) {
-        if (block == null || block.getType() == Material.AIR || block.getType().hasGravity()) {
+        if (block == null || MaterialClass.is(block.getType(), MaterialClass.AIR | MaterialClass.GRAVITY)) {
             return false;
         }
 
@@ -237,59 +254,7 @@ public class BlockFlickerEvent implements PlayerDesyncEvent {
         if (!isWellLit) return false;
 
 
-        boolean hasMapping = BLOCK_FLICKER_MAP.containsKey(block.getType()) && !BLOCK_FLICKER_MAP.get(block.getType()).isEmpty();
-        boolean isLitBlock = block.getBlockData() instanceof Lightable lightable && lightable.isLit();
-        boolean isTorchType = block.getType() == Material.TORCH || block.getType() == Material.WALL_TORCH;
-
-
-        return hasMapping || isLitBlock || isTorchType;
-    }
-
-    /**
-     * Helper method to find a random eligible block nearby.
-     * Called by trigger() if player isn't looking at one.
-     *
-     * @param player The player.
-     * @param plugin The main plugin instance (needed for logger).
-     * @return An eligible Block, or null if none found.
-     */
-    private Block findRandomNearbyEligibleBlock(Player player, Desync plugin) {
-        Logger logger = plugin.getPluginLogger();
-        Location startLoc = player.getEyeLocation();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        List<Block> candidates = new ArrayList<>();
-        for (int x = -SEARCH_RADIUS; x <= SEARCH_RADIUS; x++) {
-
-            for (int y = -SEARCH_RADIUS / 2; y <= SEARCH_RADIUS / 2; y++) {
-                for (int z = -SEARCH_RADIUS; z <= SEARCH_RADIUS; z++) {
-                    if (x == 0 && y == 0 && z == 0) continue;
-
-                    Location checkLoc = startLoc.clone().add(x, y, z);
-                    if (checkLoc.getWorld() == null || !checkLoc.getWorld().isChunkLoaded(checkLoc.getChunk())) {
-
-                        continue;
-                    }
-
-                    try {
-                        Block potential = checkLoc.getBlock();
-                        if (isEligibleFlickerBlock(potential)) {
-                            candidates.add(potential);
-                        }
-                    } catch (Exception e) {
-
-                        logger.warn("Error finding block at relative location ({},{},{}) near {} for BlockFlicker trigger: {}",
-                                x, y, z, player.getName(), e.getMessage());
-                    }
-                }
-            }
-        }
-
-        if (candidates.isEmpty()) {
-            return null;
-        }
-
-
-        return candidates.get(random.nextInt(candidates.size()));
+        if (MaterialClass.is(block.getType(), FLICKER_TARGET)) return true;
+        return block.getBlockData() instanceof Lightable lightable && lightable.isLit();
     }
 }
\ No newline at end of file
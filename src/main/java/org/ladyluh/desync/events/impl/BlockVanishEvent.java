@@ -1,20 +1,16 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
-import com.comphenix.protocol.events.PacketContainer;
-import com.comphenix.protocol.wrappers.BlockPosition;
-import com.comphenix.protocol.wrappers.WrappedBlockData;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
-import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.Openable;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
-import org.ladyluh.desync.utils.EffectUtils;
+import org.ladyluh.desync.scheduling.ActiveEffect;
+import org.ladyluh.desync.utils.BlockDataCache;
+import org.ladyluh.desync.world.BlockSearchService;
+import org.ladyluh.desync.world.MaterialClass;
 import org.slf4j.Logger;
 
 import java.util.*;
@@ -59,6 +55,11 @@ public class BlockVanishEvent implements PlayerDesyncEvent {
             // Add more relevant solid block types...
     ));
 
+    private static final int VANISHABLE = MaterialClass.register(BlockVanishEvent::isEligibleVanishType);
+
+    private static final BlockSearchService.Query SEARCH_QUERY = new BlockSearchService.Query(SEARCH_RADIUS, SEARCH_RADIUS,
+            type -> MaterialClass.is(type, VANISHABLE), data -> !(data instanceof Openable));
+
     @Override
     public String getKey() {
         return KEY;
@@ -76,89 +77,23 @@ public class BlockVanishEvent implements PlayerDesyncEvent {
 
     @Override
     public boolean canTrigger(Player player) {
-        // Requires player to be online and a suitable solid block to be nearby.
-        // Check nearby blocks randomly within the radius.
-        Location startLoc = player.getLocation();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        int sampleSize = 10; // Check a few random blocks
-        try {
-            for(int i = 0; i < sampleSize; i++) {
-                int x = random.nextInt(-SEARCH_RADIUS, SEARCH_RADIUS + 1);
-                int y = random.nextInt(-SEARCH_RADIUS, SEARCH_RADIUS + 1);
-                int z = random.nextInt(-SEARCH_RADIUS, SEARCH_RADIUS + 1);
-                if (x == 0 && y == 0 && z == 0) continue;
-
-                Location checkLoc = startLoc.clone().add(x, y, z);
-                if (!checkLoc.getWorld().isChunkLoaded(checkLoc.getChunk())) continue;
-
-                Block block = checkLoc.getBlock();
-                if (isEligibleVanishBlock(block)) {
-                    return true; // Found an eligible block
-                }
-            }
-        } catch (Exception e) {
-            Desync.getInstance().getPluginLogger().warn("Error during BlockVanish canTrigger check for {}", player.getName(), e);
-            return false;
-        }
-        return false; // No eligible block found
+        // Requires a suitable solid block nearby, as found by the last background search.
+        return Desync.getInstance().getBlockSearchService().hasCandidates(player, SEARCH_QUERY);
     }
 
     /**
-     * Helper to check if a block is eligible for vanishing.
-     * @param block The block to check.
+     * Helper to check if a block type is eligible for vanishing.
+     * @param type The block type to check.
      * @return True if eligible, false otherwise.
      */
-    private boolean isEligibleVanishBlock(Block block) {
+    private static boolean isEligibleVanishType(Material type) {
         // Must be a block, not air/liquid/gravity/interactive, and in our list.
-        if (block == null || !block.getType().isBlock() || !block.getType().isSolid() || block.getType().hasGravity() || block.isLiquid() ||
-                block.getBlockData() instanceof Openable || block.getType().name().contains("_CHEST") || block.getType() == Material.BARREL || block.getType() == Material.LEVER || block.getType().name().contains("_BUTTON")) {
+        if ((MaterialClass.of(type) & (MaterialClass.SOLID | MaterialClass.GRAVITY)) != MaterialClass.SOLID ||
+                type.name().contains("_CHEST") || type == Material.BARREL || type == Material.LEVER || type.name().contains("_BUTTON")) {
             return false; // Filter out non-blocks, non-solids, gravity, liquids, and interactive blocks
         }
         // Check if it's in our defined list of eligible types
-        return ELIGIBLE_VANISH_TYPES.containsKey(block.getType());
-    }
-
-    /**
-     * Helper method to find a random eligible block nearby.
-     * Called by trigger().
-     * @param player The player.
-     * @param plugin The main plugin instance (needed for logger).
-     * @return An eligible Block, or null if none found.
-     */
-    private Block findRandomNearbyEligibleBlock(Player player, Desync plugin) {
-        Logger logger = plugin.getPluginLogger();
-        Location startLoc = player.getLocation();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        List<Block> candidates = new ArrayList<>();
-        for (int x = -SEARCH_RADIUS; x <= SEARCH_RADIUS; x++) {
-            for (int y = -SEARCH_RADIUS; y <= SEARCH_RADIUS; y++) {
-                for (int z = -SEARCH_RADIUS; z <= SEARCH_RADIUS; z++) {
-                    if (x == 0 && y == 0 && z == 0) continue;
-
-                    Location checkLoc = startLoc.clone().add(x, y, z);
-                    if (checkLoc.getWorld() == null || !checkLoc.getWorld().isChunkLoaded(checkLoc.getChunk())) continue;
-
-                    try {
-                        Block potential = checkLoc.getBlock();
-                        if (isEligibleVanishBlock(potential)) {
-                            candidates.add(potential);
-                        }
-                    } catch (Exception e) {
-                        logger.warn("Error finding block at relative location ({},{},{}) near {} for BlockVanish trigger: {}",
-                                x, y, z, player.getName(), e.getMessage());
-                    }
-                }
-            }
-        }
-
-        if (candidates.isEmpty()) {
-            return null; // No eligible block candidates found
-        }
-
-        // Pick one randomly from the list of candidates
-        return candidates.get(random.nextInt(candidates.size()));
+        return ELIGIBLE_VANISH_TYPES.containsKey(type);
     }
 
 
@@ -170,11 +105,12 @@ public class BlockVanishEvent implements PlayerDesyncEvent {
      */
     @Override
     public void trigger(Player player, Desync plugin) {
-        Logger logger = plugin.getPluginLogger(); // Use passed plugin
-        ProtocolManager protocolManager = plugin.getProtocolManager(); // Use passed plugin
-
         // Find a nearby eligible block to make vanish
-        Block targetBlock = findRandomNearbyEligibleBlock(player, plugin);
+        plugin.getBlockSearchService().pick(player, SEARCH_QUERY, targetBlock -> vanish(player, plugin, targetBlock));
+    }
+
+    private void vanish(Player player, Desync plugin, Block targetBlock) {
+        Logger logger = plugin.getPluginLogger();
 
         if (targetBlock == null) {
             logger.debug("BlockVanish trigger for {}: No suitable target block found during trigger execution.", player.getName());
@@ -182,50 +118,36 @@ public class BlockVanishEvent implements PlayerDesyncEvent {
         }
 
         Location blockLocation = targetBlock.getLocation();
-        BlockData originalBlockData = targetBlock.getBlockData();
 
 
         logger.debug("Triggering BlockVanish for {} at {}", player.getName(), blockLocation.toVector());
 
-        // --- Send vanish packet (change to air clientside) ---
+        // --- Show the block as air clientside ---
         try {
-            // Send BLOCK_CHANGE packet to make the block appear as air
-            PacketContainer vanishPacket = protocolManager.createPacket(PacketType.Play.Server.BLOCK_CHANGE);
-            vanishPacket.getBlockPositionModifier().write(0, new BlockPosition(blockLocation.getBlockX(), blockLocation.getBlockY(), blockLocation.getBlockZ()));
-            vanishPacket.getBlockData().write(0, WrappedBlockData.createData(Material.AIR.createBlockData())); // Change to air
-
-            protocolManager.sendServerPacket(player, vanishPacket);
+            plugin.getFakeBlockOverlay().show(player, blockLocation, BlockDataCache.get(Material.AIR).wrapped());
             logger.debug("Sent BLOCK_CHANGE packet (Vanish) to {}", player.getName());
 
 
-            // --- Schedule revert task (change back to original) ---
+            // --- Schedule revert task (back to whatever the block is by then) ---
             final Location finalBlockLocation = blockLocation;
-            final BlockData finalOriginalBlockData = originalBlockData; // Final original block data
-
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (!player.isOnline()) {
-                        logger.debug("BlockVanish skipping revert for {} - player offline.", player.getName());
-                        return;
-                    }
 
-                    // Send BLOCK_CHANGE packet to revert to original block
-                    try {
-                        // Defensive check: Is the location still loaded?
-                        if (finalBlockLocation.getWorld() == null || !finalBlockLocation.getWorld().isChunkLoaded(finalBlockLocation.getChunk())) {
-                            logger.debug("Skipping revert for block at {} - chunk not loaded.", finalBlockLocation.toVector());
-                            return;
-                        }
+            ActiveEffect revert = plugin.getActiveEffectRegistry().scheduleRevert(player.getUniqueId(), KEY, VANISH_DURATION_TICKS, () -> {
+                if (!player.isOnline()) {
+                    logger.debug("BlockVanish skipping revert for {} - player offline.", player.getName());
+                    return;
+                }
 
-                        EffectUtils.sendBlockChange(player, finalBlockLocation, finalOriginalBlockData, plugin); // Use utility method
+                try {
+                    // Sends the current real block, unless another effect still fakes it or the server already overwrote it.
+                    if (plugin.getFakeBlockOverlay().release(player, finalBlockLocation)) {
                         logger.debug("BlockVanish reverted block at {} clientside.", finalBlockLocation.toVector());
-
-                    } catch (Exception e) {
-                        logger.error("Failed to send BlockVanish revert packet for {} to {}", finalBlockLocation.toVector(), player.getName(), e);
                     }
+
+                } catch (Exception e) {
+                    logger.error("Failed to send BlockVanish revert packet for {} to {}", finalBlockLocation.toVector(), player.getName(), e);
                 }
-            }.runTaskLater(plugin, VANISH_DURATION_TICKS); // Schedule revert after duration
+            }, resync -> plugin.getFakeBlockOverlay().release(player, finalBlockLocation, resync)); // Schedule revert after duration
+            plugin.getActiveEffectRegistry().anchor(revert, finalBlockLocation);
 
 
         } catch (Exception e) {
@@ -8,6 +8,7 @@ import org.bukkit.ChatColor;
 import org.bukkit.entity.Player; 
 import org.ladyluh.desync.Desync; 
 import org.ladyluh.desync.events.PlayerDesyncEvent; 
+import org.ladyluh.desync.packets.PacketDispatcher;
 import org.slf4j.Logger;
 import java.util.List; 
 import java.util.concurrent.ThreadLocalRandom; 
@@ -66,6 +67,7 @@ public class FakeChatMessageEvent implements PlayerDesyncEvent {
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger(); 
         ProtocolManager protocolManager = plugin.getProtocolManager(); 
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         if (SPOOKY_MESSAGES.isEmpty()) {
@@ -87,7 +89,7 @@ public class FakeChatMessageEvent implements PlayerDesyncEvent {
             WrappedChatComponent chatComponent = WrappedChatComponent.fromLegacyText(formattedMessage);
             chatPacket.getChatComponents().write(0, chatComponent);
             chatPacket.getBooleans().write(0, false);
-            protocolManager.sendServerPacket(player, chatPacket);
+            packetDispatcher.send(player, chatPacket);
 
         } catch (Exception e) {
             logger.error("Failed to send FakeChatMessage packet to {}", player.getName(), e);
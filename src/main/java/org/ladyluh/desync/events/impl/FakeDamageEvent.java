@@ -7,6 +7,8 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
 import org.slf4j.Logger;
 
 import java.util.concurrent.ThreadLocalRandom;
@@ -56,6 +58,7 @@ public class FakeDamageEvent implements PlayerDesyncEvent {
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
         ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         boolean playSound = random.nextBoolean();
@@ -77,27 +80,18 @@ public class FakeDamageEvent implements PlayerDesyncEvent {
                 entityStatusPacket.getIntegers().write(0, player.getEntityId());
                 entityStatusPacket.getBytes().write(0, (byte) 2);
 
-                protocolManager.sendServerPacket(player, entityStatusPacket);
+                packetDispatcher.send(player, entityStatusPacket);
                 logger.debug("Sent ENTITY_STATUS (damage) packet to {}", player.getName());
             }
 
             if (playSound) {
 
 
-                PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-                soundPacket.getSoundEffects().write(0, org.bukkit.Sound.ENTITY_PLAYER_HURT);
-                soundPacket.getSoundCategories().write(0, com.comphenix.protocol.wrappers.EnumWrappers.SoundCategory.PLAYERS);
-
-
                 Location playerLoc = player.getLocation();
-                soundPacket.getIntegers()
-                        .write(0, (int) (playerLoc.getX() * 8.0D))
-                        .write(1, (int) (playerLoc.getY() * 8.0D))
-                        .write(2, (int) (playerLoc.getZ() * 8.0D));
-                soundPacket.getFloat().write(0, 16.0F).write(1, 1.0F);
-                soundPacket.getLongs().write(0, random.nextLong());
-
-                protocolManager.sendServerPacket(player, soundPacket);
+                PacketContainer soundPacket = PacketWriters.soundEffect(org.bukkit.Sound.ENTITY_PLAYER_HURT, com.comphenix.protocol.wrappers.EnumWrappers.SoundCategory.PLAYERS,
+                        playerLoc.getX(), playerLoc.getY(), playerLoc.getZ(), 16.0F, 1.0F, random.nextLong());
+
+                packetDispatcher.send(player, soundPacket);
                 logger.debug("Sent NAMED_SOUND_EFFECT (player_hurt) packet to {}", player.getName());
             }
 
@@ -8,9 +8,9 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.inventory.meta.Damageable;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
@@ -88,6 +88,7 @@ public class FakeItemDurabilityEvent implements PlayerDesyncEvent {
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
         ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
         PlayerInventory inventory = player.getInventory();
 
@@ -190,40 +191,37 @@ public class FakeItemDurabilityEvent implements PlayerDesyncEvent {
 
             setSlotPacket.getItemModifier().write(0, fakeItemForPacket);
 
-            protocolManager.sendServerPacket(player, setSlotPacket);
+            packetDispatcher.send(player, setSlotPacket);
             logger.debug("Sent SET_SLOT packet for slot {} with fake damage {} to {}", targetSlot, fakeNewDamage, player.getName());
 
 
             final int finalTargetSlot = targetSlot;
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (!player.isOnline()) {
-                        logger.debug("FakeItemDurability skipping revert for {} - player offline.", player.getName());
-                        return;
-                    }
+            plugin.getActiveEffectRegistry().scheduleRevert(player.getUniqueId(), KEY, FLICKER_DURATION_TICKS, () -> {
+                if (!player.isOnline()) {
+                    logger.debug("FakeItemDurability skipping revert for {} - player offline.", player.getName());
+                    return;
+                }
 
-                    try {
+                try {
 
-                        PacketContainer revertPacket = protocolManager.createPacket(PacketType.Play.Server.SET_SLOT);
-                        revertPacket.getIntegers().write(0, 0);
-                        revertPacket.getIntegers().write(1, 0);
-                        revertPacket.getIntegers().write(2, finalTargetSlot);
+                    PacketContainer revertPacket = protocolManager.createPacket(PacketType.Play.Server.SET_SLOT);
+                    revertPacket.getIntegers().write(0, 0);
+                    revertPacket.getIntegers().write(1, 0);
+                    revertPacket.getIntegers().write(2, finalTargetSlot);
 
-                        revertPacket.getItemModifier().write(0, originalItemForRevert);
+                    revertPacket.getItemModifier().write(0, originalItemForRevert);
 
-                        protocolManager.sendServerPacket(player, revertPacket);
-                        logger.debug("Sent SET_SLOT packet for slot {} with original damage {} to {}",
-                                finalTargetSlot,
-                                (originalItemForRevert.getItemMeta() instanceof Damageable) ? ((Damageable) originalItemForRevert.getItemMeta()).getDamage() : "N/A",
-                                player.getName());
+                    packetDispatcher.send(player, revertPacket);
+                    logger.debug("Sent SET_SLOT packet for slot {} with original damage {} to {}",
+                            finalTargetSlot,
+                            (originalItemForRevert.getItemMeta() instanceof Damageable) ? ((Damageable) originalItemForRevert.getItemMeta()).getDamage() : "N/A",
+                            player.getName());
 
-                    } catch (Exception e) {
-                        logger.error("Failed to send FakeItemDurability revert SET_SLOT packet for slot {} to {}", finalTargetSlot, player.getName(), e);
-                    }
+                } catch (Exception e) {
+                    logger.error("Failed to send FakeItemDurability revert SET_SLOT packet for slot {} to {}", finalTargetSlot, player.getName(), e);
                 }
-            }.runTaskLater(plugin, FLICKER_DURATION_TICKS);
+            }, resync -> resync.resyncInventory());
 
         } catch (Exception e) {
 
@@ -10,9 +10,9 @@ import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import com.comphenix.protocol.wrappers.WrappedGameProfile;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
 import org.ladyluh.desync.utils.SkinUtils;
 import org.slf4j.Logger;
 
@@ -75,6 +75,7 @@ public class FakePlayerJoinEvent implements PlayerDesyncEvent {
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
         ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
 
         logger.debug("Triggering FakePlayerJoinLeave ('{}') for {}", FAKE_PLAYER_NAME, player.getName());
 
@@ -90,7 +91,7 @@ public class FakePlayerJoinEvent implements PlayerDesyncEvent {
             addPlayerPacket.getPlayerInfoDataLists().write(1, Collections.singletonList(playerInfoData));
 
 
-            protocolManager.sendServerPacket(player, addPlayerPacket);
+            packetDispatcher.send(player, addPlayerPacket);
             logger.debug("Sent PLAYER_INFO (ADD_PLAYER) packet for '{}' ({}) to {}", FAKE_PLAYER_NAME, fakePlayerInstanceUUID, player.getName());
 
 
@@ -101,59 +102,53 @@ public class FakePlayerJoinEvent implements PlayerDesyncEvent {
             joinMessagePacket.getChatComponents().write(0, joinMessageComponent);
             joinMessagePacket.getBooleans().write(0, false);
 
-            protocolManager.sendServerPacket(player, joinMessagePacket);
+            packetDispatcher.send(player, joinMessagePacket);
             logger.debug("Sent SYSTEM_CHAT join message packet for '{}' to {}", FAKE_PLAYER_NAME, player.getName());
 
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
+            plugin.getActiveEffectRegistry().scheduleRevert(player.getUniqueId(), KEY, DISPLAY_DURATION_TICKS, () -> {
 
-                    if (!player.isOnline()) {
-                        logger.debug("FakePlayerJoinLeave skipping remove sequence for {} - player offline.", player.getName());
-                        return;
-                    }
+                if (!player.isOnline()) {
+                    logger.debug("FakePlayerJoinLeave skipping remove sequence for {} - player offline.", player.getName());
+                    return;
+                }
 
-                    try {
+                try {
 
-                        PacketContainer removePlayerPacket = protocolManager.createPacket(PacketType.Play.Server.PLAYER_INFO_REMOVE);
+                    PacketContainer removePlayerPacket = protocolManager.createPacket(PacketType.Play.Server.PLAYER_INFO_REMOVE);
 
-                        removePlayerPacket.getUUIDLists().write(0, Collections.singletonList(fakePlayerInstanceUUID));
+                    removePlayerPacket.getUUIDLists().write(0, Collections.singletonList(fakePlayerInstanceUUID));
 
 
-                        protocolManager.sendServerPacket(player, removePlayerPacket);
-                        logger.debug("Sent PLAYER_INFO_REMOVE packet for '{}' ({}) to {}", FAKE_PLAYER_NAME, fakePlayerInstanceUUID, player.getName());
+                    packetDispatcher.send(player, removePlayerPacket);
+                    logger.debug("Sent PLAYER_INFO_REMOVE packet for '{}' ({}) to {}", FAKE_PLAYER_NAME, fakePlayerInstanceUUID, player.getName());
 
 
-                        new BukkitRunnable() {
-                            @Override
-                            public void run() {
+                    plugin.getActiveEffectRegistry().schedule(player.getUniqueId(), KEY, REMOVE_MESSAGE_DELAY_TICKS, () -> {
 
-                                if (!player.isOnline()) return;
+                        if (!player.isOnline()) return;
 
-                                try {
-                                    String leaveMessageText = FAKE_PLAYER_NAME + " left the game";
-                                    WrappedChatComponent leaveMessageComponent = WrappedChatComponent.fromLegacyText(ChatColor.YELLOW + leaveMessageText);
+                        try {
+                            String leaveMessageText = FAKE_PLAYER_NAME + " left the game";
+                            WrappedChatComponent leaveMessageComponent = WrappedChatComponent.fromLegacyText(ChatColor.YELLOW + leaveMessageText);
 
-                                    PacketContainer leaveMessagePacket = protocolManager.createPacket(PacketType.Play.Server.SYSTEM_CHAT);
-                                    leaveMessagePacket.getChatComponents().write(0, leaveMessageComponent);
-                                    leaveMessagePacket.getBooleans().write(0, false);
+                            PacketContainer leaveMessagePacket = protocolManager.createPacket(PacketType.Play.Server.SYSTEM_CHAT);
+                            leaveMessagePacket.getChatComponents().write(0, leaveMessageComponent);
+                            leaveMessagePacket.getBooleans().write(0, false);
 
-                                    protocolManager.sendServerPacket(player, leaveMessagePacket);
-                                    logger.debug("Sent SYSTEM_CHAT leave message packet for '{}' to {}", FAKE_PLAYER_NAME, player.getName());
+                            packetDispatcher.send(player, leaveMessagePacket);
+                            logger.debug("Sent SYSTEM_CHAT leave message packet for '{}' to {}", FAKE_PLAYER_NAME, player.getName());
 
-                                } catch (Exception e) {
-                                    logger.error("Failed to send FakePlayerJoinLeave leave message packet for '{}' to {}", FAKE_PLAYER_NAME, player.getName(), e);
-                                }
-                            }
-                        }.runTaskLater(plugin, REMOVE_MESSAGE_DELAY_TICKS);
+                        } catch (Exception e) {
+                            logger.error("Failed to send FakePlayerJoinLeave leave message packet for '{}' to {}", FAKE_PLAYER_NAME, player.getName(), e);
+                        }
+                    });
 
-                    } catch (Exception e) {
-                        logger.error("Failed to send FakePlayerJoinLeave remove packet for '{}' ({}) to {}", FAKE_PLAYER_NAME, fakePlayerInstanceUUID, player.getName(), e);
+                } catch (Exception e) {
+                    logger.error("Failed to send FakePlayerJoinLeave remove packet for '{}' ({}) to {}", FAKE_PLAYER_NAME, fakePlayerInstanceUUID, player.getName(), e);
 
-                    }
                 }
-            }.runTaskLater(plugin, DISPLAY_DURATION_TICKS);
+            }, resync -> resync.removePlayerInfo(fakePlayerInstanceUUID));
 
         } catch (Exception e) {
 
@@ -1,7 +1,5 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import org.bukkit.Location;
@@ -11,6 +9,8 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
 import org.slf4j.Logger;
 
 import java.util.List;
@@ -94,7 +94,7 @@ public class FootstepEvent implements PlayerDesyncEvent {
 
     private void playSingleFootstep(Player player, Desync plugin, boolean clonePlayerSound) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         float volume = 0.4f;
@@ -150,18 +150,10 @@ public class FootstepEvent implements PlayerDesyncEvent {
 
 
         try {
-            PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-
-            soundPacket.getSoundEffects().write(0, soundToPlay);
-            soundPacket.getSoundCategories().write(0, EnumWrappers.SoundCategory.PLAYERS);
-            soundPacket.getIntegers()
-                    .write(0, (int) (soundLocation.getX() * 8.0D))
-                    .write(1, (int) (soundLocation.getY() * 8.0D))
-                    .write(2, (int) (soundLocation.getZ() * 8.0D));
-            soundPacket.getFloat().write(0, volume).write(1, pitch);
-            soundPacket.getLongs().write(0, random.nextLong());
-
-            protocolManager.sendServerPacket(player, soundPacket);
+            PacketContainer soundPacket = PacketWriters.soundEffect(soundToPlay, EnumWrappers.SoundCategory.PLAYERS,
+                    soundLocation.getX(), soundLocation.getY(), soundLocation.getZ(), volume, pitch, random.nextLong());
+
+            packetDispatcher.send(player, soundPacket);
         } catch (Exception e) {
             logger.error("Failed to send Single Footstep packet to {}", player.getName(), e);
         }
@@ -176,7 +168,7 @@ public class FootstepEvent implements PlayerDesyncEvent {
 
     private void playFootstepSequence(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         int numSteps = random.nextInt(2, 5);
@@ -239,36 +231,26 @@ public class FootstepEvent implements PlayerDesyncEvent {
             final int stepNum = i + 1;
 
 
-            new org.bukkit.scheduler.BukkitRunnable() {
-                @Override
-                public void run() {
+            plugin.getActiveEffectRegistry().schedule(player.getUniqueId(), KEY, delay, () -> {
 
-                    if (!player.isOnline()) {
-                        logger.debug("Skipping step {}/{} for {} - player offline.", stepNum, numSteps, player.getName());
-                        return;
-                    }
+                if (!player.isOnline()) {
+                    logger.debug("Skipping step {}/{} for {} - player offline.", stepNum, numSteps, player.getName());
+                    return;
+                }
 
-                    logger.debug("Playing step {}/{} of {} for {} (Sound: {}, Pitch: {})",
-                            stepNum, numSteps, sequenceTypeName, player.getName(), soundForThisStep.name(), pitch);
+                logger.debug("Playing step {}/{} of {} for {} (Sound: {}, Pitch: {})",
+                        stepNum, numSteps, sequenceTypeName, player.getName(), soundForThisStep.name(), pitch);
 
 
-                    try {
-                        PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-                        soundPacket.getSoundEffects().write(0, soundForThisStep);
-                        soundPacket.getSoundCategories().write(0, EnumWrappers.SoundCategory.PLAYERS);
-                        soundPacket.getIntegers()
-                                .write(0, (int) (sequenceBaseLocation.getX() * 8.0D))
-                                .write(1, (int) (sequenceBaseLocation.getY() * 8.0D))
-                                .write(2, (int) (sequenceBaseLocation.getZ() * 8.0D));
-                        soundPacket.getFloat().write(0, volume).write(1, pitch);
-                        soundPacket.getLongs().write(0, random.nextLong());
+                try {
+                    PacketContainer soundPacket = PacketWriters.soundEffect(soundForThisStep, EnumWrappers.SoundCategory.PLAYERS,
+                            sequenceBaseLocation.getX(), sequenceBaseLocation.getY(), sequenceBaseLocation.getZ(), volume, pitch, random.nextLong());
 
-                        protocolManager.sendServerPacket(player, soundPacket);
-                    } catch (Exception e) {
-                        logger.error("Failed to send Footstep Sequence packet (step {}/{}) to {}", stepNum, numSteps, player.getName(), e);
-                    }
+                    packetDispatcher.send(player, soundPacket);
+                } catch (Exception e) {
+                    logger.error("Failed to send Footstep Sequence packet (step {}/{}) to {}", stepNum, numSteps, player.getName(), e);
                 }
-            }.runTaskLater(plugin, delay);
+            });
         }
     }
 }
\ No newline at end of file
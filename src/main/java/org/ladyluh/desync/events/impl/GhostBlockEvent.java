@@ -1,7 +1,5 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import org.bukkit.Location;
@@ -11,12 +9,14 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.world.BlockSearchService;
+import org.ladyluh.desync.world.MaterialClass;
 import org.slf4j.Logger;
 
 import java.util.EnumMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -82,7 +82,10 @@ public class GhostBlockEvent implements PlayerDesyncEvent {
     ));
 
 
-    private static final Set<Material> INTERACTABLE_TYPES = BLOCK_INTERACTION_SOUNDS_MAP.keySet();
+    private static final int INTERACTABLE = MaterialClass.register(BLOCK_INTERACTION_SOUNDS_MAP::containsKey);
+
+    private static final BlockSearchService.Query SEARCH_QUERY =
+            new BlockSearchService.Query(SEARCH_RADIUS, SEARCH_RADIUS, type -> MaterialClass.is(type, INTERACTABLE), null);
 
 
     @Override
@@ -102,8 +105,7 @@ public class GhostBlockEvent implements PlayerDesyncEvent {
 
     @Override
     public boolean canTrigger(Player player) {
-
-        return hasNearbyInteractableBlock(player);
+        return Desync.getInstance().getBlockSearchService().hasCandidates(player, SEARCH_QUERY);
     }
 
     /**
@@ -115,16 +117,17 @@ public class GhostBlockEvent implements PlayerDesyncEvent {
      */
     @Override
     public void trigger(Player player, Desync plugin) {
+        plugin.getBlockSearchService().pick(player, SEARCH_QUERY, targetBlock -> playInteraction(player, plugin, targetBlock));
+    }
+
+    private void playInteraction(Player player, Desync plugin, Block targetBlock) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         float volume = 0.6f;
         float pitchVariance = 0.1f;
 
-
-        Block targetBlock = findNearbyInteractableBlock(player);
-
         if (targetBlock == null) {
 
             logger.debug("GhostBlockEvent requested for {}, but no suitable block found.", player.getName());
@@ -168,92 +171,12 @@ public class GhostBlockEvent implements PlayerDesyncEvent {
 
 
         try {
-            PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-            soundPacket.getSoundEffects().write(0, soundToPlay);
-            soundPacket.getSoundCategories().write(0, EnumWrappers.SoundCategory.BLOCKS);
-            soundPacket.getIntegers()
-                    .write(0, (int) (soundLocation.getX() * 8.0D))
-                    .write(1, (int) (soundLocation.getY() * 8.0D))
-                    .write(2, (int) (soundLocation.getZ() * 8.0D));
-            soundPacket.getFloat().write(0, volume).write(1, pitch);
-            soundPacket.getLongs().write(0, random.nextLong());
-
-            protocolManager.sendServerPacket(player, soundPacket);
+            PacketContainer soundPacket = PacketWriters.soundEffect(soundToPlay, EnumWrappers.SoundCategory.BLOCKS,
+                    soundLocation.getX(), soundLocation.getY(), soundLocation.getZ(), volume, pitch, random.nextLong());
+
+            packetDispatcher.send(player, soundPacket);
         } catch (Exception e) {
             logger.error("Failed to send GhostBlockInteraction packet to {}", player.getName(), e);
         }
     }
-
-    /**
-     * Helper method to find a nearby interactable block within the search radius.
-     * Logic moved from EventScheduler pre-check.
-     *
-     * @param player The player.
-     * @return A Block that is interactable and nearby, or null if none found.
-     */
-    private boolean hasNearbyInteractableBlock(Player player) {
-        Location startLoc = player.getLocation();
-
-        for (int x = -SEARCH_RADIUS; x <= SEARCH_RADIUS; x++) {
-            for (int y = -SEARCH_RADIUS; y <= SEARCH_RADIUS; y++) {
-                for (int z = -SEARCH_RADIUS; z <= SEARCH_RADIUS; z++) {
-                    if (x == 0 && y == 0 && z == 0) continue;
-
-                    try {
-                        Block block = startLoc.clone().add(x, y, z).getBlock();
-                        if (INTERACTABLE_TYPES.contains(block.getType())) {
-
-
-                            return true;
-                        }
-                    } catch (Exception e) {
-
-                        Desync.getInstance().getPluginLogger().warn("Error checking block at relative location ({},{},{}) near {} for GhostBlockEvent pre-check: {}",
-                                x, y, z, player.getName(), e.getMessage());
-
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Helper method to actually retrieve the Block object.
-     * Called by trigger() after canTrigger() passes.
-     *
-     * @param player The player.
-     * @return The found Block, or null if none found (should match hasNearbyInteractableBlock logic).
-     */
-    private Block findNearbyInteractableBlock(Player player) {
-        Location startLoc = player.getLocation();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-
-        List<Block> candidates = new java.util.ArrayList<>();
-        for (int x = -SEARCH_RADIUS; x <= SEARCH_RADIUS; x++) {
-            for (int y = -SEARCH_RADIUS; y <= SEARCH_RADIUS; y++) {
-                for (int z = -SEARCH_RADIUS; z <= SEARCH_RADIUS; z++) {
-                    if (x == 0 && y == 0 && z == 0) continue;
-
-                    try {
-                        Block block = startLoc.clone().add(x, y, z).getBlock();
-                        if (INTERACTABLE_TYPES.contains(block.getType())) {
-                            candidates.add(block);
-                        }
-                    } catch (Exception e) {
-                        Desync.getInstance().getPluginLogger().warn("Error finding block at relative location ({},{},{}) near {} for GhostBlockEvent trigger: {}",
-                                x, y, z, player.getName(), e.getMessage());
-                    }
-                }
-            }
-        }
-
-        if (candidates.isEmpty()) {
-            return null;
-        }
-
-
-        return candidates.get(random.nextInt(candidates.size()));
-    }
 }
\ No newline at end of file
@@ -7,10 +7,10 @@ import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
@@ -85,6 +85,7 @@ public class InventoryShiftEvent implements PlayerDesyncEvent {
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
         ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
         Inventory playerInventory = player.getInventory();
 
@@ -144,7 +145,7 @@ public class InventoryShiftEvent implements PlayerDesyncEvent {
                 setSlotPacket.getIntegers().write(2, updatedSlot);
                 setSlotPacket.getItemModifier().write(0, itemToSend);
 
-                protocolManager.sendServerPacket(player, setSlotPacket);
+                packetDispatcher.send(player, setSlotPacket);
                 logger.debug("Sent SET_SLOT packet for slot {} with item {} for {}", updatedSlot, (itemToSend != null ? itemToSend.getType() : "AIR"), player.getName());
             }
 
@@ -153,37 +154,34 @@ public class InventoryShiftEvent implements PlayerDesyncEvent {
 
             final List<Integer> finalRelevantSlots = relevantSlots;
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (!player.isOnline()) {
-                        logger.debug("InventoryShift skipping revert for {} - player offline.", player.getName());
-                        return;
-                    }
+            plugin.getActiveEffectRegistry().scheduleRevert(player.getUniqueId(), KEY, 10L, () -> {
+                if (!player.isOnline()) {
+                    logger.debug("InventoryShift skipping revert for {} - player offline.", player.getName());
+                    return;
+                }
 
 
-                    for (int updatedSlot : finalSlotsToUpdate) {
-                        int originalIndex = finalRelevantSlots.indexOf(updatedSlot);
-                        if (originalIndex == -1) continue;
+                for (int updatedSlot : finalSlotsToUpdate) {
+                    int originalIndex = finalRelevantSlots.indexOf(updatedSlot);
+                    if (originalIndex == -1) continue;
 
-                        ItemStack originalItem = finalOriginalItems.get(originalIndex);
+                    ItemStack originalItem = finalOriginalItems.get(originalIndex);
 
-                        try {
-                            PacketContainer setSlotPacket = protocolManager.createPacket(PacketType.Play.Server.SET_SLOT);
-                            setSlotPacket.getIntegers().write(0, 0);
-                            setSlotPacket.getIntegers().write(1, 0);
-                            setSlotPacket.getIntegers().write(2, updatedSlot);
-                            setSlotPacket.getItemModifier().write(0, originalItem);
+                    try {
+                        PacketContainer setSlotPacket = protocolManager.createPacket(PacketType.Play.Server.SET_SLOT);
+                        setSlotPacket.getIntegers().write(0, 0);
+                        setSlotPacket.getIntegers().write(1, 0);
+                        setSlotPacket.getIntegers().write(2, updatedSlot);
+                        setSlotPacket.getItemModifier().write(0, originalItem);
 
-                            protocolManager.sendServerPacket(player, setSlotPacket);
-                            logger.debug("Reverted SET_SLOT packet for slot {} with item {} for {}", updatedSlot, (originalItem != null ? originalItem.getType() : "AIR"), player.getName());
-                        } catch (Exception e) {
-                            logger.error("Failed to send InventoryShift revert SET_SLOT packet for slot {} to {}", updatedSlot, player.getName(), e);
-                        }
+                        packetDispatcher.send(player, setSlotPacket);
+                        logger.debug("Reverted SET_SLOT packet for slot {} with item {} for {}", updatedSlot, (originalItem != null ? originalItem.getType() : "AIR"), player.getName());
+                    } catch (Exception e) {
+                        logger.error("Failed to send InventoryShift revert SET_SLOT packet for slot {} to {}", updatedSlot, player.getName(), e);
                     }
-                    logger.debug("InventoryShift revert complete for {}", player.getName());
                 }
-            }.runTaskLater(plugin, 10L);
+                logger.debug("InventoryShift revert complete for {}", player.getName());
+            }, resync -> resync.resyncInventory());
 
 
         } catch (Exception e) {
@@ -1,7 +1,5 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import org.bukkit.Location;
@@ -11,6 +9,8 @@ import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
 import org.slf4j.Logger;
 
 import java.util.List;
@@ -95,7 +95,7 @@ public class MisplacedSoundEvent implements PlayerDesyncEvent {
     @Override
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         float baseVolume = 0.02f;
@@ -214,20 +214,10 @@ public class MisplacedSoundEvent implements PlayerDesyncEvent {
 
 
         try {
-            PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-
-            soundPacket.getSoundEffects().write(0, soundToPlay);
-            soundPacket.getSoundCategories().write(0, EnumWrappers.SoundCategory.valueOf(category.name()));
-            soundPacket.getIntegers()
-                    .write(0, (int) (soundLocation.getX() * 8.0D))
-                    .write(1, (int) (soundLocation.getY() * 8.0D))
-                    .write(2, (int) (soundLocation.getZ() * 8.0D));
-            soundPacket.getFloat()
-                    .write(0, finalVolume * 16.0F)
-                    .write(1, pitch);
-            soundPacket.getLongs().write(0, random.nextLong());
-
-            protocolManager.sendServerPacket(player, soundPacket);
+            PacketContainer soundPacket = PacketWriters.soundEffect(soundToPlay, EnumWrappers.SoundCategory.valueOf(category.name()),
+                    soundLocation.getX(), soundLocation.getY(), soundLocation.getZ(), finalVolume * 16.0F, pitch, random.nextLong());
+
+            packetDispatcher.send(player, soundPacket);
         } catch (Exception e) {
             logger.error("Failed to send MisplacedSound packet to {}", player.getName(), e);
         }
@@ -11,12 +11,15 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.ClientResync;
+import org.ladyluh.desync.packets.FakeEntityIds;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.scheduling.EffectTask;
 import org.ladyluh.desync.utils.EffectUtils;
 import org.ladyluh.desync.utils.SkinUtils;
 import org.slf4j.Logger;
@@ -24,7 +27,6 @@ import org.slf4j.Logger;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Spawns a temporary fake player entity ("Null") right behind the target player.
@@ -47,41 +49,20 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
     private static final int NULL_SOUND_INTERVAL_TICKS = 8;
 
 
-    private static final AtomicInteger fakeEntityIdCounter = StalkerSpawnEvent.fakeEntityIdCounter;
 
     /**
-     * Static helper to cancel a Null specifically by target player UUID.
-     * Called by PlayerQuitListener or EventService cleanup.
+     * Static helper to despawn a Null specifically by target player UUID.
+     * Quit, world change and shutdown end Nulls through the ActiveEffectRegistry instead.
      */
     public static void cancelNullForPlayer(@NotNull UUID playerUUID, @NotNull Logger logger) {
         logger.debug("Attempting Null cancellation for player {}", playerUUID);
 
-        NullData removedData = activeNulls.remove(playerUUID);
+        NullData data = activeNulls.get(playerUUID);
 
-        if (removedData != null) {
-            logger.debug("Cancelling active Null ID {} for player {}", removedData.entityId(), playerUUID);
-
-            if (removedData.task() != null && !removedData.task().isCancelled()) {
-                removedData.task().cancel();
-                logger.debug("Cancelled Bukkit task for Null ID {}.", removedData.entityId());
-            } else {
-                logger.debug("Null ID {} task was already cancelled or null during cleanup.", removedData.entityId());
-            }
-
-            Player targetPlayer = Bukkit.getPlayer(playerUUID);
-            if (targetPlayer != null && targetPlayer.isOnline()) {
-                try {
-                    logger.debug("Sending despawn packets for Null ID {} to {}", removedData.entityId(), targetPlayer.getName());
-                    ProtocolManager protocolManager = Desync.getInstance().getProtocolManager();
-
-                    protocolManager.sendServerPacket(targetPlayer, removedData.destroyPacket());
-                    protocolManager.sendServerPacket(targetPlayer, removedData.removeInfoPacket());
-                } catch (Exception e) {
-                    logger.error("Failed sending despawn packets for Null ID {} to {}", removedData.entityId(), targetPlayer.getName(), e);
-                }
-            } else {
-                logger.debug("Skipping despawn packet send for Null ID {} - target player {} is offline.", removedData.entityId(), playerUUID);
-            }
+        if (data != null) {
+            logger.debug("Reverting active Null ID {} for player {}", data.entityId(), playerUUID);
+            // Sends the despawn packets and removes the map entry.
+            data.task().revert();
         } else {
             logger.debug("No active Null found for player {} during cancelNullForPlayer.", playerUUID);
         }
@@ -92,7 +73,7 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
      * Removes from the map, cancels task, and sends despawn packets.
      * Uses the prepared packets stored in NullData.
      */
-    private static void cleanupNull(@NotNull UUID targetPlayerUUID, int entityId, @NotNull Logger logger, @NotNull ProtocolManager protocolManager, @NotNull PacketContainer removeInfoPacket, @NotNull PacketContainer destroyPacket, BukkitRunnable taskToCancel) {
+    private static void cleanupNull(@NotNull UUID targetPlayerUUID, int entityId, @NotNull Logger logger, @NotNull PacketDispatcher packetDispatcher, @NotNull PacketContainer removeInfoPacket, @NotNull PacketContainer destroyPacket, EffectTask taskToCancel) {
 
         activeNulls.remove(targetPlayerUUID);
 
@@ -100,7 +81,7 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
 
         if (taskToCancel != null && !taskToCancel.isCancelled()) {
             taskToCancel.cancel();
-            logger.debug("Cancelled Bukkit task for Null ID {}.", entityId);
+            logger.debug("Cancelled effect task for Null ID {}.", entityId);
         } else {
             logger.debug("Null ID {} task was already cancelled or null.", entityId);
         }
@@ -109,8 +90,8 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
         if (targetPlayer != null && targetPlayer.isOnline()) {
             try {
                 logger.debug("Sending despawn packets for Null ID {} to {}", entityId, targetPlayer.getName());
-                protocolManager.sendServerPacket(targetPlayer, destroyPacket);
-                protocolManager.sendServerPacket(targetPlayer, removeInfoPacket);
+                packetDispatcher.send(targetPlayer, destroyPacket);
+                packetDispatcher.send(targetPlayer, removeInfoPacket);
             } catch (Exception e) {
                 logger.error("Failed sending despawn packets for Null ID {} to {}", entityId, targetPlayer.getName(), e);
             }
@@ -247,6 +228,7 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
     public void trigger(@NotNull Player player, @NotNull Desync plugin) {
         Logger logger = plugin.getPluginLogger();
         ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
         UUID targetPlayerUUID = player.getUniqueId();
 
@@ -275,7 +257,15 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
         spawnLoc.setPitch(pitch);
 
 
-        int entityId = fakeEntityIdCounter.incrementAndGet();
+        FakeEntityIds fakeEntityIds = plugin.getFakeEntityIds();
+        int entityId = fakeEntityIds.allocate();
+        if (entityId == FakeEntityIds.NO_ID) {
+            logger.warn("No fake entity id available for Null of {}. Aborting NullSpawn.", player.getName());
+            return;
+        }
+        double spawnX = spawnLoc.getX();
+        double spawnY = spawnLoc.getY();
+        double spawnZ = spawnLoc.getZ();
 
 
         PlayerInfoData playerInfoData = new PlayerInfoData(nullGameProfile, 1, NativeGameMode.SURVIVAL, null);
@@ -331,64 +321,58 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
             logger.debug("Spawning Null (ID {}) for {} ({}) at {}", entityId, player.getName(), nullGameProfile.getName(), spawnLoc.toVector());
 
 
-            protocolManager.sendServerPacket(player, playerInfoAddPacket);
+            packetDispatcher.send(player, playerInfoAddPacket);
 
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    Player currentPlayer = Bukkit.getPlayer(targetPlayerUUID);
-                    if (currentPlayer == null || !currentPlayer.isOnline()) {
-                        activeNulls.remove(targetPlayerUUID);
-                        logger.debug("Player {} logged off before Null ID {} spawn packets sent. Aborting spawn.", targetPlayerUUID, entityId);
-                        return;
-                    }
+            plugin.getActiveEffectRegistry().schedule(targetPlayerUUID, KEY, 1L, () -> {
+                Player currentPlayer = Bukkit.getPlayer(targetPlayerUUID);
+                if (currentPlayer == null || !currentPlayer.isOnline()) {
+                    activeNulls.remove(targetPlayerUUID);
+                    logger.debug("Player {} logged off before Null ID {} spawn packets sent. Aborting spawn.", targetPlayerUUID, entityId);
+                    return;
+                }
 
-                    try {
+                try {
 
-                        protocolManager.sendServerPacket(currentPlayer, spawnPacket);
-                        protocolManager.sendServerPacket(currentPlayer, metadataPacket);
-                        protocolManager.sendServerPacket(currentPlayer, equipmentPacket);
-
-
-                        new BukkitRunnable() {
-                            @Override
-                            public void run() {
-                                Player p = Bukkit.getPlayer(targetPlayerUUID);
-                                if (p == null || !p.isOnline()) return;
-                                try {
-                                    protocolManager.sendServerPacket(p, finalPlayerInfoRemovePacket);
-                                    logger.debug("Sent PlayerInfoRemove packet for Null ID {} to {}", entityId, p.getName());
-                                } catch (Exception e) {
-                                    logger.error("Failed to send PlayerInfoRemove packet for ID {} to {}", entityId, p.getName(), e);
-                                }
-                            }
-                        }.runTaskLater(plugin, 20L);
+                    packetDispatcher.send(currentPlayer, spawnPacket);
+                    packetDispatcher.send(currentPlayer, metadataPacket);
+                    packetDispatcher.send(currentPlayer, equipmentPacket);
 
-                    } catch (Exception e) {
-                        logger.error("Failed to send initial Null spawn packets for ID {} to {}", entityId, targetPlayerUUID, e);
 
-                        cleanupNull(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, null);
-                    }
+                    plugin.getActiveEffectRegistry().schedule(targetPlayerUUID, KEY, 20L, () -> {
+                        Player p = Bukkit.getPlayer(targetPlayerUUID);
+                        if (p == null || !p.isOnline()) return;
+                        try {
+                            packetDispatcher.send(p, finalPlayerInfoRemovePacket);
+                            logger.debug("Sent PlayerInfoRemove packet for Null ID {} to {}", entityId, p.getName());
+                        } catch (Exception e) {
+                            logger.error("Failed to send PlayerInfoRemove packet for ID {} to {}", entityId, p.getName(), e);
+                        }
+                    });
+
+                } catch (Exception e) {
+                    logger.error("Failed to send initial Null spawn packets for ID {} to {}", entityId, targetPlayerUUID, e);
+
+                    cleanupNull(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, null);
                 }
-            }.runTaskLater(plugin, 1L);
+            });
 
 
-            BukkitTask nullTask = new BukkitRunnable() {
+            EffectTask nullTask = new EffectTask(KEY, targetPlayerUUID) {
                 final double VIEW_ANGLE_THRESHOLD_COS = Math.cos(Math.toRadians(NULL_VIEW_ANGLE_THRESHOLD));
                 long ticksLived = 0;
                 boolean seenByPlayer = false;
                 long seenTimestamp = -1;
 
                 @Override
-                public void run() {
+                public void tick() {
                     Player originalTargetPlayer = Bukkit.getPlayer(targetPlayerUUID);
 
 
                     if (this.isCancelled() || originalTargetPlayer == null || !originalTargetPlayer.isOnline() || ticksLived >= NULL_MAX_LIFESPAN_TICKS) {
                         String reason = (originalTargetPlayer == null || !originalTargetPlayer.isOnline()) ? "Target Offline" : "Max Lifespan";
                         logger.debug("Null (ID {}) despawning: {}", entityId, reason);
-                        cleanupNull(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                        cleanupNull(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
                         return;
                     }
 
@@ -422,7 +406,7 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
                         long timeSinceSeen = System.currentTimeMillis() - seenTimestamp;
                         if (timeSinceSeen >= (NULL_VIEW_DESPAWN_TICKS * 50L)) {
                             logger.debug("Null (ID {}) despawning after being seen.", entityId);
-                            cleanupNull(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                            cleanupNull(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
                             return;
                         }
                     }
@@ -437,19 +421,10 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
                             float vol = random.nextFloat() * 0.1f + 0.15f;
                             float pit = random.nextFloat() * 0.2f + 0.9f;
 
-                            PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-                            soundPacket.getSoundEffects().write(0, stepSound);
-                            soundPacket.getSoundCategories().write(0, com.comphenix.protocol.wrappers.EnumWrappers.SoundCategory.PLAYERS);
-
-
-                            soundPacket.getIntegers()
-                                    .write(0, (int) (spawnLoc.getX() * 8.0D))
-                                    .write(1, (int) (spawnLoc.getY() * 8.0D))
-                                    .write(2, (int) (spawnLoc.getZ() * 8.0D));
-                            soundPacket.getFloat().write(0, vol * 16.0F).write(1, pit);
-                            soundPacket.getLongs().write(0, random.nextLong());
+                            long seed = random.nextLong();
 
-                            protocolManager.sendServerPacket(originalTargetPlayer, soundPacket);
+                            packetDispatcher.send(originalTargetPlayer, () -> PacketWriters.soundEffect(stepSound, EnumWrappers.SoundCategory.PLAYERS,
+                                    spawnX, spawnY, spawnZ, vol * 16.0F, pit, seed));
                             logger.debug("Sent Null footstep sound packet for ID {} to {}", entityId, originalTargetPlayer.getName());
 
                         } catch (Exception e) {
@@ -469,19 +444,11 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
                         pitch = Math.max(-89.9f, Math.min(89.9f, pitch));
 
 
-                        PacketContainer headPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_HEAD_ROTATION);
-                        headPacket.getIntegers().write(0, entityId);
-                        headPacket.getBytes().write(0, (byte) (bodyYaw * 256.0F / 360.0F));
-                        protocolManager.sendServerPacket(originalTargetPlayer, headPacket);
+                        byte yawAngle = (byte) (bodyYaw * 256.0F / 360.0F);
+                        byte pitchAngle = (byte) (pitch * 256.0F / 360.0F);
 
-
-                        PacketContainer bodyLookPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_LOOK);
-                        bodyLookPacket.getIntegers().write(0, entityId);
-                        bodyLookPacket.getBytes()
-                                .write(0, (byte) (bodyYaw * 256.0F / 360.0F))
-                                .write(1, (byte) (pitch * 256.0F / 360.0F));
-                        bodyLookPacket.getBooleans().write(0, true);
-                        protocolManager.sendServerPacket(originalTargetPlayer, bodyLookPacket);
+                        packetDispatcher.send(originalTargetPlayer, () -> PacketWriters.headRotation(entityId, yawAngle));
+                        packetDispatcher.send(originalTargetPlayer, () -> PacketWriters.entityLook(entityId, yawAngle, pitchAngle, true));
 
                     } catch (Exception e) {
                         logger.error("Failed to send Null rotation packets for ID {} to {}", entityId, originalTargetPlayer.getName(), e);
@@ -490,7 +457,28 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
 
                     ticksLived += 1L;
                 }
-            }.runTaskTimer(plugin, 5L, 1L);
+
+                @Override
+                protected void onCancel() {
+                    activeNulls.computeIfPresent(targetPlayerUUID, (uuid, data) -> data.task() == this ? null : data);
+                    fakeEntityIds.release(entityId);
+                }
+
+                @Override
+                public void revert() {
+                    if (isCancelled()) return;
+                    cleanupNull(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                }
+
+                @Override
+                public void revert(@NotNull ClientResync resync) {
+                    if (isCancelled()) return;
+                    cancel();
+                    resync.destroyEntity(entityId);
+                    resync.removePlayerInfo(nullUUID);
+                    logger.debug("Queued despawn of Null ID {} for {}.", entityId, targetPlayerUUID);
+                }
+            }.start(plugin, 5L, 1L, NULL_MAX_LIFESPAN_TICKS + 1);
 
 
             activeNulls.put(targetPlayerUUID, new NullData(entityId, nullUUID, nullTask, finalPlayerInfoRemovePacket, finalDestroyPacket));
@@ -528,7 +516,7 @@ public class NullSpawnEvent implements PlayerDesyncEvent {
     }
 
 
-    public record NullData(int entityId, UUID nullUuid, BukkitTask task, PacketContainer removeInfoPacket,
+    public record NullData(int entityId, UUID nullUuid, EffectTask task, PacketContainer removeInfoPacket,
                            PacketContainer destroyPacket) {
     }
 }
\ No newline at end of file
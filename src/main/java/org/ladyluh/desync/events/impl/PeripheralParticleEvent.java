@@ -1,15 +1,14 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketContainer;
-import com.comphenix.protocol.wrappers.WrappedParticle;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.entity.Player;
 import org.bukkit.util.Vector;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
 import org.slf4j.Logger;
 
 import java.util.concurrent.ThreadLocalRandom;
@@ -56,7 +55,7 @@ public class PeripheralParticleEvent implements PlayerDesyncEvent {
     @Override
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
 
@@ -109,27 +108,11 @@ public class PeripheralParticleEvent implements PlayerDesyncEvent {
 
 
         try {
-            PacketContainer particlePacket = protocolManager.createPacket(PacketType.Play.Server.WORLD_PARTICLES);
+            PacketContainer particlePacket = PacketWriters.particles(particleType, null, true,
+                    particleLocation.getX(), particleLocation.getY(), particleLocation.getZ(),
+                    spreadMultiplier, spreadMultiplier, spreadMultiplier, particleData, particleCount);
 
-
-            WrappedParticle<?> wrappedParticle = WrappedParticle.create(particleType, null);
-
-            particlePacket.getNewParticles().write(0, wrappedParticle);
-
-            particlePacket.getBooleans().write(0, true);
-            particlePacket.getDoubles()
-                    .write(0, particleLocation.getX())
-                    .write(1, particleLocation.getY())
-                    .write(2, particleLocation.getZ());
-
-            particlePacket.getFloat()
-                    .write(0, spreadMultiplier)
-                    .write(1, spreadMultiplier)
-                    .write(2, spreadMultiplier)
-                    .write(3, particleData);
-            particlePacket.getIntegers().write(0, particleCount);
-
-            protocolManager.sendServerPacket(player, particlePacket);
+            packetDispatcher.send(player, particlePacket);
 
         } catch (Exception e) {
             logger.error("Failed to send PeripheralParticle packet to {}", player.getName(), e);
@@ -1,19 +1,19 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
-import com.comphenix.protocol.events.PacketContainer;
-import com.comphenix.protocol.wrappers.WrappedParticle;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.scheduling.EffectTask;
+import org.ladyluh.desync.scheduling.ExecutionBudget;
+import org.ladyluh.desync.world.SpotIndex;
 import org.slf4j.Logger;
 
 import java.util.List;
@@ -29,6 +29,7 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
     private static final long DEFAULT_COOLDOWN_MS = 50 * 1000L;
 
     private static final int SEARCH_RADIUS = 20;
+    private static final int INDEXED_SPOT_SAMPLES = 16;
     private static final int PARTICLE_COUNT_PER_TICK = 1;
     private static final float PARTICLE_SPREAD = 0.1f;
     private static final long EFFECT_DURATION_TICKS = 40;
@@ -71,7 +72,7 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
 
     /**
      * Triggers the persistent particle event.
-     * Finds a suitable location and schedules a runnable to repeatedly send particle packets.
+     * Finds a suitable location and registers an effect that repeatedly sends particle packets.
      *
      * @param player The player to show the particles to.
      * @param plugin The main plugin instance.
@@ -79,7 +80,7 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
     @Override
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
         ThreadLocalRandom random = ThreadLocalRandom.current();
         if (ELIGIBLE_PARTICLE_TYPES.isEmpty()) {
             logger.warn("PersistentParticle trigger for {}: ELIGIBLE_PARTICLE_TYPES list is empty!", player.getName());
@@ -106,11 +107,11 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
         final ThreadLocalRandom finalRandom = random;
 
 
-        new BukkitRunnable() {
+        new EffectTask(KEY, player.getUniqueId()) {
             private long ticksSent = 0;
 
             @Override
-            public void run() {
+            public void tick() {
                 Player currentPlayer = Bukkit.getPlayer(player.getUniqueId());
 
                 if (this.isCancelled() || currentPlayer == null || !currentPlayer.isOnline() ||
@@ -134,27 +135,13 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
                     );
 
 
-                    PacketContainer particlePacket = protocolManager.createPacket(PacketType.Play.Server.WORLD_PARTICLES);
+                    double packetX = packetLocation.getX();
+                    double packetY = packetLocation.getY();
+                    double packetZ = packetLocation.getZ();
 
-
-                    WrappedParticle<?> wrappedParticle = WrappedParticle.create(finalParticleType, null);
-
-
-                    particlePacket.getNewParticles().write(0, wrappedParticle);
-                    particlePacket.getBooleans().write(0, true);
-                    particlePacket.getDoubles()
-                            .write(0, packetLocation.getX())
-                            .write(1, packetLocation.getY())
-                            .write(2, packetLocation.getZ());
-
-                    particlePacket.getFloat()
-                            .write(0, PARTICLE_SPREAD)
-                            .write(1, PARTICLE_SPREAD)
-                            .write(2, PARTICLE_SPREAD)
-                            .write(3, 0.0f);
-                    particlePacket.getIntegers().write(0, PARTICLE_COUNT_PER_TICK);
-
-                    protocolManager.sendServerPacket(currentPlayer, particlePacket);
+                    packetDispatcher.send(currentPlayer, () -> PacketWriters.particles(finalParticleType, null, true,
+                            packetX, packetY, packetZ,
+                            PARTICLE_SPREAD, PARTICLE_SPREAD, PARTICLE_SPREAD, 0.0f, PARTICLE_COUNT_PER_TICK));
 
 
                 } catch (Exception e) {
@@ -168,7 +155,7 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
 
                 ticksSent += SEND_INTERVAL_TICKS;
             }
-        }.runTaskTimer(plugin, 0L, SEND_INTERVAL_TICKS);
+        }.start(plugin, 0L, SEND_INTERVAL_TICKS);
 
 
     }
@@ -186,7 +173,25 @@ public class PersistentParticleEvent implements PlayerDesyncEvent {
         int attempts = 0;
         int maxAttempts = 20;
 
+        long[] spots = new long[INDEXED_SPOT_SAMPLES];
+        int spotCount = plugin.getSpotIndex().sample(playerLoc, 0, SEARCH_RADIUS, 5, spots);
+        for (int i = 0; i < spotCount; i++) {
+            Block block = world.getBlockAt(SpotIndex.spotX(spots[i]), SpotIndex.spotY(spots[i]), SpotIndex.spotZ(spots[i]));
+            if (!block.isPassable() || block.isLiquid()) continue;
+
+            int lightLevel = block.getLightLevel();
+            if (lightLevel < 8) {
+                Location spotLoc = block.getLocation().add(0.5, 0, 0.5);
+                logger.debug("Found indexed particle effect location after {} of {} spots: {} (Light: {})", i + 1, spotCount, spotLoc.toVector(), lightLevel);
+                return spotLoc;
+            }
+        }
+
         while (attempts < maxAttempts) {
+            if (ExecutionBudget.current().isExhausted()) {
+                logger.debug("PersistentParticle location search for {} ran out of budget.", player.getName());
+                return null;
+            }
             attempts++;
 
 
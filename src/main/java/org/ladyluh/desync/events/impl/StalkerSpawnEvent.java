@@ -11,20 +11,26 @@ import org.bukkit.block.Block;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.managers.ConfigurationManager;
+import org.ladyluh.desync.packets.ClientResync;
+import org.ladyluh.desync.packets.FakeEntityIds;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.scheduling.EffectTask;
+import org.ladyluh.desync.scheduling.ExecutionBudget;
 import org.ladyluh.desync.utils.EffectUtils;
 import org.ladyluh.desync.utils.SkinUtils;
+import org.ladyluh.desync.world.MaterialClass;
+import org.ladyluh.desync.world.SpotIndex;
 import org.slf4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -51,12 +57,12 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
     );
     private static final double STALKER_MIN_DISTANCE = 60.0;
     private static final double STALKER_MAX_DISTANCE = 100.0;
+    private static final int INDEXED_SPOT_SAMPLES = 16;
     private static final double STALKER_VIEW_ANGLE_THRESHOLD = 65.0;
     private static final long STALKER_VIEW_DESPAWN_TICKS = 80;
     private static final double STALKER_INTERACTION_RADIUS = STALKER_MAX_DISTANCE + 35.0;
     private static final long STALKER_MAX_LIFESPAN_TICKS = 20 * 60;
     private static final double STALKER_ISOLATION_RADIUS_OTHERS = 128.0;
-    static final AtomicInteger fakeEntityIdCounter = new AtomicInteger(Integer.MIN_VALUE / 2);
 
     /**
      * Static helper to check if a specific mob is currently involved in an active stalker task.
@@ -102,10 +108,10 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
     /**
      * Helper method to clean up a specific stalker instance.
      * Removes from the map, cancels task, and sends despawn packets.
-     * This is called internally by the stalker's BukkitRunnable.
+     * This is called internally by the stalker's effect task.
      * Uses the prepared packets stored in StalkerData.
      */
-    private static void cleanupStalker(@NotNull UUID targetPlayerUUID, int entityId, @NotNull Logger logger, @NotNull ProtocolManager protocolManager, @NotNull PacketContainer removeInfoPacket, @NotNull PacketContainer destroyPacket, BukkitRunnable taskToCancel) {
+    private static void cleanupStalker(@NotNull UUID targetPlayerUUID, int entityId, @NotNull Logger logger, @NotNull PacketDispatcher packetDispatcher, @NotNull PacketContainer removeInfoPacket, @NotNull PacketContainer destroyPacket, EffectTask taskToCancel) {
 
 
         activeStalkers.remove(targetPlayerUUID);
@@ -116,7 +122,7 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
 
         if (taskToCancel != null && !taskToCancel.isCancelled()) {
             taskToCancel.cancel();
-            logger.debug("Cancelled Bukkit task for stalker ID {}.", entityId);
+            logger.debug("Cancelled effect task for stalker ID {}.", entityId);
         } else {
 
             logger.debug("Stalker ID {} task was already cancelled or null.", entityId);
@@ -128,8 +134,8 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
             try {
                 logger.debug("Sending despawn packets for stalker ID {} to {}", entityId, targetPlayer.getName());
 
-                protocolManager.sendServerPacket(targetPlayer, destroyPacket);
-                protocolManager.sendServerPacket(targetPlayer, removeInfoPacket);
+                packetDispatcher.send(targetPlayer, destroyPacket);
+                packetDispatcher.send(targetPlayer, removeInfoPacket);
             } catch (Exception e) {
                 logger.error("Failed sending despawn packets for stalker ID {} to {}", entityId, targetPlayer.getName(), e);
             }
@@ -139,40 +145,18 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
     }
 
     /**
-     * Static helper to cancel a stalker specifically by target player UUID.
-     * Called by PlayerQuitListener or EventService cleanup.
-     * Retrieves stored packets from the StalkerData record.
+     * Static helper to despawn a stalker specifically by target player UUID.
+     * Quit, world change and shutdown end stalkers through the ActiveEffectRegistry instead.
      */
     public static void cancelStalkerForPlayer(@NotNull UUID playerUUID, @NotNull Logger logger) {
         logger.debug("Attempting stalker cancellation for player {}", playerUUID);
 
-        StalkerData removedData = activeStalkers.remove(playerUUID);
+        StalkerData data = activeStalkers.get(playerUUID);
 
-        if (removedData != null) {
-            logger.debug("Cancelling active stalker ID {} for player {}", removedData.entityId(), playerUUID);
-
-            if (removedData.task() != null && !removedData.task().isCancelled()) {
-                removedData.task().cancel();
-                logger.debug("Cancelled Bukkit task for stalker ID {}.", removedData.entityId());
-            } else {
-                logger.debug("Stalker ID {} task was already cancelled or null during PlayerQuit cleanup.", removedData.entityId());
-            }
-
-
-            Player targetPlayer = Bukkit.getPlayer(playerUUID);
-            if (targetPlayer != null && targetPlayer.isOnline()) {
-                try {
-                    logger.debug("Sending despawn packets for stalker ID {} to {}", removedData.entityId(), targetPlayer.getName());
-                    ProtocolManager protocolManager = Desync.getInstance().getProtocolManager();
-
-                    protocolManager.sendServerPacket(targetPlayer, removedData.destroyPacket());
-                    protocolManager.sendServerPacket(targetPlayer, removedData.removeInfoPacket());
-                } catch (Exception e) {
-                    logger.error("Failed sending despawn packets for stalker ID {} to {}", removedData.entityId(), targetPlayer.getName(), e);
-                }
-            } else {
-                logger.debug("Skipping despawn packet send for stalker ID {} - target player {} is offline.", removedData.entityId(), playerUUID);
-            }
+        if (data != null) {
+            logger.debug("Reverting active stalker ID {} for player {}", data.entityId(), playerUUID);
+            // Sends the despawn packets and removes the map entry.
+            data.task().revert();
         } else {
             logger.debug("No active stalker found for player {} during cancelStalkerForPlayer.", playerUUID);
         }
@@ -252,8 +236,6 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
     @Override
     public void trigger(@NotNull Player player, @NotNull Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
         UUID targetPlayerUUID = player.getUniqueId();
 
 
@@ -263,10 +245,28 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
         }
 
 
-        WrappedGameProfile stalkerGameProfile = SkinUtils.getSkinProfile(player, logger, "Null");
+        List<Location> indexedSpots = findIndexedSpawnCandidates(player, plugin);
+        if (!indexedSpots.isEmpty()) {
+            spawnAtFirstVisible(player, indexedSpots, plugin);
+            return;
+        }
 
 
-        UUID stalkerUUID = stalkerGameProfile.getUUID();
+        ConfigurationManager config = plugin.getConfigurationManager();
+        if (config.isAsyncChunkLoading() && plugin.getSpotIndex().prepareRing(player.getLocation(), STALKER_MIN_DISTANCE, STALKER_MAX_DISTANCE,
+                config.getMaxChunkLoadsPerSearch(), config.getChunkLoadTimeoutTicks(), () -> {
+                    if (!player.isOnline() || activeStalkers.containsKey(targetPlayerUUID)) return;
+
+                    List<Location> loadedSpots = findIndexedSpawnCandidates(player, plugin);
+                    if (loadedSpots.isEmpty()) {
+                        logger.debug("No stalker spawn spot for {} in the chunks loaded for it.", player.getName());
+                        return;
+                    }
+                    spawnAtFirstVisible(player, loadedSpots, plugin);
+                })) {
+            logger.debug("Loading chunks around {} for a stalker spawn spot.", player.getName());
+            return;
+        }
 
 
         Location spawnLoc = findSpawnLocation(player, plugin);
@@ -274,6 +274,44 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
             logger.warn("Could not find suitable stalker spawn location for {} after multiple attempts. Aborting StalkerSpawn.", player.getName());
             return;
         }
+        spawnStalker(player, spawnLoc, plugin);
+    }
+
+    /**
+     * Checks the line of sight of all candidates at once on the block search workers and spawns at the first one
+     * that can see the player.
+     */
+    private void spawnAtFirstVisible(@NotNull Player player, @NotNull List<Location> spots, @NotNull Desync plugin) {
+        Logger logger = plugin.getPluginLogger();
+        List<Location> stalkerEyes = new ArrayList<>(spots.size());
+        for (Location spot : spots) {
+            stalkerEyes.add(spot.clone().add(0, 1.6, 0));
+        }
+        plugin.getBlockSearchService().findFirstVisible(player.getEyeLocation(), stalkerEyes, index -> {
+            if (index < 0) {
+                logger.debug("None of {} indexed stalker spots can see {}.", spots.size(), player.getName());
+                return;
+            }
+            Location spawnLoc = spots.get(index);
+            if (!player.isOnline() || !player.getWorld().equals(spawnLoc.getWorld()) || activeStalkers.containsKey(player.getUniqueId())) {
+                return;
+            }
+            spawnStalker(player, spawnLoc, plugin);
+        });
+    }
+
+    private void spawnStalker(@NotNull Player player, @NotNull Location spawnLoc, @NotNull Desync plugin) {
+        Logger logger = plugin.getPluginLogger();
+        ProtocolManager protocolManager = plugin.getProtocolManager();
+        PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID targetPlayerUUID = player.getUniqueId();
+
+
+        WrappedGameProfile stalkerGameProfile = SkinUtils.getSkinProfile(player, logger, "Null");
+
+
+        UUID stalkerUUID = stalkerGameProfile.getUUID();
 
 
         Vector lookDir = player.getEyeLocation().toVector().subtract(spawnLoc.clone().add(0, 1.6, 0).toVector()).normalize();
@@ -283,7 +321,15 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
         spawnLoc.setPitch(pitch);
 
 
-        int entityId = fakeEntityIdCounter.incrementAndGet();
+        FakeEntityIds fakeEntityIds = plugin.getFakeEntityIds();
+        int entityId = fakeEntityIds.allocate();
+        if (entityId == FakeEntityIds.NO_ID) {
+            logger.warn("No fake entity id available for Stalker of {}. Aborting StalkerSpawn.", player.getName());
+            return;
+        }
+        double spawnX = spawnLoc.getX();
+        double spawnY = spawnLoc.getY();
+        double spawnZ = spawnLoc.getZ();
 
 
         PlayerInfoData playerInfoData = new PlayerInfoData(stalkerGameProfile, 1, NativeGameMode.SURVIVAL, null);
@@ -344,59 +390,53 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
             logger.debug("Spawning Stalker (ID {}) for {} ({}) at {}", entityId, player.getName(), stalkerGameProfile.getName(), spawnLoc.toVector());
 
 
-            protocolManager.sendServerPacket(player, playerInfoAddPacket);
+            packetDispatcher.send(player, playerInfoAddPacket);
 
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (!player.isOnline()) {
+            plugin.getActiveEffectRegistry().schedule(player.getUniqueId(), KEY, 2L, () -> {
+                if (!player.isOnline()) {
 
 
-                        activeStalkers.remove(targetPlayerUUID);
-                        logger.debug("Player {} logged off before stalker ID {} spawn packets sent. Aborting spawn.", player.getName(), entityId);
-                        return;
-                    }
+                    activeStalkers.remove(targetPlayerUUID);
+                    logger.debug("Player {} logged off before stalker ID {} spawn packets sent. Aborting spawn.", player.getName(), entityId);
+                    return;
+                }
 
-                    try {
+                try {
 
-                        protocolManager.sendServerPacket(player, spawnPacket);
+                    packetDispatcher.send(player, spawnPacket);
 
-                        protocolManager.sendServerPacket(player, metadataPacket);
+                    packetDispatcher.send(player, metadataPacket);
 
-                        protocolManager.sendServerPacket(player, equipmentPacket);
+                    packetDispatcher.send(player, equipmentPacket);
 
 
-                        new BukkitRunnable() {
-                            @Override
-                            public void run() {
-                                if (!player.isOnline()) return;
-                                try {
-                                    protocolManager.sendServerPacket(player, finalPlayerInfoRemovePacket);
-                                    logger.debug("Sent PlayerInfoRemove packet for stalker ID {} to {}", entityId, player.getName());
-                                } catch (Exception e) {
-                                    logger.error("Failed to send PlayerInfoRemove packet for ID {} to {}", entityId, player.getName(), e);
-                                }
-                            }
-                        }.runTaskLater(plugin, 20L);
-                    } catch (Exception e) {
-                        logger.error("Failed to send initial Stalker spawn packets for ID {} to {}", entityId, player.getName(), e);
+                    plugin.getActiveEffectRegistry().schedule(player.getUniqueId(), KEY, 20L, () -> {
+                        if (!player.isOnline()) return;
+                        try {
+                            packetDispatcher.send(player, finalPlayerInfoRemovePacket);
+                            logger.debug("Sent PlayerInfoRemove packet for stalker ID {} to {}", entityId, player.getName());
+                        } catch (Exception e) {
+                            logger.error("Failed to send PlayerInfoRemove packet for ID {} to {}", entityId, player.getName(), e);
+                        }
+                    });
+                } catch (Exception e) {
+                    logger.error("Failed to send initial Stalker spawn packets for ID {} to {}", entityId, player.getName(), e);
 
 
-                        cleanupStalker(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, null);
-                    }
+                    cleanupStalker(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, null);
                 }
-            }.runTaskLater(plugin, 2L);
+            });
 
 
-            BukkitTask viewCheckTask = new BukkitRunnable() {
+            EffectTask viewCheckTask = new EffectTask(KEY, targetPlayerUUID) {
                 final double MIN_PROXIMITY_SQ = 20.0 * 20.0;
                 long ticksLived = 0;
                 boolean seenByAny = false;
                 long seenTimestamp = -1;
 
                 @Override
-                public void run() {
+                public void tick() {
                     Player originalTargetPlayer = Bukkit.getPlayer(targetPlayerUUID);
 
 
@@ -404,7 +444,7 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
                         String reason = (originalTargetPlayer == null || !originalTargetPlayer.isOnline()) ? "Target Offline" : "Max Lifespan";
                         logger.debug("Stalker (ID {}) despawning: {}", entityId, reason);
 
-                        cleanupStalker(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                        cleanupStalker(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
                         return;
                     }
 
@@ -416,7 +456,7 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
                             PacketContainer packetContainer = protocolManager.createPacket(PacketType.Play.Server.ANIMATION);
                             packetContainer.getIntegers().write(0, entityId);
                             packetContainer.getIntegers().write(1, 0);
-                            protocolManager.sendServerPacket(originalTargetPlayer, packetContainer);
+                            packetDispatcher.send(originalTargetPlayer, packetContainer);
 
                         } catch (Exception e) {
                             logger.error("Failed to send Stalker arm swing packet for ID {} to {}", entityId, originalTargetPlayer.getName(), e);
@@ -431,18 +471,10 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
                             float vol = random.nextFloat() * 0.2f + 0.1f;
                             float pit = random.nextFloat() * 0.1f + 0.95f;
 
-                            PacketContainer soundPacket = protocolManager.createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
-                            soundPacket.getSoundEffects().write(0, subtleSound);
-                            soundPacket.getSoundCategories().write(0, com.comphenix.protocol.wrappers.EnumWrappers.SoundCategory.PLAYERS);
+                            long seed = random.nextLong();
 
-                            soundPacket.getIntegers()
-                                    .write(0, (int) (spawnLoc.getX() * 8.0D))
-                                    .write(1, (int) (spawnLoc.getY() * 8.0D))
-                                    .write(2, (int) (spawnLoc.getZ() * 8.0D));
-                            soundPacket.getFloat().write(0, vol * 16.0F).write(1, pit);
-                            soundPacket.getLongs().write(0, random.nextLong());
-
-                            protocolManager.sendServerPacket(originalTargetPlayer, soundPacket);
+                            packetDispatcher.send(originalTargetPlayer, () -> PacketWriters.soundEffect(subtleSound, EnumWrappers.SoundCategory.PLAYERS,
+                                    spawnX, spawnY, spawnZ, vol * 16.0F, pit, seed));
 
 
                         } catch (Exception e) {
@@ -461,19 +493,11 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
                         float pitch = (float) Math.toDegrees(-Math.atan2(lookDir.getY(), Math.sqrt(lookDir.getX() * lookDir.getX() + lookDir.getZ() * lookDir.getZ())));
 
 
-                        PacketContainer headPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_HEAD_ROTATION);
-                        headPacket.getIntegers().write(0, entityId);
-                        headPacket.getBytes().write(0, (byte) (bodyYaw * 256.0F / 360.0F));
-                        protocolManager.sendServerPacket(originalTargetPlayer, headPacket);
-
+                        byte yawAngle = (byte) (bodyYaw * 256.0F / 360.0F);
+                        byte pitchAngle = (byte) (pitch * 256.0F / 360.0F);
 
-                        PacketContainer bodyLookPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_LOOK);
-                        bodyLookPacket.getIntegers().write(0, entityId);
-                        bodyLookPacket.getBytes()
-                                .write(0, (byte) (bodyYaw * 256.0F / 360.0F))
-                                .write(1, (byte) (pitch * 256.0F / 360.0F));
-                        bodyLookPacket.getBooleans().write(0, true);
-                        protocolManager.sendServerPacket(originalTargetPlayer, bodyLookPacket);
+                        packetDispatcher.send(originalTargetPlayer, () -> PacketWriters.headRotation(entityId, yawAngle));
+                        packetDispatcher.send(originalTargetPlayer, () -> PacketWriters.entityLook(entityId, yawAngle, pitchAngle, true));
 
                     } catch (Exception e) {
                         logger.error("Failed to send Stalker rotation packets for ID {} to {}", entityId, originalTargetPlayer.getName(), e);
@@ -520,7 +544,7 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
 
                     if (proximityTrigger) {
 
-                        cleanupStalker(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                        cleanupStalker(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
                         return;
                     }
 
@@ -530,14 +554,35 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
                         if (timeSinceSeen >= (STALKER_VIEW_DESPAWN_TICKS * 50L)) {
                             logger.debug("Stalker (ID {}) despawning after being seen.", entityId);
 
-                            cleanupStalker(targetPlayerUUID, entityId, logger, protocolManager, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                            cleanupStalker(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
                             return;
                         }
                     }
 
                     ticksLived += 1L;
                 }
-            }.runTaskTimer(plugin, 10L, 1L);
+
+                @Override
+                protected void onCancel() {
+                    activeStalkers.computeIfPresent(targetPlayerUUID, (uuid, data) -> data.task() == this ? null : data);
+                    fakeEntityIds.release(entityId);
+                }
+
+                @Override
+                public void revert() {
+                    if (isCancelled()) return;
+                    cleanupStalker(targetPlayerUUID, entityId, logger, packetDispatcher, finalPlayerInfoRemovePacket, finalDestroyPacket, this);
+                }
+
+                @Override
+                public void revert(@NotNull ClientResync resync) {
+                    if (isCancelled()) return;
+                    cancel();
+                    resync.destroyEntity(entityId);
+                    resync.removePlayerInfo(stalkerUUID);
+                    logger.debug("Queued despawn of stalker ID {} for {}.", entityId, targetPlayerUUID);
+                }
+            }.start(plugin, 10L, 1L, STALKER_MAX_LIFESPAN_TICKS + 1);
 
 
             activeStalkers.put(targetPlayerUUID, new StalkerData(entityId, stalkerUUID, viewCheckTask, finalPlayerInfoRemovePacket, finalDestroyPacket));
@@ -574,6 +619,10 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
 
 
         while (attempts < maxAttempts) {
+            if (ExecutionBudget.current().isExhausted()) {
+                logger.debug("Stalker spawn search for {} ran out of budget.", player.getName());
+                return null;
+            }
             attempts++;
 
 
@@ -592,6 +641,10 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
 
 
             for (int currentY = maxYSearch; currentY >= minYSearch; currentY--) {
+                if (ExecutionBudget.current().isExhausted()) {
+                    logger.debug("Stalker spawn search for {} ran out of budget.", player.getName());
+                    return null;
+                }
 
                 Location groundCheckLoc = new Location(world,
                         playerLoc.getBlockX() + randomX,
@@ -605,7 +658,7 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
                     continue;
 
 
-                double foundGroundYAbove = EffectUtils.findGroundY(groundCheckLoc);
+                double foundGroundYAbove = EffectUtils.findGroundY(groundCheckLoc, verticalSearchRange * 2);
 
 
                 Location potentialBase = new Location(world,
@@ -620,7 +673,7 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
 
 
                 Block blockBelowBase = potentialBase.clone().subtract(0, 1.0, 0).getBlock();
-                if (blockBelowBase.isPassable() || blockBelowBase.isLiquid() || blockBelowBase.getType().hasGravity() || !blockBelowBase.getType().isSolid()) {
+                if (blockBelowBase.isPassable() || (MaterialClass.of(blockBelowBase.getType()) & (MaterialClass.SOLID | MaterialClass.GRAVITY | MaterialClass.LIQUID)) != MaterialClass.SOLID) {
 
                     logger.debug("Attempt {}: Location {} does not have solid ground below base (Block Below: {})", attempts, potentialBase.toVector(), blockBelowBase.getType());
                     continue;
@@ -629,28 +682,15 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
 
                 Block feetBlock = potentialBase.getBlock();
                 Block headBlock = potentialBase.clone().add(0, 1.0, 0).getBlock();
-                if (!feetBlock.isPassable() || feetBlock.isLiquid() || feetBlock.getType().isSolid() ||
-                        !headBlock.isPassable() || headBlock.isLiquid() || headBlock.getType().isSolid()) {
+                if (!feetBlock.isPassable() || MaterialClass.is(feetBlock.getType(), MaterialClass.SOLID | MaterialClass.LIQUID) ||
+                        !headBlock.isPassable() || MaterialClass.is(headBlock.getType(), MaterialClass.SOLID | MaterialClass.LIQUID)) {
 
                     logger.debug("Attempt {}: Space at potential base location {} is blocked (Feet: {}, Head: {})", attempts, potentialBase.toVector(), feetBlock.getType(), headBlock.getType());
                     continue;
                 }
 
 
-                Vector dirFromPlayer = potentialBase.toVector().subtract(playerLoc.toVector()).normalize();
-                Vector playerLookDir = playerLoc.getDirection().normalize();
-
-                if (dirFromPlayer.lengthSquared() > 0.01) {
-                    double dot = playerLookDir.dot(dirFromPlayer);
-                    double angleFromPlayerLook = Math.toDegrees(Math.acos(Math.max(-1.0, Math.min(1.0, dot))));
-
-
-                    if (angleFromPlayerLook < 60) {
-
-                        continue;
-                    }
-                } else {
-
+                if (!isOutsideDirectView(playerLoc, potentialBase)) {
                     continue;
                 }
 
@@ -671,7 +711,49 @@ public class StalkerSpawnEvent implements PlayerDesyncEvent {
         return null;
     }
 
-    public record StalkerData(int entityId, UUID stalkerUuid, BukkitTask task, PacketContainer removeInfoPacket,
+    /**
+     * Samples spots the SpotIndex already knows to be standable and keeps those out of the player's direct view.
+     * Their line of sight is left to the caller. Empty if none fit, the caller then probes random locations instead.
+     */
+    private @NotNull List<Location> findIndexedSpawnCandidates(@NotNull Player player, @NotNull Desync plugin) {
+        Location playerLoc = player.getLocation();
+        World world = player.getWorld();
+
+        long[] spots = new long[INDEXED_SPOT_SAMPLES];
+        int count = plugin.getSpotIndex().sample(playerLoc, STALKER_MIN_DISTANCE, STALKER_MAX_DISTANCE, 10, spots);
+        List<Location> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (ExecutionBudget.current().isPastDeadline()) break;
+
+            int x = SpotIndex.spotX(spots[i]);
+            int y = SpotIndex.spotY(spots[i]);
+            int z = SpotIndex.spotZ(spots[i]);
+            if (!SpotIndex.isStandable(world, x, y, z)) continue;
+
+            Location potentialBase = new Location(world, x, y, z);
+            if (isOutsideDirectView(playerLoc, potentialBase)) {
+                candidates.add(potentialBase);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return True if the location is at least 60 degrees away from where the player is looking.
+     */
+    private static boolean isOutsideDirectView(@NotNull Location playerLoc, @NotNull Location location) {
+        Vector dirFromPlayer = location.toVector().subtract(playerLoc.toVector()).normalize();
+        Vector playerLookDir = playerLoc.getDirection().normalize();
+
+        if (dirFromPlayer.lengthSquared() <= 0.01) {
+            return false;
+        }
+        double dot = playerLookDir.dot(dirFromPlayer);
+        double angleFromPlayerLook = Math.toDegrees(Math.acos(Math.max(-1.0, Math.min(1.0, dot))));
+        return angleFromPlayerLook >= 60;
+    }
+
+    public record StalkerData(int entityId, UUID stalkerUuid, EffectTask task, PacketContainer removeInfoPacket,
                               PacketContainer destroyPacket) {
     }
 }
\ No newline at end of file
@@ -1,23 +1,23 @@
 package org.ladyluh.desync.events.impl;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
-import com.comphenix.protocol.events.PacketContainer;
-import com.comphenix.protocol.wrappers.BlockPosition;
 import com.comphenix.protocol.wrappers.WrappedBlockData;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.ladyluh.desync.Desync;
 import org.ladyluh.desync.events.PlayerDesyncEvent;
+import org.ladyluh.desync.managers.ConfigurationManager;
+import org.ladyluh.desync.scheduling.ActiveEffect;
+import org.ladyluh.desync.scheduling.ExecutionBudget;
+import org.ladyluh.desync.utils.BlockDataCache;
 import org.ladyluh.desync.utils.EffectUtils;
+import org.ladyluh.desync.world.MaterialClass;
+import org.ladyluh.desync.world.SpotIndex;
 import org.slf4j.Logger;
 
 import java.util.*;
@@ -33,8 +33,12 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
     private static final long DEFAULT_COOLDOWN_MS = 90 * 1000L;
 
     private static final int SEARCH_RADIUS = 128;
+    private static final int INDEXED_SPOT_SAMPLES = 16;
     private static final long STRUCTURE_DURATION_TICKS = 40 + ThreadLocalRandom.current().nextInt(41);
 
+    private static final String DOOR_UPPER_STATE = "[facing=south,half=upper,hinge=left,open=false]";
+    private static final String DOOR_LOWER_STATE = "[facing=south,half=lower,hinge=left,open=false]";
+
 
     private static final List<Map<Vector, Material>> STRUCTURE_BLUEPRINTS;
 
@@ -534,6 +538,31 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
 
     }
 
+    /**
+     * Builds the block data of every blueprint entry ahead of time, so triggers only do cache lookups.
+     *
+     * @return The number of blueprint states that could not be created.
+     */
+    public static int prewarmBlockData() {
+        int failed = 0;
+        for (Map<Vector, Material> blueprint : STRUCTURE_BLUEPRINTS) {
+            for (Map.Entry<Vector, Material> entry : blueprint.entrySet()) {
+                if (!BlockDataCache.prewarm(entry.getValue(), blockStateFor(entry.getKey(), entry.getValue()))) {
+                    failed++;
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * @return The state string a blueprint block is placed with, or null for the default state.
+     */
+    private static @Nullable String blockStateFor(@NotNull Vector offset, @NotNull Material material) {
+        if (material != Material.OAK_DOOR) return null;
+        return offset.getY() == 1 ? DOOR_UPPER_STATE : DOOR_LOWER_STATE;
+    }
+
     private static double getMaxHorizontalOffset(@NotNull Map<Vector, Material> blueprint) {
         double minYOffset = 0;
         double maxYOffset = 0;
@@ -583,7 +612,6 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
     @Override
     public void trigger(Player player, Desync plugin) {
         Logger logger = plugin.getPluginLogger();
-        ProtocolManager protocolManager = plugin.getProtocolManager();
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
         if (STRUCTURE_BLUEPRINTS.isEmpty()) {
@@ -595,17 +623,64 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
         Map<Vector, Material> blueprint = STRUCTURE_BLUEPRINTS.get(random.nextInt(STRUCTURE_BLUEPRINTS.size()));
 
 
+        List<Location> indexedSpots = findIndexedPlacementCandidates(player, blueprint, plugin);
+        if (!indexedSpots.isEmpty()) {
+            placeAtFirstVisible(player, blueprint, indexedSpots, plugin);
+            return;
+        }
+
+
+        ConfigurationManager config = plugin.getConfigurationManager();
+        double maxDistance = Math.max(0, SEARCH_RADIUS - getMaxHorizontalOffset(blueprint) + 5);
+        if (config.isAsyncChunkLoading() && plugin.getSpotIndex().prepareRing(player.getLocation(), 0, maxDistance,
+                config.getMaxChunkLoadsPerSearch(), config.getChunkLoadTimeoutTicks(), () -> {
+                    if (!player.isOnline()) return;
+
+                    List<Location> loadedSpots = findIndexedPlacementCandidates(player, blueprint, plugin);
+                    if (loadedSpots.isEmpty()) {
+                        logger.debug("VisualStructure trigger for {}: No placement spot in the chunks loaded for it.", player.getName());
+                        return;
+                    }
+                    placeAtFirstVisible(player, blueprint, loadedSpots, plugin);
+                })) {
+            logger.debug("VisualStructure trigger for {}: Loading chunks for a placement spot.", player.getName());
+            return;
+        }
+
+
         Location placementBase = findPlacementLocation(player, blueprint, plugin);
         if (placementBase == null) {
             logger.debug("VisualStructure trigger for {}: Could not find a suitable placement location.", player.getName());
             return;
         }
+        place(player, blueprint, placementBase, plugin);
+    }
+
+    /**
+     * Checks the line of sight of all candidates at once on the block search workers and places the structure at
+     * the first one the player can see.
+     */
+    private void placeAtFirstVisible(@NotNull Player player, @NotNull Map<Vector, Material> blueprint, @NotNull List<Location> spots, @NotNull Desync plugin) {
+        Logger logger = plugin.getPluginLogger();
+        plugin.getBlockSearchService().findFirstVisible(player.getEyeLocation(), spots, index -> {
+            if (index < 0) {
+                logger.debug("VisualStructure trigger for {}: None of {} indexed spots is in sight.", player.getName(), spots.size());
+                return;
+            }
+            Location placementBase = spots.get(index);
+            if (player.isOnline() && player.getWorld().equals(placementBase.getWorld())) {
+                place(player, blueprint, placementBase, plugin);
+            }
+        });
+    }
+
+    private void place(@NotNull Player player, @NotNull Map<Vector, Material> blueprint, @NotNull Location placementBase, @NotNull Desync plugin) {
+        Logger logger = plugin.getPluginLogger();
 
         logger.debug("Triggering VisualStructure for {} near {}", player.getName(), placementBase.toVector());
 
 
-        Map<Location, BlockData> originalBlockData = new HashMap<>();
-        List<PacketContainer> placePackets = new ArrayList<>();
+        Map<Location, WrappedBlockData> fakeBlocks = new LinkedHashMap<>();
 
 
         for (Map.Entry<Vector, Material> entry : blueprint.entrySet()) {
@@ -621,88 +696,61 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
                 continue;
             }
 
-            Block blockAtLocation = blockLoc.getBlock();
-
-            originalBlockData.put(blockLoc.clone(), blockAtLocation.getBlockData());
-
 
             try {
-                PacketContainer blockChangePacket = protocolManager.createPacket(PacketType.Play.Server.BLOCK_CHANGE);
-                blockChangePacket.getBlockPositionModifier().write(0, new BlockPosition(blockLoc.getBlockX(), blockLoc.getBlockY(), blockLoc.getBlockZ()));
-
-                BlockData blockDataToPlace;
-
-                if (materialToPlace == Material.OAK_DOOR) {
-
-
-                    if (offset.getY() == 1) {
-                        blockDataToPlace = Bukkit.createBlockData(materialToPlace, "[facing=south,half=upper,hinge=left,open=false]");
-                    } else {
-                        blockDataToPlace = Bukkit.createBlockData(materialToPlace, "[facing=south,half=lower,hinge=left,open=false]");
-                    }
-
-                } else {
-                    blockDataToPlace = Bukkit.createBlockData(materialToPlace);
-                }
-
-
-                blockChangePacket.getBlockData().write(0, WrappedBlockData.createData(blockDataToPlace));
-                placePackets.add(blockChangePacket);
-                logger.debug("Prepared packet to place {} at {}", materialToPlace, blockLoc.toVector());
+                fakeBlocks.put(blockLoc, BlockDataCache.get(materialToPlace, blockStateFor(offset, materialToPlace)).wrapped());
+                logger.debug("Prepared {} at {}", materialToPlace, blockLoc.toVector());
 
             } catch (Exception e) {
-                logger.error("Failed to prepare BLOCK_CHANGE packet for {} at {}: {}", materialToPlace, blockLoc.toVector(), e.getMessage());
+                logger.error("Failed to prepare fake block {} at {}: {}", materialToPlace, blockLoc.toVector(), e.getMessage());
 
 
             }
         }
 
 
-        if (placePackets.isEmpty()) {
-            logger.debug("VisualStructure trigger for {}: No valid place packets generated.", player.getName());
+        if (fakeBlocks.isEmpty()) {
+            logger.debug("VisualStructure trigger for {}: No valid blocks to place.", player.getName());
             return;
         }
 
 
         try {
-            for (PacketContainer packet : placePackets) {
-                protocolManager.sendServerPacket(player, packet);
+            for (Map.Entry<Location, WrappedBlockData> entry : fakeBlocks.entrySet()) {
+                plugin.getFakeBlockOverlay().show(player, entry.getKey(), entry.getValue());
             }
-            logger.debug("Sent {} placement packets to {}", placePackets.size(), player.getName());
-
-
-            final Map<Location, BlockData> finalOriginalBlockData = originalBlockData;
-
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (!player.isOnline()) {
-                        logger.debug("VisualStructure skipping revert for {} - player offline.", player.getName());
-                        return;
-                    }
+            logger.debug("Sent {} placement packets to {}", fakeBlocks.size(), player.getName());
 
 
-                    for (Map.Entry<Location, BlockData> entry : finalOriginalBlockData.entrySet()) {
-                        Location loc = entry.getKey();
-                        BlockData data = entry.getValue();
+            final Set<Location> placedLocations = fakeBlocks.keySet();
 
+            ActiveEffect revert = plugin.getActiveEffectRegistry().scheduleRevert(player.getUniqueId(), KEY, STRUCTURE_DURATION_TICKS, () -> {
+                if (!player.isOnline()) {
+                    logger.debug("VisualStructure skipping revert for {} - player offline.", player.getName());
+                    return;
+                }
 
-                        if (loc.getWorld() == null || !loc.getWorld().isChunkLoaded(loc.getChunk())) {
-                            logger.debug("Skipping revert for block at {} - chunk not loaded.", loc.toVector());
-                            continue;
-                        }
 
-                        try {
-                            EffectUtils.sendBlockChange(player, loc, data, plugin);
+                for (Location loc : placedLocations) {
+                    try {
+                        // Unloaded chunks and blocks still faked by another effect are skipped by the overlay.
+                        if (plugin.getFakeBlockOverlay().release(player, loc)) {
                             logger.debug("VisualStructure reverted block at {} clientside.", loc.toVector());
-
-                        } catch (Exception e) {
-                            logger.error("Failed to send VisualStructure revert packet for {} to {}", loc.toVector(), player.getName(), e);
                         }
+
+                    } catch (Exception e) {
+                        logger.error("Failed to send VisualStructure revert packet for {} to {}", loc.toVector(), player.getName(), e);
                     }
-                    logger.debug("VisualStructure revert complete for {}", player.getName());
                 }
-            }.runTaskLater(plugin, STRUCTURE_DURATION_TICKS);
+                logger.debug("VisualStructure revert complete for {}", player.getName());
+            }, resync -> {
+                for (Location loc : placedLocations) {
+                    plugin.getFakeBlockOverlay().release(player, loc, resync);
+                }
+            });
+            for (Location loc : placedLocations) {
+                plugin.getActiveEffectRegistry().anchor(revert, loc);
+            }
 
 
         } catch (Exception e) {
@@ -711,6 +759,34 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
         }
     }
 
+    /**
+     * Samples spots the SpotIndex already knows to be standable and keeps those with room for the blueprint.
+     * Their line of sight is left to the caller. Empty if none fit, the caller then probes random locations instead.
+     */
+    private @NotNull List<Location> findIndexedPlacementCandidates(@NotNull Player player, @NotNull Map<Vector, Material> blueprint, @NotNull Desync plugin) {
+        Logger logger = plugin.getPluginLogger();
+        World world = player.getWorld();
+        double maxHorizontalOffset = getMaxHorizontalOffset(blueprint);
+
+        long[] spots = new long[INDEXED_SPOT_SAMPLES];
+        int count = plugin.getSpotIndex().sample(player.getLocation(), 0, Math.max(0, SEARCH_RADIUS - maxHorizontalOffset + 5), 10, spots);
+        List<Location> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (ExecutionBudget.current().isPastDeadline()) break;
+
+            int x = SpotIndex.spotX(spots[i]);
+            int y = SpotIndex.spotY(spots[i]);
+            int z = SpotIndex.spotZ(spots[i]);
+            if (!SpotIndex.isStandable(world, x, y, z)) continue;
+
+            Location potentialBase = new Location(world, x + 0.5, y, z + 0.5);
+            if (isBlueprintSpaceClear(world, potentialBase, blueprint, logger)) {
+                candidates.add(potentialBase);
+            }
+        }
+        return candidates;
+    }
+
     /**
      * Helper to find a suitable location near the player to place a structure blueprint.
      * Checks for solid ground under the base block and enough air space above the blueprint's extent.
@@ -732,6 +808,10 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
 
 
         while (attempts < maxAttempts) {
+            if (ExecutionBudget.current().isExhausted()) {
+                logger.debug("VisualStructure placement search for {} ran out of budget.", player.getName());
+                return null;
+            }
             attempts++;
 
 
@@ -753,6 +833,10 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
 
 
             for (int currentY = maxYSearch; currentY >= minYSearch; currentY--) {
+                if (ExecutionBudget.current().isExhausted()) {
+                    logger.debug("VisualStructure placement search for {} ran out of budget.", player.getName());
+                    return null;
+                }
                 Location potentialBaseAtY = new Location(world,
                         potentialBaseHorizontal.getBlockX() + 0.5,
                         currentY,
@@ -760,7 +844,7 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
                 );
 
 
-                double foundGroundYAbove = EffectUtils.findGroundY(potentialBaseAtY.clone().add(0, 1.0, 0));
+                double foundGroundYAbove = EffectUtils.findGroundY(potentialBaseAtY.clone().add(0, 1.0, 0), verticalSearchRange * 2);
 
 
                 Location potentialBase = new Location(world, potentialBaseAtY.getX(), foundGroundYAbove, potentialBaseAtY.getZ());
@@ -774,43 +858,14 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
 
 
                 Block blockBelowBase = potentialBase.clone().subtract(0, 1.0, 0).getBlock();
-                if (blockBelowBase.isPassable() || blockBelowBase.isLiquid() || blockBelowBase.getType().hasGravity() || !blockBelowBase.getType().isSolid()) {
+                if (blockBelowBase.isPassable() || (MaterialClass.of(blockBelowBase.getType()) & (MaterialClass.SOLID | MaterialClass.GRAVITY | MaterialClass.LIQUID)) != MaterialClass.SOLID) {
 
                     logger.debug("Attempt {}: Location {} does not have solid ground below base (Block Below: {}).", attempts, potentialBase.toVector(), blockBelowBase.getType());
                     continue;
                 }
 
 
-                boolean isSpaceClear = true;
-                double maxBlueprintHeightOffset = 0;
-                for (Vector offset : blueprint.keySet()) {
-                    if (offset.getY() > 0 && offset.getY() > maxBlueprintHeightOffset)
-                        maxBlueprintHeightOffset = offset.getY();
-                }
-
-
-                for (int checkYOffset = 1; checkYOffset <= maxBlueprintHeightOffset; checkYOffset++) {
-
-                    for (Vector offset : blueprint.keySet()) {
-                        if (offset.getY() == checkYOffset) {
-                            Location checkLoc = potentialBase.clone().add(offset.getX(), checkYOffset, offset.getZ());
-
-                            if (checkLoc.getY() < world.getMinHeight() || checkLoc.getY() >= world.getMaxHeight()) {
-                                isSpaceClear = false;
-                                logger.debug("Attempt {}: Blueprint block at offset {} is outside world height bounds during space clear check.", attempts, offset);
-                                break;
-                            }
-                            Block blockAtOffset = checkLoc.getBlock();
-
-                            if (blockAtOffset.getType().isSolid() || blockAtOffset.isLiquid()) {
-                                isSpaceClear = false;
-                                logger.debug("Attempt {}: Space for blueprint block at offset {} is blocked by {} at {}.", attempts, offset, blockAtOffset.getType(), checkLoc.toVector());
-                                break;
-                            }
-                        }
-                    }
-                    if (!isSpaceClear) break;
-                }
+                boolean isSpaceClear = isBlueprintSpaceClear(world, potentialBase, blueprint, logger);
 
 
                 if (isSpaceClear) {
@@ -830,4 +885,37 @@ public class VisualStructureEvent implements PlayerDesyncEvent {
         logger.debug("Could not find suitable VisualStructure placement location for {} after {} attempts.", player.getName(), maxAttempts);
         return null;
     }
+
+    /**
+     * Checks that every blueprint block above the base would go into air.
+     */
+    private boolean isBlueprintSpaceClear(@NotNull World world, @NotNull Location base, @NotNull Map<Vector, Material> blueprint, @NotNull Logger logger) {
+        double maxBlueprintHeightOffset = 0;
+        for (Vector offset : blueprint.keySet()) {
+            if (offset.getY() > 0 && offset.getY() > maxBlueprintHeightOffset)
+                maxBlueprintHeightOffset = offset.getY();
+        }
+
+
+        for (int checkYOffset = 1; checkYOffset <= maxBlueprintHeightOffset; checkYOffset++) {
+
+            for (Vector offset : blueprint.keySet()) {
+                if (offset.getY() == checkYOffset) {
+                    Location checkLoc = base.clone().add(offset.getX(), checkYOffset, offset.getZ());
+
+                    if (checkLoc.getY() < world.getMinHeight() || checkLoc.getY() >= world.getMaxHeight()) {
+                        logger.debug("Blueprint block at offset {} is outside world height bounds during space clear check.", offset);
+                        return false;
+                    }
+                    Block blockAtOffset = checkLoc.getBlock();
+
+                    if (MaterialClass.is(blockAtOffset.getType(), MaterialClass.SOLID | MaterialClass.LIQUID)) {
+                        logger.debug("Space for blueprint block at offset {} is blocked by {} at {}.", offset, blockAtOffset.getType(), checkLoc.toVector());
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package org.ladyluh.desync.listeners;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.ladyluh.desync.world.BlockSearchService;
+import org.ladyluh.desync.world.SpotIndex;
+
+import java.util.List;
+
+/**
+ * Listens for blocks appearing in the world so the block search and the spot index stop trusting what they remembered
+ * about their chunk. Removed blocks are not tracked: a stale summary that still lists them only costs a wasted scan,
+ * and spots are checked against the live world before use.
+ */
+public class BlockChangeListener implements Listener {
+
+    private final BlockSearchService blockSearchService;
+    private final SpotIndex spotIndex;
+
+    public BlockChangeListener(BlockSearchService blockSearchService, SpotIndex spotIndex) {
+        this.blockSearchService = blockSearchService;
+        this.spotIndex = spotIndex;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        invalidate(event.getBlockPlaced());
+    }
+
+    /**
+     * Also covers BlockSpreadEvent (grass, mushrooms, fire...).
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockGrow(BlockGrowEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    /**
+     * Saplings and mushrooms growing into trees.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+        invalidateStates(event.getBlocks());
+    }
+
+    /**
+     * Bone meal spreading moss, grass and flowers.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFertilize(BlockFertilizeEvent event) {
+        invalidateStates(event.getBlocks());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        invalidateMoved(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        invalidateMoved(event.getBlocks(), event.getDirection());
+    }
+
+    private void invalidateMoved(List<Block> blocks, BlockFace direction) {
+        for (Block block : blocks) {
+            invalidate(block.getRelative(direction));
+        }
+    }
+
+    private void invalidateStates(List<BlockState> states) {
+        for (BlockState state : states) {
+            blockSearchService.invalidateBlock(state.getWorld(), state.getX(), state.getZ());
+            spotIndex.invalidate(state.getWorld(), state.getX(), state.getZ());
+        }
+    }
+
+    private void invalidate(Block block) {
+        blockSearchService.invalidateBlock(block.getWorld(), block.getX(), block.getZ());
+        spotIndex.invalidate(block.getWorld(), block.getX(), block.getZ());
+    }
+}
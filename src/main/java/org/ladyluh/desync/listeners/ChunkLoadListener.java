@@ -0,0 +1,33 @@
+package org.ladyluh.desync.listeners;
+
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.ladyluh.desync.world.SpotIndex;
+
+/**
+ * Listens for chunk loads to queue them for spot indexing.
+ */
+public class ChunkLoadListener implements Listener {
+
+    private final SpotIndex spotIndex;
+
+    public ChunkLoadListener(SpotIndex spotIndex) {
+        this.spotIndex = spotIndex;
+    }
+
+    /**
+     * Handles the ChunkLoadEvent. Freshly generated chunks are queued too.
+     *
+     * @param event The ChunkLoadEvent.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (spotIndex == null) return;
+
+        Chunk chunk = event.getChunk();
+        spotIndex.enqueue(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+}
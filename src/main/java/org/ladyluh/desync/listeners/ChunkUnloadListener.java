@@ -0,0 +1,33 @@
+package org.ladyluh.desync.listeners;
+
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.ladyluh.desync.events.EventService;
+
+/**
+ * Listens for chunk unloads to drop the desync effects that only concern blocks in that chunk.
+ */
+public class ChunkUnloadListener implements Listener {
+
+    private final EventService eventService;
+
+    public ChunkUnloadListener(EventService eventService) {
+        this.eventService = eventService;
+    }
+
+    /**
+     * Handles the ChunkUnloadEvent. Cancels the effects anchored to the chunk.
+     *
+     * @param event The ChunkUnloadEvent.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        if (eventService == null) return;
+
+        Chunk chunk = event.getChunk();
+        eventService.handleChunkUnload(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+}
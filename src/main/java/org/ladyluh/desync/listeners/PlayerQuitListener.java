@@ -46,6 +46,14 @@ public class PlayerQuitListener implements Listener {
             plugin.getPluginLogger().debug("Cleaned up event tasks for {}", player.getName());
         }
 
+
+        int cancelledTimers = plugin.getTimingWheel().cancelAll(player.getUniqueId());
+        plugin.getPluginLogger().debug("Cancelled {} pending delayed actions for {}", cancelledTimers, player.getName());
+
+        plugin.getFakeBlockOverlay().removePlayer(player.getUniqueId());
+        plugin.getBlockSearchService().removePlayer(player.getUniqueId());
+        plugin.getPacketDispatcher().removePlayer(player.getUniqueId());
+
         plugin.getPluginLogger().debug("Cleanup complete for {}", player.getName());
     }
 }
\ No newline at end of file
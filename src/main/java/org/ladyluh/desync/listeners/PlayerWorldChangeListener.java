@@ -0,0 +1,40 @@
+package org.ladyluh.desync.listeners;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.events.EventService;
+
+/**
+ * Listens for players switching worlds to end the desync effects that were tied to the world they left.
+ */
+public class PlayerWorldChangeListener implements Listener {
+
+    private final Desync plugin;
+    private final EventService eventService;
+
+    public PlayerWorldChangeListener(Desync plugin, EventService eventService) {
+        this.plugin = plugin;
+        this.eventService = eventService;
+    }
+
+    /**
+     * Handles the PlayerChangedWorldEvent. Ends the active effects of the player.
+     *
+     * @param event The PlayerChangedWorldEvent.
+     */
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        plugin.getPluginLogger().debug("PlayerChangedWorldEvent for {} ({} -> {}).", player.getName(), event.getFrom().getName(), player.getWorld().getName());
+
+        if (eventService != null) {
+            eventService.handleWorldChange(player.getUniqueId());
+        }
+
+        // The client dropped the old world, fake blocks included.
+        plugin.getFakeBlockOverlay().removePlayer(player.getUniqueId());
+    }
+}
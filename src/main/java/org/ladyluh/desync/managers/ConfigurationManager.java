@@ -35,6 +35,22 @@ public class ConfigurationManager {
     private long defaultGlobalCooldownMs = 5 * 1000L;
 
 
+    private boolean asyncPacketDispatch = true;
+    private int packetDispatchThreads = 2;
+    private int maxPacketBytesPerSecond = 24 * 1024;
+    private long deferredPacketMaxAgeMs = 1000L;
+    private int fakeEntityIdStart = Integer.MIN_VALUE / 2;
+    private int fakeEntityIdCount = 4096;
+    private boolean circuitBreakerEnabled = true;
+    private double circuitBreakerFailureRate = 0.5;
+    private long circuitBreakerSlowCallMs = 50L;
+    private long circuitBreakerOpenSeconds = 60L;
+    private long defaultBudgetMicros = 2000L;
+    private boolean asyncChunkLoading = false;
+    private int maxChunkLoadsPerSearch = 4;
+    private long chunkLoadTimeoutTicks = 100L;
+
+
     public ConfigurationManager(Desync plugin) {
         this.plugin = plugin;
         this.logger = plugin.getPluginLogger();
@@ -78,6 +94,45 @@ public class ConfigurationManager {
             defaultGlobalCooldownMs = Math.max(0L, defaultGlobalCooldownMs);
 
 
+            asyncPacketDispatch = config.getBoolean("packets.async-dispatch", asyncPacketDispatch);
+            packetDispatchThreads = config.getInt("packets.dispatch-threads", packetDispatchThreads);
+
+            maxPacketBytesPerSecond = config.getInt("packets.max-bytes-per-second", maxPacketBytesPerSecond);
+            deferredPacketMaxAgeMs = config.getLong("packets.deferred-max-age-ms", deferredPacketMaxAgeMs);
+
+            packetDispatchThreads = Math.max(1, Math.min(8, packetDispatchThreads));
+            maxPacketBytesPerSecond = Math.max(1024, maxPacketBytesPerSecond);
+            deferredPacketMaxAgeMs = Math.max(0L, deferredPacketMaxAgeMs);
+
+            fakeEntityIdStart = config.getInt("packets.fake-entity-id-start", fakeEntityIdStart);
+            fakeEntityIdCount = config.getInt("packets.fake-entity-id-count", fakeEntityIdCount);
+
+            fakeEntityIdCount = Math.max(16, Math.min(1 << 20, fakeEntityIdCount));
+            // The whole range has to stay negative, the server's own entity ids count up from zero.
+            fakeEntityIdStart = Math.min(fakeEntityIdStart, -fakeEntityIdCount);
+
+
+            circuitBreakerEnabled = config.getBoolean("circuit-breaker.enabled", circuitBreakerEnabled);
+            circuitBreakerFailureRate = config.getDouble("circuit-breaker.failure-rate", circuitBreakerFailureRate);
+            circuitBreakerSlowCallMs = config.getLong("circuit-breaker.slow-call-ms", circuitBreakerSlowCallMs);
+            circuitBreakerOpenSeconds = config.getLong("circuit-breaker.open-seconds", circuitBreakerOpenSeconds);
+
+            circuitBreakerFailureRate = Math.max(0.0, Math.min(1.0, circuitBreakerFailureRate));
+            circuitBreakerSlowCallMs = Math.max(1L, circuitBreakerSlowCallMs);
+            circuitBreakerOpenSeconds = Math.max(1L, circuitBreakerOpenSeconds);
+
+
+            defaultBudgetMicros = Math.max(1L, config.getLong("budget.default-micros", defaultBudgetMicros));
+
+
+            asyncChunkLoading = config.getBoolean("placement.async-chunk-loading", asyncChunkLoading);
+            maxChunkLoadsPerSearch = config.getInt("placement.max-chunk-loads", maxChunkLoadsPerSearch);
+            chunkLoadTimeoutTicks = config.getLong("placement.chunk-load-timeout-ticks", chunkLoadTimeoutTicks);
+
+            maxChunkLoadsPerSearch = Math.max(1, Math.min(64, maxChunkLoadsPerSearch));
+            chunkLoadTimeoutTicks = Math.max(1L, chunkLoadTimeoutTicks);
+
+
             logger.debug("Configuration loaded successfully.");
         } catch (Exception e) {
             logger.error("Failed to load configuration! Using default settings.", e);
@@ -96,6 +151,8 @@ public class ConfigurationManager {
         plugin.getEventScheduler().reloadSettings();
         plugin.getCooldownManager().reloadSettings();
         plugin.getEventService().reloadSettings();
+        plugin.getPacketDispatcher().reloadSettings();
+        plugin.getFakeEntityIds().reloadSettings();
 
     }
 
@@ -152,6 +209,68 @@ public class ConfigurationManager {
         return defaultGlobalCooldownMs;
     }
 
+    public boolean isAsyncPacketDispatch() {
+        return asyncPacketDispatch;
+    }
+
+    public int getPacketDispatchThreads() {
+        return packetDispatchThreads;
+    }
+
+    public int getMaxPacketBytesPerSecond() {
+        return maxPacketBytesPerSecond;
+    }
+
+    public long getDeferredPacketMaxAgeMs() {
+        return deferredPacketMaxAgeMs;
+    }
+
+    public int getFakeEntityIdStart() {
+        return fakeEntityIdStart;
+    }
+
+    public int getFakeEntityIdCount() {
+        return fakeEntityIdCount;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    public double getCircuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public long getCircuitBreakerSlowCallMs() {
+        return circuitBreakerSlowCallMs;
+    }
+
+    public long getCircuitBreakerOpenSeconds() {
+        return circuitBreakerOpenSeconds;
+    }
+
+    public boolean isAsyncChunkLoading() {
+        return asyncChunkLoading;
+    }
+
+    public int getMaxChunkLoadsPerSearch() {
+        return maxChunkLoadsPerSearch;
+    }
+
+    public long getChunkLoadTimeoutTicks() {
+        return chunkLoadTimeoutTicks;
+    }
+
+
+    /**
+     * Gets the configured execution budget for a specific event key, falling back to default.
+     *
+     * @param eventKey The key of the event.
+     * @return The budget per check or trigger in microseconds.
+     */
+    public long getEventBudgetMicros(String eventKey) {
+        return Math.max(1L, config.getLong("events." + eventKey.toLowerCase() + ".budget-micros", defaultBudgetMicros));
+    }
 
     /**
      * Gets the configured cooldown for a specific event key, falling back to default.
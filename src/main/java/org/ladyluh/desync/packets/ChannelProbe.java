@@ -0,0 +1,114 @@
+package org.ladyluh.desync.packets;
+
+import com.comphenix.protocol.utility.MinecraftReflection;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+
+/**
+ * Reads the Netty channel writability of a player's connection without compiling against Netty or NMS.
+ * <p>
+ * The path player handle -> packet listener -> connection -> channel is resolved once by field type
+ * (so it survives obfuscated field names), and {@code Channel#isWritable()} is bound to a MethodHandle.
+ * If anything cannot be resolved the probe disables itself and every channel is reported as writable.
+ */
+final class ChannelProbe {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Logger logger;
+    private volatile boolean resolved = false;
+    private volatile boolean disabled = false;
+
+    private MethodHandle getHandle;
+    private MethodHandle getPacketListener;
+    private MethodHandle getConnection;
+    private MethodHandle getChannel;
+    private MethodHandle isWritable;
+
+    ChannelProbe(@NotNull Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Looks up the Netty channel object backing the player's connection.
+     *
+     * @param playerName For logging, captured on the main thread.
+     * @return The channel, or null if it cannot be resolved.
+     */
+    @Nullable Object findChannel(@NotNull Player player, @NotNull String playerName) {
+        if (disabled) return null;
+
+        try {
+            if (!resolved) {
+                resolve(player);
+            }
+
+            Object handle = (Object) getHandle.invokeExact((Object) player);
+            Object listener = (Object) getPacketListener.invokeExact(handle);
+            if (listener == null) return null;
+            Object connection = (Object) getConnection.invokeExact(listener);
+            if (connection == null) return null;
+            return (Object) getChannel.invokeExact(connection);
+        } catch (Throwable t) {
+            disabled = true;
+            logger.warn("Could not resolve the Netty channel of {}, channel writability will be ignored: {}", playerName, t.toString());
+            return null;
+        }
+    }
+
+    /**
+     * @param channel A channel returned by {@link #findChannel(Player, String)}, may be null.
+     * @return Whether the channel can take more writes without queueing. True if unknown.
+     */
+    boolean isWritable(@Nullable Object channel) {
+        if (channel == null || disabled) return true;
+
+        try {
+            return (boolean) isWritable.invokeExact(channel);
+        } catch (Throwable t) {
+            disabled = true;
+            logger.warn("Channel writability check failed and was disabled: {}", t.toString());
+            return true;
+        }
+    }
+
+    private synchronized void resolve(@NotNull Player player) throws ReflectiveOperationException {
+        if (resolved) return;
+
+        MethodType objectGetter = MethodType.methodType(Object.class, Object.class);
+
+        getHandle = LOOKUP.unreflect(player.getClass().getMethod("getHandle")).asType(objectGetter);
+
+        Class<?> listenerClass = MinecraftReflection.getPlayerConnectionClass();
+        Class<?> connectionClass = MinecraftReflection.getNetworkManagerClass();
+        Class<?> channelClass = Class.forName("io.netty.channel.Channel", false, connectionClass.getClassLoader());
+
+        getPacketListener = LOOKUP.unreflectGetter(findFieldOfType(MinecraftReflection.getEntityPlayerClass(), listenerClass)).asType(objectGetter);
+        getConnection = LOOKUP.unreflectGetter(findFieldOfType(listenerClass, connectionClass)).asType(objectGetter);
+        getChannel = LOOKUP.unreflectGetter(findFieldOfType(connectionClass, channelClass)).asType(objectGetter);
+        isWritable = LOOKUP.unreflect(channelClass.getMethod("isWritable")).asType(MethodType.methodType(boolean.class, Object.class));
+
+        resolved = true;
+    }
+
+    private static @NotNull Field findFieldOfType(@NotNull Class<?> owner, @NotNull Class<?> fieldType) throws NoSuchFieldException {
+        for (Class<?> current = owner; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && fieldType.isAssignableFrom(field.getType())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        throw new NoSuchFieldException("No " + fieldType.getSimpleName() + " field in " + owner.getName());
+    }
+}
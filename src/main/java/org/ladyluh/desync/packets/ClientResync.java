@@ -0,0 +1,195 @@
+package org.ladyluh.desync.packets;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.utils.BlockDataCache;
+import org.slf4j.Logger;
+
+import java.util.*;
+
+
+/**
+ * Everything one player's client needs to be put back in sync, collected while their effects are swept
+ * and sent in one go.
+ * <p>
+ * Instead of every revert sending its own packets, block reverts are merged into one multi block change
+ * per chunk section, fake entities into a single destroy, tab entries into a single info removal, and any
+ * number of fake item changes into one inventory resync. {@link #flush} queues it on the player's
+ * {@link PacketDispatcher} lane behind the packets the effects already sent, or, on shutdown once the
+ * dispatcher has drained, sends it synchronously because no task will run anymore.
+ * <p>
+ * Main thread only.
+ */
+public class ClientResync {
+
+    private final UUID playerUUID;
+    private final Map<Long, Set<Short>> blocksBySection = new LinkedHashMap<>();
+    private final List<Integer> entityIds = new ArrayList<>();
+    private final List<UUID> infoRemovals = new ArrayList<>();
+    private World blockWorld;
+    private boolean inventory = false;
+
+    public ClientResync(@NotNull UUID playerUUID) {
+        this.playerUUID = playerUUID;
+    }
+
+    /**
+     * Queues the block's current real state. Blocks in another world than the player's are skipped on flush.
+     */
+    public void resendBlock(@NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null) return;
+        if (blockWorld == null) {
+            blockWorld = world;
+        } else if (!blockWorld.equals(world)) {
+            // The client only holds one world; blocks of any other are dropped with it.
+            return;
+        }
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        long section = FakeBlockOverlay.pack(x >> 4, y >> 4, z >> 4);
+        short packed = (short) ((x & 0xF) << 8 | (z & 0xF) << 4 | (y & 0xF));
+        blocksBySection.computeIfAbsent(section, k -> new LinkedHashSet<>()).add(packed);
+    }
+
+    /**
+     * Queues the removal of a client-side fake entity.
+     */
+    public void destroyEntity(int entityId) {
+        entityIds.add(entityId);
+    }
+
+    /**
+     * Queues the removal of a fake tab list entry.
+     */
+    public void removePlayerInfo(@NotNull UUID profileUUID) {
+        infoRemovals.add(profileUUID);
+    }
+
+    /**
+     * Queues a full resend of the player's inventory, dropping any fake item shown in it.
+     */
+    public void resyncInventory() {
+        inventory = true;
+    }
+
+    public boolean isEmpty() {
+        return blocksBySection.isEmpty() && entityIds.isEmpty() && infoRemovals.isEmpty() && !inventory;
+    }
+
+    /**
+     * Sends everything queued. Does nothing if the player is offline.
+     *
+     * @param direct True to bypass the {@link PacketDispatcher}. Only safe once it has been stopped, otherwise
+     *               the resync can overtake spawn or tab list packets still queued in the player's lane.
+     * @return The number of packets sent.
+     */
+    public int flush(@NotNull Desync plugin, boolean direct) {
+        Logger logger = plugin.getPluginLogger();
+        Player player = plugin.getServer().getPlayer(playerUUID);
+        if (player == null || !player.isOnline() || isEmpty()) return 0;
+
+        ProtocolManager protocolManager = plugin.getProtocolManager();
+        List<PacketContainer> packets = new ArrayList<>();
+
+        try {
+            if (!entityIds.isEmpty()) {
+                PacketContainer destroyPacket = protocolManager.createPacket(PacketType.Play.Server.ENTITY_DESTROY);
+                destroyPacket.getIntLists().write(0, entityIds);
+                packets.add(destroyPacket);
+            }
+            if (!infoRemovals.isEmpty()) {
+                PacketContainer removeInfoPacket = protocolManager.createPacket(PacketType.Play.Server.PLAYER_INFO_REMOVE);
+                removeInfoPacket.getUUIDLists().write(0, infoRemovals);
+                packets.add(removeInfoPacket);
+            }
+            if (!blocksBySection.isEmpty() && player.getWorld().equals(blockWorld)) {
+                addBlockPackets(protocolManager, packets);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to build resync packets for {}", player.getName(), e);
+        }
+
+        int sent = 0;
+        for (PacketContainer packet : packets) {
+            try {
+                if (direct) {
+                    protocolManager.sendServerPacket(player, packet);
+                } else {
+                    plugin.getPacketDispatcher().send(player, packet);
+                }
+                sent++;
+            } catch (Exception e) {
+                logger.error("Failed to send resync packet {} to {}", packet.getType(), player.getName(), e);
+            }
+        }
+        if (inventory) {
+            if (direct) {
+                player.updateInventory();
+            } else {
+                // Behind the lane, or a fake item still queued in it would win.
+                plugin.getPacketDispatcher().runAfterQueued(player, () -> {
+                    if (player.isOnline()) player.updateInventory();
+                });
+            }
+            sent++;
+        }
+
+        logger.debug("Sent {} resync packets to {}: {} blocks in {} sections, {} entities, {} tab entries, inventory {}.",
+                sent, player.getName(), blocksBySection.values().stream().mapToInt(Set::size).sum(), blocksBySection.size(),
+                entityIds.size(), infoRemovals.size(), inventory);
+        return sent;
+    }
+
+    private void addBlockPackets(@NotNull ProtocolManager protocolManager, @NotNull List<PacketContainer> packets) {
+        for (Map.Entry<Long, Set<Short>> entry : blocksBySection.entrySet()) {
+            long key = entry.getKey();
+            BlockPosition section = new BlockPosition((int) (key >> 38), (int) (key << 52 >> 52), (int) (key << 26 >> 38));
+            if (!blockWorld.isChunkLoaded(section.getX(), section.getZ())) {
+                // An unloaded chunk is resent in full once it loads again.
+                continue;
+            }
+
+            int baseX = section.getX() << 4;
+            int baseY = section.getY() << 4;
+            int baseZ = section.getZ() << 4;
+            Set<Short> positions = entry.getValue();
+
+            short[] packedPositions = new short[positions.size()];
+            WrappedBlockData[] states = new WrappedBlockData[positions.size()];
+            int i = 0;
+            for (short packed : positions) {
+                int x = baseX + (packed >>> 8 & 0xF);
+                int y = baseY + (packed & 0xF);
+                int z = baseZ + (packed >>> 4 & 0xF);
+                packedPositions[i] = packed;
+                states[i] = BlockDataCache.wrap(blockWorld.getBlockAt(x, y, z).getBlockData());
+                i++;
+            }
+
+            if (packedPositions.length == 1) {
+                int x = baseX + (packedPositions[0] >>> 8 & 0xF);
+                int y = baseY + (packedPositions[0] & 0xF);
+                int z = baseZ + (packedPositions[0] >>> 4 & 0xF);
+                packets.add(PacketWriters.blockChange(x, y, z, states[0]));
+                continue;
+            }
+
+            PacketContainer multiBlockPacket = protocolManager.createPacket(PacketType.Play.Server.MULTI_BLOCK_CHANGE);
+            multiBlockPacket.getSectionPositions().write(0, section);
+            multiBlockPacket.getShortArrays().write(0, packedPositions);
+            multiBlockPacket.getBlockDataArrays().write(0, states);
+            packets.add(multiBlockPacket);
+        }
+    }
+}
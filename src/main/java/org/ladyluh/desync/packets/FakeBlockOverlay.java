@@ -0,0 +1,434 @@
+package org.ladyluh.desync.packets;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.utils.BlockDataCache;
+import org.ladyluh.desync.utils.EffectUtils;
+import org.slf4j.Logger;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Tracks, per player, which blocks currently show a fake state on the client.
+ * <p>
+ * Block effects overlap: two effects can fake the same block, and the real block can change while it is faked.
+ * Effects therefore {@link #show} their fake blocks and {@link #release} them instead of snapshotting and
+ * restoring the original data. Every faked position keeps a reference count, and only the last release
+ * sends anything, namely the block's <em>current</em> real state.
+ * <p>
+ * An outbound packet listener watches the real block updates the server sends (single and multi block changes,
+ * chunk data). Once one of those overwrites a faked position the client already shows the real block,
+ * so the eventual release sends nothing. Our own fake block changes pass the listener too; they are recognised
+ * by the identity of the packets {@link #show} built, never by their state, since an older fake of the same
+ * position may still be on its way while a newer one is tracked.
+ * <p>
+ * Positions are packed into longs and kept in a small open addressing map per player.
+ */
+public class FakeBlockOverlay {
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final ProtocolManager protocolManager;
+    private final PacketDispatcher packetDispatcher;
+    private final Map<UUID, PlayerOverlay> overlays = new ConcurrentHashMap<>();
+    /**
+     * Handles of our fake block changes that were built but have not passed the listener yet, with their receiver.
+     */
+    private final Map<Object, UUID> ownPackets = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private PacketAdapter listener;
+
+    public FakeBlockOverlay(@NotNull Desync plugin, @NotNull ProtocolManager protocolManager, @NotNull PacketDispatcher packetDispatcher) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+        this.protocolManager = protocolManager;
+        this.packetDispatcher = packetDispatcher;
+    }
+
+    /**
+     * Packs a block position the same way the game does ({@code BlockPos#asLong}).
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    private static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Registers the outbound packet listener.
+     */
+    public void start() {
+        if (listener != null) {
+            logger.warn("FakeBlockOverlay listener already registered!");
+            return;
+        }
+
+        listener = new PacketAdapter(plugin, ListenerPriority.MONITOR,
+                PacketType.Play.Server.BLOCK_CHANGE, PacketType.Play.Server.MULTI_BLOCK_CHANGE, PacketType.Play.Server.MAP_CHUNK) {
+            @Override
+            public void onPacketSending(PacketEvent event) {
+                if (event.getPacketType() == PacketType.Play.Server.BLOCK_CHANGE && !ownPackets.isEmpty()
+                        && ownPackets.remove(event.getPacket().getHandle()) != null) {
+                    return;
+                }
+                if (event.isCancelled() || overlays.isEmpty()) return;
+
+                PlayerOverlay overlay = overlays.get(event.getPlayer().getUniqueId());
+                if (overlay == null) return;
+
+                try {
+                    handleRealUpdate(overlay, event.getPacketType(), event.getPacket());
+                } catch (Exception e) {
+                    logger.debug("Could not inspect outbound {} for the fake block overlay: {}", event.getPacketType(), e.toString());
+                }
+            }
+        };
+        protocolManager.addPacketListener(listener);
+        logger.debug("FakeBlockOverlay listener registered.");
+    }
+
+    /**
+     * Unregisters the listener and forgets every tracked block. Does not send anything.
+     */
+    public void stop() {
+        if (listener != null) {
+            protocolManager.removePacketListener(listener);
+            listener = null;
+        }
+        overlays.clear();
+        ownPackets.clear();
+    }
+
+    /**
+     * Shows a fake block to a player and tracks it until it is {@link #release released}.
+     * Positions in another world than the player's are ignored.
+     */
+    public void show(@NotNull Player player, @NotNull Location location, @NotNull BlockData fakeData) {
+        show(player, location, BlockDataCache.wrap(fakeData));
+    }
+
+    /**
+     * Shows a fake block to a player and tracks it until it is {@link #release released}.
+     * Positions in another world than the player's are ignored.
+     */
+    public void show(@NotNull Player player, @NotNull Location location, @NotNull WrappedBlockData fakeData) {
+        if (!player.getWorld().equals(location.getWorld())) return;
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+
+        PlayerOverlay overlay = overlays.computeIfAbsent(player.getUniqueId(), k -> new PlayerOverlay());
+        synchronized (overlay) {
+            overlay.add(pack(x, y, z), fakeData);
+        }
+        UUID playerUUID = player.getUniqueId();
+        packetDispatcher.send(player, () -> {
+            PacketContainer packet = PacketWriters.blockChange(x, y, z, fakeData);
+            ownPackets.put(packet.getHandle(), playerUUID);
+            return packet;
+        });
+    }
+
+    /**
+     * Drops one reference to a fake block. When the last one goes and the client still shows the fake,
+     * the block's current real state is sent.
+     *
+     * @return True if a revert packet was sent.
+     */
+    public boolean release(@NotNull Player player, @NotNull Location location) {
+        if (!releaseReference(player, location)) return false;
+
+        EffectUtils.sendBlockChange(player, location, location.getBlock().getBlockData(), plugin);
+        return true;
+    }
+
+    /**
+     * Like {@link #release(Player, Location)}, but queues the real state on a batch instead of sending it.
+     *
+     * @return True if the block was queued.
+     */
+    public boolean release(@NotNull Player player, @NotNull Location location, @NotNull ClientResync resync) {
+        if (!releaseReference(player, location)) return false;
+
+        resync.resendBlock(location);
+        return true;
+    }
+
+    /**
+     * @return True if this was the last reference, the client still shows the fake and the chunk is loaded.
+     */
+    private boolean releaseReference(@NotNull Player player, @NotNull Location location) {
+        UUID playerUUID = player.getUniqueId();
+        PlayerOverlay overlay = overlays.get(playerUUID);
+        if (overlay == null) return false;
+
+        boolean stillFaked;
+        synchronized (overlay) {
+            stillFaked = overlay.release(pack(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        }
+        overlays.computeIfPresent(playerUUID, (uuid, current) -> current == overlay && overlay.isEmpty() ? null : current);
+
+        if (!stillFaked || !player.isOnline()) return false;
+
+        World world = location.getWorld();
+        // An unloaded chunk is resent in full once it loads again.
+        return world != null && world.isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    /**
+     * @return True if the block at this position currently shows a fake state to the player.
+     */
+    public boolean isFaked(@NotNull UUID playerUUID, @NotNull Location location) {
+        PlayerOverlay overlay = overlays.get(playerUUID);
+        if (overlay == null) return false;
+
+        synchronized (overlay) {
+            return overlay.isFaked(pack(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        }
+    }
+
+    /**
+     * Forgets the tracked blocks of an unloaded chunk for every player in its world.
+     * The chunk is sent in full when it loads again, so releasing them later sends nothing.
+     *
+     * @return The number of blocks forgotten.
+     */
+    public int forgetChunk(@NotNull World world, int chunkX, int chunkZ) {
+        if (overlays.isEmpty()) return 0;
+
+        int forgotten = 0;
+        for (Player player : world.getPlayers()) {
+            PlayerOverlay overlay = overlays.get(player.getUniqueId());
+            if (overlay == null) continue;
+
+            synchronized (overlay) {
+                forgotten += overlay.removeChunk(chunkX, chunkZ);
+            }
+            overlays.computeIfPresent(player.getUniqueId(), (uuid, current) -> current == overlay && overlay.isEmpty() ? null : current);
+        }
+        return forgotten;
+    }
+
+    /**
+     * Forgets every tracked block of a player, e.g. on quit or when their client dropped the world.
+     */
+    public void removePlayer(@NotNull UUID playerUUID) {
+        overlays.remove(playerUUID);
+        synchronized (ownPackets) {
+            ownPackets.values().removeIf(playerUUID::equals);
+        }
+    }
+
+    /**
+     * @return The number of tracked fake blocks over all players.
+     */
+    public int getTrackedCount() {
+        int count = 0;
+        for (PlayerOverlay overlay : overlays.values()) {
+            synchronized (overlay) {
+                count += overlay.size;
+            }
+        }
+        return count;
+    }
+
+    private void handleRealUpdate(@NotNull PlayerOverlay overlay, @NotNull PacketType type, @NotNull PacketContainer packet) {
+        if (type == PacketType.Play.Server.BLOCK_CHANGE) {
+            BlockPosition position = packet.getBlockPositionModifier().read(0);
+            synchronized (overlay) {
+                overlay.realUpdate(pack(position.getX(), position.getY(), position.getZ()));
+            }
+        } else if (type == PacketType.Play.Server.MULTI_BLOCK_CHANGE) {
+            BlockPosition section = packet.getSectionPositions().read(0);
+            short[] positions = packet.getShortArrays().read(0);
+            int baseX = section.getX() << 4;
+            int baseY = section.getY() << 4;
+            int baseZ = section.getZ() << 4;
+            synchronized (overlay) {
+                for (short position : positions) {
+                    overlay.realUpdate(pack(baseX + (position >>> 8 & 0xF), baseY + (position & 0xF), baseZ + (position >>> 4 & 0xF)));
+                }
+            }
+        } else {
+            int chunkX = packet.getIntegers().read(0);
+            int chunkZ = packet.getIntegers().read(1);
+            synchronized (overlay) {
+                overlay.realChunk(chunkX, chunkZ);
+            }
+        }
+    }
+
+    /**
+     * Fake blocks of one player: packed position -> fake state and reference count, with linear probing.
+     * A null state means a real update has since overwritten the fake on the client.
+     * Guarded by its own monitor.
+     */
+    private static final class PlayerOverlay {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private WrappedBlockData[] states = new WrappedBlockData[INITIAL_CAPACITY];
+        private int[] refs = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        /**
+         * @return The index of the key, or {@code -(insertion index) - 1}.
+         */
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (refs[i] != 0) {
+                if (keys[i] == key) return i;
+                i = (i + 1) & mask;
+            }
+            return -i - 1;
+        }
+
+        void add(long key, @NotNull WrappedBlockData state) {
+            int index = find(key);
+            if (index >= 0) {
+                refs[index]++;
+                states[index] = state;
+                return;
+            }
+
+            index = -index - 1;
+            keys[index] = key;
+            states[index] = state;
+            refs[index] = 1;
+            if (++size * 4 >= keys.length * 3) {
+                grow();
+            }
+        }
+
+        /**
+         * @return True if this was the last reference and the client still shows the fake.
+         */
+        boolean release(long key) {
+            int index = find(key);
+            if (index < 0) return false;
+
+            if (--refs[index] > 0) return false;
+
+            boolean stillFaked = states[index] != null;
+            removeAt(index);
+            return stillFaked;
+        }
+
+        boolean isFaked(long key) {
+            int index = find(key);
+            return index >= 0 && states[index] != null;
+        }
+
+        void realUpdate(long key) {
+            if (size == 0) return;
+
+            int index = find(key);
+            if (index >= 0) {
+                states[index] = null;
+            }
+        }
+
+        void realChunk(int chunkX, int chunkZ) {
+            if (size == 0) return;
+
+            for (int i = 0; i < keys.length; i++) {
+                if (refs[i] != 0 && unpackX(keys[i]) >> 4 == chunkX && unpackZ(keys[i]) >> 4 == chunkZ) {
+                    states[i] = null;
+                }
+            }
+        }
+
+        int removeChunk(int chunkX, int chunkZ) {
+            if (size == 0) return 0;
+
+            int removed = 0;
+            int i = 0;
+            while (i < keys.length) {
+                if (refs[i] != 0 && unpackX(keys[i]) >> 4 == chunkX && unpackZ(keys[i]) >> 4 == chunkZ) {
+                    // Backward shift may move another entry into this slot, so look at it again.
+                    removeAt(i);
+                    removed++;
+                } else {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void removeAt(int index) {
+            int mask = keys.length - 1;
+            int hole = index;
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                if (refs[next] == 0) break;
+
+                int home = slot(keys[next], mask);
+                boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+                if (movable) {
+                    keys[hole] = keys[next];
+                    states[hole] = states[next];
+                    refs[hole] = refs[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0L;
+            states[hole] = null;
+            refs[hole] = 0;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            WrappedBlockData[] oldStates = states;
+            int[] oldRefs = refs;
+
+            keys = new long[oldKeys.length * 2];
+            states = new WrappedBlockData[oldKeys.length * 2];
+            refs = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldRefs[i] == 0) continue;
+
+                int index = -find(oldKeys[i]) - 1;
+                keys[index] = oldKeys[i];
+                states[index] = oldStates[i];
+                refs[index] = oldRefs[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.ladyluh.desync.packets;
+
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.managers.ConfigurationManager;
+import org.slf4j.Logger;
+
+import java.util.BitSet;
+
+
+/**
+ * Hands out entity ids for fake entities (stalkers, nulls...) that only exist on a client.
+ * <p>
+ * Ids come from a configured range of negative ids. The server counts its own entity ids up from zero,
+ * so they can never collide, and the range can be moved if another plugin uses the same block.
+ * Ids of despawned fakes go back on a primitive free-list and are handed out again, so the range is
+ * never exhausted by a long uptime.
+ */
+public class FakeEntityIds {
+
+    /**
+     * Returned by {@link #allocate()} when every id of the range is in use. Never part of a range.
+     */
+    public static final int NO_ID = 0;
+
+    private final Logger logger;
+    private final ConfigurationManager configManager;
+
+    private volatile int rangeStart;
+    private volatile int rangeSize;
+
+    private BitSet allocated;
+    private int[] freeList;
+    private int freeCount;
+    private int nextUnused;
+    private int allocatedCount;
+
+    public FakeEntityIds(@NotNull Desync plugin, @NotNull ConfigurationManager configManager) {
+        this.logger = plugin.getPluginLogger();
+        this.configManager = configManager;
+        applyRange(configManager.getFakeEntityIdStart(), configManager.getFakeEntityIdCount());
+    }
+
+    /**
+     * Called by ConfigurationManager after config is loaded or reloaded.
+     * A new range only applies while no fake entity is alive, otherwise at the next reload or restart.
+     */
+    public synchronized void reloadSettings() {
+        int start = configManager.getFakeEntityIdStart();
+        int size = configManager.getFakeEntityIdCount();
+        if (start == rangeStart && size == rangeSize) return;
+
+        if (allocatedCount > 0) {
+            logger.warn("Fake entity id range changed while {} fake entities are alive. Keeping the old range for now.", allocatedCount);
+            return;
+        }
+        applyRange(start, size);
+    }
+
+    /**
+     * Takes an unused id.
+     *
+     * @return The id, or {@link #NO_ID} if the range is exhausted.
+     */
+    public synchronized int allocate() {
+        int offset;
+        if (freeCount > 0) {
+            offset = freeList[--freeCount];
+        } else if (nextUnused < rangeSize) {
+            offset = nextUnused++;
+        } else {
+            logger.warn("All {} fake entity ids are in use, cannot spawn another fake entity.", rangeSize);
+            return NO_ID;
+        }
+
+        allocated.set(offset);
+        allocatedCount++;
+        return rangeStart + offset;
+    }
+
+    /**
+     * Returns an id after its entity was despawned on the client.
+     *
+     * @return True if the id was allocated and is now free again.
+     */
+    public synchronized boolean release(int entityId) {
+        if (!isInRange(entityId)) return false;
+
+        int offset = entityId - rangeStart;
+        if (!allocated.get(offset)) {
+            logger.debug("Ignoring release of fake entity id {}, it is not allocated.", entityId);
+            return false;
+        }
+
+        allocated.clear(offset);
+        allocatedCount--;
+        freeList[freeCount++] = offset;
+        return true;
+    }
+
+    /**
+     * @return True if the id lies in Desync's fake entity range, whether or not it is currently used.
+     */
+    public boolean isInRange(int entityId) {
+        int start = rangeStart;
+        // In longs, the distance overflows an int for a range starting near Integer.MIN_VALUE.
+        return entityId >= start && (long) entityId - start < rangeSize;
+    }
+
+    /**
+     * @return The number of ids currently in use.
+     */
+    public synchronized int getAllocatedCount() {
+        return allocatedCount;
+    }
+
+    private synchronized void applyRange(int start, int size) {
+        this.allocated = new BitSet(size);
+        this.freeList = new int[size];
+        this.freeCount = 0;
+        this.nextUnused = 0;
+        this.allocatedCount = 0;
+        this.rangeStart = start;
+        this.rangeSize = size;
+        logger.debug("Fake entity ids: {} to {}.", start, start + size - 1);
+    }
+}
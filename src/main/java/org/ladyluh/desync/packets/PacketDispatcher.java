@@ -0,0 +1,639 @@
+package org.ladyluh.desync.packets;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.managers.ConfigurationManager;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+
+/**
+ * Moves packet construction and sending off the main thread.
+ * <p>
+ * Callers capture the immutable inputs they need (entity ids, angles, positions...) on the main thread
+ * and hand over either a finished packet or a supplier that builds it. Every player gets a serial lane
+ * on a small dedicated pool, so packets for one player always reach ProtocolLib in submission order
+ * while different players are processed in parallel.
+ * <p>
+ * Each lane also paces its traffic. Packet sizes are estimated per type and charged against a per-player
+ * token bucket ({@code packets.max-bytes-per-second}), and nothing is written while the player's Netty
+ * channel reports itself unwritable. Structural packets (spawns, destroys, block reverts...) are never
+ * dropped: the lane simply waits. Ambient packets (particles, sounds, animations, head turns) are moved
+ * to a side queue instead and dropped once they are older than {@code packets.deferred-max-age-ms},
+ * so a slow connection loses atmosphere rather than getting its real gameplay traffic delayed. A deferred
+ * head turn or animation of an entity is dropped as well once a later structural packet for that entity
+ * goes out, so it can never land after the entity moved, despawned or had its id reused.
+ * <p>
+ * When async dispatch is disabled in the config (or the pool is not running), packets are sent inline
+ * without pacing.
+ * <p>
+ * Packets submitted while a {@link #setSource source} is set are tagged with it, and a packet that fails to
+ * build or send is reported to the {@link #setFailureListener failure listener} with its source, so the
+ * circuit breaker of the event that sent it sees failures that only surface on the dispatch threads.
+ */
+public class PacketDispatcher {
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 1000L;
+    private static final long PUMP_INTERVAL_MS = 50L;
+    private static final int MAX_DEFERRED_PER_PLAYER = 64;
+    private static final int DEFAULT_PACKET_SIZE = 32;
+
+    /**
+     * Rough wire sizes in bytes, including framing. Only used for pacing, so they err on the high side.
+     */
+    private static final Map<PacketType, Integer> ESTIMATED_SIZES = Map.ofEntries(
+            Map.entry(PacketType.Play.Server.ENTITY_LOOK, 10),
+            Map.entry(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK, 16),
+            Map.entry(PacketType.Play.Server.ENTITY_HEAD_ROTATION, 8),
+            Map.entry(PacketType.Play.Server.ENTITY_TELEPORT, 38),
+            Map.entry(PacketType.Play.Server.ANIMATION, 8),
+            Map.entry(PacketType.Play.Server.ENTITY_STATUS, 8),
+            Map.entry(PacketType.Play.Server.ENTITY_DESTROY, 12),
+            Map.entry(PacketType.Play.Server.ENTITY_METADATA, 24),
+            Map.entry(PacketType.Play.Server.ENTITY_EQUIPMENT, 48),
+            Map.entry(PacketType.Play.Server.SPAWN_ENTITY, 56),
+            Map.entry(PacketType.Play.Server.BLOCK_CHANGE, 14),
+            Map.entry(PacketType.Play.Server.NAMED_SOUND_EFFECT, 40),
+            Map.entry(PacketType.Play.Server.WORLD_PARTICLES, 48),
+            Map.entry(PacketType.Play.Server.SET_SLOT, 64),
+            Map.entry(PacketType.Play.Server.PLAYER_INFO, 768),
+            Map.entry(PacketType.Play.Server.PLAYER_INFO_REMOVE, 24),
+            Map.entry(PacketType.Play.Server.SYSTEM_CHAT, 160),
+            Map.entry(PacketType.Play.Server.SET_ACTION_BAR_TEXT, 96)
+    );
+
+    /**
+     * Packets that only add atmosphere and can be delayed or dropped without desyncing the client.
+     */
+    private static final Set<PacketType> AMBIENT_TYPES = Set.of(
+            PacketType.Play.Server.WORLD_PARTICLES,
+            PacketType.Play.Server.NAMED_SOUND_EFFECT,
+            PacketType.Play.Server.ANIMATION,
+            PacketType.Play.Server.ENTITY_LOOK,
+            PacketType.Play.Server.ENTITY_HEAD_ROTATION
+    );
+
+    /**
+     * Packets about a single entity, whose entity id is their first integer field.
+     */
+    private static final Set<PacketType> SINGLE_ENTITY_TYPES = Set.of(
+            PacketType.Play.Server.ENTITY_LOOK,
+            PacketType.Play.Server.ENTITY_HEAD_ROTATION,
+            PacketType.Play.Server.ANIMATION,
+            PacketType.Play.Server.REL_ENTITY_MOVE,
+            PacketType.Play.Server.REL_ENTITY_MOVE_LOOK,
+            PacketType.Play.Server.ENTITY_TELEPORT,
+            PacketType.Play.Server.ENTITY_VELOCITY,
+            PacketType.Play.Server.ENTITY_STATUS,
+            PacketType.Play.Server.ENTITY_METADATA,
+            PacketType.Play.Server.ENTITY_EQUIPMENT,
+            PacketType.Play.Server.SPAWN_ENTITY
+    );
+    private static final int NO_ENTITY = Integer.MIN_VALUE;
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final ProtocolManager protocolManager;
+    private final ConfigurationManager configManager;
+    private final ChannelProbe channelProbe;
+    private final Map<UUID, Lane> lanes = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> source = new ThreadLocal<>();
+    private volatile Consumer<String> failureListener;
+
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder deferredPackets = new LongAdder();
+    private final LongAdder droppedPackets = new LongAdder();
+
+    private volatile ScheduledExecutorService executor;
+    private boolean asyncEnabled;
+    private int dispatchThreads;
+    private volatile int bytesPerSecond;
+    private volatile long deferredMaxAgeNanos;
+
+    public PacketDispatcher(@NotNull Desync plugin, @NotNull ProtocolManager protocolManager, @NotNull ConfigurationManager configManager) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+        this.protocolManager = protocolManager;
+        this.configManager = configManager;
+        this.channelProbe = new ChannelProbe(logger);
+        loadSettings();
+    }
+
+    private void loadSettings() {
+        this.asyncEnabled = configManager.isAsyncPacketDispatch();
+        this.dispatchThreads = configManager.getPacketDispatchThreads();
+        this.bytesPerSecond = configManager.getMaxPacketBytesPerSecond();
+        this.deferredMaxAgeNanos = TimeUnit.MILLISECONDS.toNanos(configManager.getDeferredPacketMaxAgeMs());
+    }
+
+    /**
+     * Starts the dispatch pool if async dispatch is enabled.
+     */
+    public void start() {
+        if (executor != null) {
+            logger.warn("PacketDispatcher start requested, but it is already running.");
+            return;
+        }
+        if (!asyncEnabled) {
+            logger.info("Async packet dispatch disabled, packets will be sent on the calling thread.");
+            return;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "Desync-PacketDispatch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.scheduleAtFixedRate(this::pumpWaitingLanes, PUMP_INTERVAL_MS, PUMP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        executor = pool;
+        logger.info("Async packet dispatch started with {} thread(s), {} bytes/s per player.", dispatchThreads, bytesPerSecond);
+    }
+
+    /**
+     * Stops the dispatch pool, letting already queued packets drain for a short while. Whatever is still
+     * queued after that, including lanes waiting for bandwidth, is sent inline without pacing.
+     * Anything submitted afterwards is sent inline.
+     */
+    public void stop() {
+        ScheduledExecutorService current = executor;
+        executor = null;
+        if (current == null) return;
+
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Packet dispatch pool did not drain within {}ms, sending remaining packets inline.", SHUTDOWN_TIMEOUT_MS);
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // The pump went with the pool, so waiting lanes would never run again. With no executor they drain inline.
+        for (Lane lane : lanes.values()) {
+            lane.schedule();
+        }
+        lanes.clear();
+        logger.info("Async packet dispatch stopped.");
+    }
+
+    /**
+     * Reloads settings and restarts the pool if the thread settings changed.
+     * Bandwidth settings apply to running lanes immediately.
+     */
+    public void reloadSettings() {
+        boolean oldAsync = asyncEnabled;
+        int oldThreads = dispatchThreads;
+        loadSettings();
+
+        if (oldAsync != asyncEnabled || oldThreads != dispatchThreads) {
+            logger.info("Packet dispatch settings changed (async: {} -> {}, threads: {} -> {}). Restarting...", oldAsync, asyncEnabled, oldThreads, dispatchThreads);
+            stop();
+            start();
+        }
+    }
+
+    /**
+     * Tags the packets submitted on this thread from now on with the event sending them.
+     *
+     * @param eventKey The event key, or null to stop tagging.
+     */
+    public void setSource(@Nullable String eventKey) {
+        if (eventKey == null) {
+            source.remove();
+        } else {
+            source.set(eventKey);
+        }
+    }
+
+    /**
+     * @param listener Called with the source of every tagged packet that could not be built or sent, on the
+     *                 thread that tried. Must be thread-safe.
+     */
+    public void setFailureListener(@Nullable Consumer<String> listener) {
+        this.failureListener = listener;
+    }
+
+    /**
+     * Queues an already built packet for the player.
+     *
+     * @param player The receiving player.
+     * @param packet The packet. Must not be modified by the caller after this call.
+     */
+    public void send(@NotNull Player player, @NotNull PacketContainer packet) {
+        send(player, () -> packet);
+    }
+
+    /**
+     * Queues a packet that is built on the dispatch thread.
+     * The supplier must only use values captured on the main thread, never live Bukkit state.
+     *
+     * @param player        The receiving player.
+     * @param packetBuilder Builds the packet right before it is sent.
+     */
+    public void send(@NotNull Player player, @NotNull Supplier<PacketContainer> packetBuilder) {
+        if (executor == null) {
+            if (player.isOnline()) {
+                deliver(player, player.getName(), packetBuilder, source.get());
+            }
+            return;
+        }
+
+        lanes.computeIfAbsent(player.getUniqueId(), k -> new Lane()).submit(new PendingPacket(player, packetBuilder, source.get()));
+    }
+
+    /**
+     * Runs a task on the main thread once every packet queued for the player before it has been sent, for
+     * server-side resends (inventory updates...) that must not overtake the fakes they undo.
+     * Without a running pool, the task runs right away.
+     */
+    public void runAfterQueued(@NotNull Player player, @NotNull Runnable task) {
+        if (executor == null) {
+            runOnMainThread(task);
+            return;
+        }
+
+        lanes.computeIfAbsent(player.getUniqueId(), k -> new Lane()).submit(new PendingPacket(player, task));
+    }
+
+    /**
+     * Drops the lane of a player that left. Packets still queued for them are discarded.
+     */
+    public void removePlayer(@NotNull UUID playerUUID) {
+        Lane lane = lanes.remove(playerUUID);
+        if (lane != null) {
+            lane.close();
+        }
+    }
+
+    /**
+     * @return Estimated bytes written by the async lanes since startup.
+     */
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    /**
+     * @return Ambient packets held back because a connection was saturated or over budget.
+     */
+    public long getDeferredPackets() {
+        return deferredPackets.sum();
+    }
+
+    /**
+     * @return Ambient packets discarded because they could not be sent in time.
+     */
+    public long getDroppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    /**
+     * Builds and sends a packet without pacing. Does not touch the Bukkit API, a player who left has had their
+     * lane closed by {@link #removePlayer}.
+     */
+    private void deliver(@NotNull Player player, @NotNull String playerName, @NotNull Supplier<PacketContainer> packetBuilder,
+                         @Nullable String packetSource) {
+        try {
+            protocolManager.sendServerPacket(player, packetBuilder.get());
+        } catch (Exception e) {
+            logger.error("Failed to dispatch packet to {}", playerName, e);
+            reportFailure(packetSource);
+        }
+    }
+
+    private void write(@NotNull PendingPacket pending) {
+        try {
+            protocolManager.sendServerPacket(pending.player, pending.packet);
+            sentBytes.add(pending.size);
+        } catch (Exception e) {
+            logger.error("Failed to dispatch packet to {}", pending.playerName, e);
+            reportFailure(pending.source);
+        }
+    }
+
+    private void runOnMainThread(@NotNull Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Queued packet dispatch task failed", e);
+            }
+            return;
+        }
+        if (!plugin.isEnabled()) return;
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Queued packet dispatch task failed", e);
+            }
+        });
+    }
+
+    private void reportFailure(@Nullable String packetSource) {
+        Consumer<String> listener = failureListener;
+        if (packetSource == null || listener == null) return;
+
+        try {
+            listener.accept(packetSource);
+        } catch (Exception e) {
+            logger.error("Packet failure listener failed for '{}'", packetSource, e);
+        }
+    }
+
+    /**
+     * Re-runs lanes that are waiting for bandwidth or a writable channel. Nothing else would wake them up.
+     */
+    private void pumpWaitingLanes() {
+        for (Lane lane : lanes.values()) {
+            if (lane.hasWork()) {
+                lane.schedule();
+            }
+        }
+    }
+
+    private static int estimateSize(@NotNull PacketType type) {
+        return ESTIMATED_SIZES.getOrDefault(type, DEFAULT_PACKET_SIZE);
+    }
+
+    /**
+     * A submitted packet. The packet is built lazily on the lane, once, and kept if the lane has to wait.
+     * An entry with a task instead of a packet only marks a point in the lane, see {@link #runAfterQueued}.
+     * The player's name is captured on submission, lanes must not call the Bukkit API.
+     */
+    private static final class PendingPacket {
+
+        private final Player player;
+        private final String playerName;
+        private final Supplier<PacketContainer> packetBuilder;
+        private final Runnable task;
+        private final String source;
+        private PacketContainer packet;
+        private int size;
+        private long deferredAt;
+        private int entityId = NO_ENTITY;
+
+        PendingPacket(@NotNull Player player, @NotNull Supplier<PacketContainer> packetBuilder, @Nullable String source) {
+            this.player = player;
+            this.playerName = player.getName();
+            this.packetBuilder = packetBuilder;
+            this.task = null;
+            this.source = source;
+        }
+
+        PendingPacket(@NotNull Player player, @NotNull Runnable task) {
+            this.player = player;
+            this.playerName = player.getName();
+            this.packetBuilder = null;
+            this.task = task;
+            this.source = null;
+        }
+    }
+
+    /**
+     * Serial queue for one player. At most one drain of a lane runs at a time,
+     * which is what keeps the per-player ordering and lets the budget fields go unsynchronized.
+     */
+    private final class Lane implements Runnable {
+
+        private final Queue<PendingPacket> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final Deque<PendingPacket> deferred = new ArrayDeque<>();
+        private volatile boolean closed = false;
+        private volatile boolean waiting = false;
+
+        private boolean primed = false;
+        private double tokens;
+        private long lastRefill;
+        private Object channel;
+
+        void submit(@NotNull PendingPacket pending) {
+            queue.add(pending);
+            schedule();
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        boolean hasWork() {
+            return waiting && !closed;
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+
+            ExecutorService current = executor;
+            if (current != null) {
+                try {
+                    current.execute(this);
+                    return;
+                } catch (RejectedExecutionException ignored) {
+                    // Pool is shutting down, drain on the calling thread instead.
+                }
+            }
+            run();
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (closed) {
+                    deferred.clear();
+                    return;
+                }
+                if (executor == null) {
+                    drainUnpaced();
+                } else {
+                    drain();
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (!waiting && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Shutdown path: flush everything in order and stop pacing.
+         */
+        private void drainUnpaced() {
+            PendingPacket pending;
+            while ((pending = deferred.pollFirst()) != null) {
+                write(pending);
+            }
+            while ((pending = queue.poll()) != null) {
+                if (pending.task != null) {
+                    runOnMainThread(pending.task);
+                } else if (pending.packet != null) {
+                    write(pending);
+                } else {
+                    deliver(pending.player, pending.playerName, pending.packetBuilder, pending.source);
+                }
+            }
+            waiting = false;
+        }
+
+        private void drain() {
+            long now = System.nanoTime();
+            refill(now);
+            boolean writable = isChannelWritable();
+
+            flushDeferred(now, writable);
+
+            PendingPacket pending;
+            while ((pending = queue.peek()) != null) {
+                if (pending.task != null) {
+                    queue.poll();
+                    runOnMainThread(pending.task);
+                    continue;
+                }
+                if (pending.packet == null && !build(pending)) {
+                    queue.poll();
+                    continue;
+                }
+
+                if (AMBIENT_TYPES.contains(pending.packet.getType())) {
+                    queue.poll();
+                    if (writable && deferred.isEmpty() && tokens >= pending.size) {
+                        spend(pending);
+                    } else {
+                        defer(pending, now);
+                    }
+                    continue;
+                }
+
+                // Structural packets are never dropped, the lane waits for room instead.
+                if (!writable || tokens < Math.min(pending.size, bytesPerSecond)) {
+                    waiting = true;
+                    return;
+                }
+                queue.poll();
+                if (!deferred.isEmpty()) {
+                    dropSupersededDeferred(pending.packet);
+                }
+                spend(pending);
+            }
+
+            waiting = !deferred.isEmpty();
+        }
+
+        private void flushDeferred(long now, boolean writable) {
+            PendingPacket pending;
+            while ((pending = deferred.peekFirst()) != null) {
+                if (now - pending.deferredAt > deferredMaxAgeNanos) {
+                    deferred.pollFirst();
+                    droppedPackets.increment();
+                    continue;
+                }
+                if (!writable || tokens < pending.size) return;
+
+                deferred.pollFirst();
+                spend(pending);
+            }
+        }
+
+        /**
+         * Drops the deferred packets about the entities a structural packet is for, they would arrive after it.
+         */
+        private void dropSupersededDeferred(@NotNull PacketContainer structural) {
+            PacketType type = structural.getType();
+            List<Integer> entityIds;
+            if (type == PacketType.Play.Server.ENTITY_DESTROY) {
+                entityIds = structural.getIntLists().read(0);
+            } else if (SINGLE_ENTITY_TYPES.contains(type)) {
+                entityIds = List.of(structural.getIntegers().read(0));
+            } else {
+                return;
+            }
+
+            Iterator<PendingPacket> iterator = deferred.iterator();
+            while (iterator.hasNext()) {
+                int entityId = iterator.next().entityId;
+                if (entityId != NO_ENTITY && entityIds.contains(entityId)) {
+                    iterator.remove();
+                    droppedPackets.increment();
+                }
+            }
+        }
+
+        private void defer(@NotNull PendingPacket pending, long now) {
+            if (deferred.size() >= MAX_DEFERRED_PER_PLAYER) {
+                deferred.pollFirst();
+                droppedPackets.increment();
+            }
+            pending.deferredAt = now;
+            deferred.addLast(pending);
+            deferredPackets.increment();
+        }
+
+        private boolean build(@NotNull PendingPacket pending) {
+            try {
+                pending.packet = pending.packetBuilder.get();
+                PacketType type = pending.packet.getType();
+                pending.size = estimateSize(type);
+                if (AMBIENT_TYPES.contains(type) && SINGLE_ENTITY_TYPES.contains(type)) {
+                    pending.entityId = pending.packet.getIntegers().read(0);
+                }
+                return true;
+            } catch (Exception e) {
+                logger.error("Failed to build packet for {}", pending.playerName, e);
+                reportFailure(pending.source);
+                return false;
+            }
+        }
+
+        private void spend(@NotNull PendingPacket pending) {
+            tokens -= pending.size;
+            write(pending);
+        }
+
+        private void refill(long now) {
+            int capacity = bytesPerSecond;
+            if (!primed) {
+                primed = true;
+                tokens = capacity;
+                lastRefill = now;
+                return;
+            }
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * capacity / 1_000_000_000.0);
+            lastRefill = now;
+        }
+
+        private boolean isChannelWritable() {
+            if (channel == null) {
+                PendingPacket head = queue.peek();
+                if (head == null) head = deferred.peekFirst();
+                if (head == null) return true;
+
+                channel = channelProbe.findChannel(head.player, head.playerName);
+            }
+            return channelProbe.isWritable(channel);
+        }
+    }
+}
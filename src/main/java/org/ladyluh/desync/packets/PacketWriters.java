@@ -0,0 +1,393 @@
+package org.ladyluh.desync.packets;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import com.comphenix.protocol.wrappers.WrappedParticle;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+
+/**
+ * Precompiled writers for the packet types sent from the per-tick effect loops
+ * (look, relative move, head rotation, teleport, block change, sound and particles).
+ * <p>
+ * On startup the NMS packet class behind each type is inspected once and its fields are
+ * bound to {@link MethodHandle} setters, so building a packet no longer walks ProtocolLib's
+ * structure modifiers for every {@code getIntegers()/getBytes()/...} call.
+ * If a type cannot be resolved (or a handle fails at runtime) that type permanently falls
+ * back to the regular ProtocolLib accessors.
+ */
+public final class PacketWriters {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static volatile Layout entityLook;
+    private static volatile Layout relMoveLook;
+    private static volatile Layout headRotation;
+    private static volatile Layout teleport;
+    private static volatile Layout blockChange;
+    private static volatile Layout soundEffect;
+    private static volatile Layout particles;
+
+    private static Logger logger;
+
+    private PacketWriters() {
+    }
+
+    /**
+     * Resolves the packet layouts for all hot packet types.
+     * Should be called once after ProtocolLib has been hooked.
+     *
+     * @param pluginLogger The logger used to report resolution failures.
+     */
+    public static void init(@NotNull Logger pluginLogger) {
+        logger = pluginLogger;
+
+        entityLook = tryResolve(PacketType.Play.Server.ENTITY_LOOK,
+                new Class<?>[]{int.class, byte.class, byte.class, boolean.class},
+                int.class, byte.class, byte.class, boolean.class);
+        relMoveLook = tryResolve(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK,
+                new Class<?>[]{int.class, short.class, short.class, short.class, byte.class, byte.class, boolean.class},
+                int.class, short.class, short.class, short.class, byte.class, byte.class, boolean.class, boolean.class, boolean.class);
+        headRotation = tryResolve(PacketType.Play.Server.ENTITY_HEAD_ROTATION, null,
+                int.class, byte.class);
+        teleport = tryResolve(PacketType.Play.Server.ENTITY_TELEPORT, null,
+                int.class, double.class, double.class, double.class, byte.class, byte.class, boolean.class);
+        blockChange = tryResolve(PacketType.Play.Server.BLOCK_CHANGE, null,
+                MinecraftReflection.getBlockPositionClass(), MinecraftReflection.getIBlockDataClass());
+        soundEffect = tryResolve(PacketType.Play.Server.NAMED_SOUND_EFFECT, null,
+                int.class, int.class, int.class, float.class, float.class, long.class);
+        particles = tryResolve(PacketType.Play.Server.WORLD_PARTICLES, null,
+                double.class, double.class, double.class, float.class, float.class, float.class, float.class, int.class, boolean.class);
+
+        long resolved = Arrays.stream(new Layout[]{entityLook, relMoveLook, headRotation, teleport, blockChange, soundEffect, particles})
+                .filter(Objects::nonNull)
+                .count();
+        logger.info("Resolved {}/7 precompiled packet writers.", resolved);
+    }
+
+    /**
+     * Builds an ENTITY_LOOK packet.
+     */
+    public static @NotNull PacketContainer entityLook(int entityId, byte yaw, byte pitch, boolean onGround) {
+        Layout layout = entityLook;
+        if (layout != null) {
+            try {
+                Object handle;
+                if (layout.constructor() != null) {
+                    handle = (Object) layout.constructor().invokeExact(entityId, yaw, pitch, onGround);
+                    return new PacketContainer(layout.type(), handle);
+                }
+                PacketContainer packet = new PacketContainer(layout.type());
+                handle = packet.getHandle();
+                layout.setter(0).invokeExact(handle, entityId);
+                layout.setter(1).invokeExact(handle, yaw);
+                layout.setter(2).invokeExact(handle, pitch);
+                layout.setter(3).invokeExact(handle, onGround);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.ENTITY_LOOK);
+        packet.getIntegers().write(0, entityId);
+        packet.getBytes().write(0, yaw).write(1, pitch);
+        packet.getBooleans().write(0, onGround);
+        return packet;
+    }
+
+    /**
+     * Builds a REL_ENTITY_MOVE_LOOK packet.
+     * Deltas are in 1/4096 block units (see {@link #toDeltaUnits(double)}) and must each fit in a short, i.e. under 8 blocks.
+     */
+    public static @NotNull PacketContainer relEntityMoveLook(int entityId, short deltaX, short deltaY, short deltaZ, byte yaw, byte pitch, boolean onGround) {
+        Layout layout = relMoveLook;
+        if (layout != null) {
+            try {
+                Object handle;
+                if (layout.constructor() != null) {
+                    handle = (Object) layout.constructor().invokeExact(entityId, deltaX, deltaY, deltaZ, yaw, pitch, onGround);
+                    return new PacketContainer(layout.type(), handle);
+                }
+                PacketContainer packet = new PacketContainer(layout.type());
+                handle = packet.getHandle();
+                layout.setter(0).invokeExact(handle, entityId);
+                layout.setter(1).invokeExact(handle, deltaX);
+                layout.setter(2).invokeExact(handle, deltaY);
+                layout.setter(3).invokeExact(handle, deltaZ);
+                layout.setter(4).invokeExact(handle, yaw);
+                layout.setter(5).invokeExact(handle, pitch);
+                layout.setter(6).invokeExact(handle, onGround);
+                layout.setter(7).invokeExact(handle, true);
+                layout.setter(8).invokeExact(handle, true);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK);
+        packet.getIntegers().write(0, entityId);
+        packet.getShorts().write(0, deltaX).write(1, deltaY).write(2, deltaZ);
+        packet.getBytes().write(0, yaw).write(1, pitch);
+        packet.getBooleans().write(0, onGround).write(1, true).write(2, true);
+        return packet;
+    }
+
+    /**
+     * Encodes a coordinate the way the client tracks entity positions for relative moves.
+     * The delta of a move is the difference of the encoded old and new coordinates.
+     */
+    public static long toDeltaUnits(double coordinate) {
+        return Math.round(coordinate * 4096.0D);
+    }
+
+    /**
+     * Builds an ENTITY_HEAD_ROTATION packet.
+     */
+    public static @NotNull PacketContainer headRotation(int entityId, byte headYaw) {
+        Layout layout = headRotation;
+        if (layout != null) {
+            try {
+                PacketContainer packet = new PacketContainer(layout.type());
+                Object handle = packet.getHandle();
+                layout.setter(0).invokeExact(handle, entityId);
+                layout.setter(1).invokeExact(handle, headYaw);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.ENTITY_HEAD_ROTATION);
+        packet.getIntegers().write(0, entityId);
+        packet.getBytes().write(0, headYaw);
+        return packet;
+    }
+
+    /**
+     * Builds an ENTITY_TELEPORT packet.
+     */
+    public static @NotNull PacketContainer teleport(int entityId, double x, double y, double z, byte yaw, byte pitch, boolean onGround) {
+        Layout layout = teleport;
+        if (layout != null) {
+            try {
+                PacketContainer packet = new PacketContainer(layout.type());
+                Object handle = packet.getHandle();
+                layout.setter(0).invokeExact(handle, entityId);
+                layout.setter(1).invokeExact(handle, x);
+                layout.setter(2).invokeExact(handle, y);
+                layout.setter(3).invokeExact(handle, z);
+                layout.setter(4).invokeExact(handle, yaw);
+                layout.setter(5).invokeExact(handle, pitch);
+                layout.setter(6).invokeExact(handle, onGround);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.ENTITY_TELEPORT);
+        packet.getIntegers().write(0, entityId);
+        packet.getDoubles().write(0, x).write(1, y).write(2, z);
+        packet.getBytes().write(0, yaw).write(1, pitch);
+        packet.getBooleans().write(0, onGround);
+        return packet;
+    }
+
+    /**
+     * Builds a BLOCK_CHANGE packet.
+     */
+    public static @NotNull PacketContainer blockChange(int x, int y, int z, @NotNull WrappedBlockData blockData) {
+        Layout layout = blockChange;
+        if (layout != null) {
+            try {
+                PacketContainer packet = new PacketContainer(layout.type());
+                Object handle = packet.getHandle();
+                Object position = BlockPosition.getConverter().getGeneric(new BlockPosition(x, y, z));
+                Object state = blockData.getHandle();
+                layout.setter(0).invokeExact(handle, position);
+                layout.setter(1).invokeExact(handle, state);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.BLOCK_CHANGE);
+        packet.getBlockPositionModifier().write(0, new BlockPosition(x, y, z));
+        packet.getBlockData().write(0, blockData);
+        return packet;
+    }
+
+    /**
+     * Builds a NAMED_SOUND_EFFECT packet at the given world position.
+     * The sound holder and category still go through ProtocolLib's converters; the numeric fields use precompiled setters.
+     */
+    public static @NotNull PacketContainer soundEffect(@NotNull Sound sound, @NotNull EnumWrappers.SoundCategory category,
+                                                       double x, double y, double z, float volume, float pitch, long seed) {
+        int fixedX = (int) (x * 8.0D);
+        int fixedY = (int) (y * 8.0D);
+        int fixedZ = (int) (z * 8.0D);
+
+        Layout layout = soundEffect;
+        if (layout != null) {
+            try {
+                PacketContainer packet = new PacketContainer(layout.type());
+                packet.getSoundEffects().write(0, sound);
+                packet.getSoundCategories().write(0, category);
+                Object handle = packet.getHandle();
+                layout.setter(0).invokeExact(handle, fixedX);
+                layout.setter(1).invokeExact(handle, fixedY);
+                layout.setter(2).invokeExact(handle, fixedZ);
+                layout.setter(3).invokeExact(handle, volume);
+                layout.setter(4).invokeExact(handle, pitch);
+                layout.setter(5).invokeExact(handle, seed);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.NAMED_SOUND_EFFECT);
+        packet.getSoundEffects().write(0, sound);
+        packet.getSoundCategories().write(0, category);
+        packet.getIntegers().write(0, fixedX).write(1, fixedY).write(2, fixedZ);
+        packet.getFloat().write(0, volume).write(1, pitch);
+        packet.getLongs().write(0, seed);
+        return packet;
+    }
+
+    /**
+     * Builds a WORLD_PARTICLES packet.
+     * The particle options still go through ProtocolLib's converter; the numeric fields use precompiled setters.
+     */
+    public static @NotNull <T> PacketContainer particles(@NotNull Particle particle, @Nullable T data, boolean longDistance,
+                                                         double x, double y, double z,
+                                                         float offsetX, float offsetY, float offsetZ, float speed, int count) {
+        WrappedParticle<T> wrappedParticle = WrappedParticle.create(particle, data);
+
+        Layout layout = particles;
+        if (layout != null) {
+            try {
+                PacketContainer packet = new PacketContainer(layout.type());
+                packet.getNewParticles().write(0, wrappedParticle);
+                Object handle = packet.getHandle();
+                layout.setter(0).invokeExact(handle, x);
+                layout.setter(1).invokeExact(handle, y);
+                layout.setter(2).invokeExact(handle, z);
+                layout.setter(3).invokeExact(handle, offsetX);
+                layout.setter(4).invokeExact(handle, offsetY);
+                layout.setter(5).invokeExact(handle, offsetZ);
+                layout.setter(6).invokeExact(handle, speed);
+                layout.setter(7).invokeExact(handle, count);
+                layout.setter(8).invokeExact(handle, longDistance);
+                return packet;
+            } catch (Throwable t) {
+                disable(layout, t);
+            }
+        }
+
+        PacketContainer packet = ProtocolLibrary.getProtocolManager().createPacket(PacketType.Play.Server.WORLD_PARTICLES);
+        packet.getNewParticles().write(0, wrappedParticle);
+        packet.getBooleans().write(0, longDistance);
+        packet.getDoubles().write(0, x).write(1, y).write(2, z);
+        packet.getFloat().write(0, offsetX).write(1, offsetY).write(2, offsetZ).write(3, speed);
+        packet.getIntegers().write(0, count);
+        return packet;
+    }
+
+    private static @Nullable Layout tryResolve(@NotNull PacketType type, @Nullable Class<?>[] constructorSignature, @NotNull Class<?>... slotTypes) {
+        try {
+            return resolve(type, constructorSignature, slotTypes);
+        } catch (Throwable t) {
+            logger.warn("Could not precompile packet writer for {}, falling back to ProtocolLib accessors: {}", type.name(), t.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Binds each requested slot to the n-th non-static field of that type, in the same
+     * declaration order (subclass first, then superclasses) ProtocolLib uses for its indices.
+     */
+    private static @NotNull Layout resolve(@NotNull PacketType type, @Nullable Class<?>[] constructorSignature, @NotNull Class<?>... slotTypes) throws ReflectiveOperationException {
+        Class<?> packetClass = type.getPacketClass();
+        if (packetClass == null) {
+            throw new ClassNotFoundException("No packet class registered for " + type.name());
+        }
+
+        Map<Class<?>, List<Field>> fieldsByType = new HashMap<>();
+        for (Class<?> current = packetClass; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                fieldsByType.computeIfAbsent(field.getType(), k -> new ArrayList<>()).add(field);
+            }
+        }
+
+        MethodHandle[] setters = new MethodHandle[slotTypes.length];
+        Map<Class<?>, Integer> usedPerType = new HashMap<>();
+        for (int i = 0; i < slotTypes.length; i++) {
+            Class<?> slotType = slotTypes[i];
+            int index = usedPerType.merge(slotType, 1, Integer::sum) - 1;
+            List<Field> candidates = fieldsByType.getOrDefault(slotType, List.of());
+            if (index >= candidates.size()) {
+                throw new NoSuchFieldException("No " + slotType.getSimpleName() + " field #" + index + " in " + packetClass.getName());
+            }
+
+            Field field = candidates.get(index);
+            field.setAccessible(true);
+            Class<?> parameterType = slotType.isPrimitive() ? slotType : Object.class;
+            setters[i] = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, parameterType));
+        }
+
+        MethodHandle constructor = null;
+        if (constructorSignature != null) {
+            try {
+                Constructor<?> ctor = packetClass.getDeclaredConstructor(constructorSignature);
+                ctor.setAccessible(true);
+                constructor = LOOKUP.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class, constructorSignature));
+            } catch (NoSuchMethodException e) {
+                logger.debug("No direct constructor {} on {}, using field setters only.", Arrays.toString(constructorSignature), packetClass.getName());
+            }
+        }
+
+        return new Layout(type, constructor, setters);
+    }
+
+    private static void disable(@NotNull Layout layout, @NotNull Throwable cause) {
+        if (entityLook == layout) entityLook = null;
+        else if (relMoveLook == layout) relMoveLook = null;
+        else if (headRotation == layout) headRotation = null;
+        else if (teleport == layout) teleport = null;
+        else if (blockChange == layout) blockChange = null;
+        else if (soundEffect == layout) soundEffect = null;
+        else if (particles == layout) particles = null;
+        else return;
+
+        logger.error("Precompiled packet writer for {} failed, falling back to ProtocolLib accessors.", layout.type().name(), cause);
+    }
+
+    private record Layout(PacketType type, MethodHandle constructor, MethodHandle[] setters) {
+
+        MethodHandle setter(int slot) {
+            return setters[slot];
+        }
+    }
+}
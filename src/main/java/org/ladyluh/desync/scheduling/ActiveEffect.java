@@ -0,0 +1,53 @@
+package org.ladyluh.desync.scheduling;
+
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.packets.ClientResync;
+
+import java.util.UUID;
+
+
+/**
+ * Something an event left running for one player: a repeating {@link EffectTask}, a pending block revert,
+ * a delayed sound...
+ * <p>
+ * Every active effect is tracked by the {@link ActiveEffectRegistry} under its owner, so quitting, changing
+ * world and disabling the plugin can end all of a player's effects in one sweep.
+ */
+public interface ActiveEffect {
+
+    /**
+     * @return The player this effect is shown to.
+     */
+    @NotNull UUID getOwner();
+
+    /**
+     * @return The effect type, normally the event key.
+     */
+    @NotNull String getType();
+
+    /**
+     * @return The server tick (see {@code Bukkit.getCurrentTick()}) after which the effect has outlived its
+     * purpose and may be ended, or {@link Long#MAX_VALUE} if it ends on its own.
+     */
+    long getExpiryTick();
+
+    /**
+     * Stops the effect and releases what it holds on the server (map entries, mob AI...).
+     * Nothing is sent to the owner. Calling it again has no effect.
+     */
+    void cancel();
+
+    /**
+     * Puts back what the owner sees (real blocks, despawned fake entities...) and then stops the effect
+     * like {@link #cancel()}. Effects that leave nothing behind on the client just cancel.
+     */
+    void revert();
+
+    /**
+     * Like {@link #revert()}, but queues what has to be sent on a batch that is flushed once for the owner.
+     * Used by sweeps. Effects that do not override it revert on their own.
+     */
+    default void revert(@NotNull ClientResync resync) {
+        revert();
+    }
+}
@@ -0,0 +1,400 @@
+package org.ladyluh.desync.scheduling;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.packets.ClientResync;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+
+/**
+ * Per-player index of every {@link ActiveEffect}.
+ * <p>
+ * Effects register when they start and unregister when they end, so a player's entry only ever holds what is
+ * still running for them. Quit, world change and shutdown each end a player's effects with a single sweep of
+ * that entry instead of every event cleaning its own static maps.
+ * <p>
+ * Delayed one-shot actions of events are scheduled through {@link #schedule} and {@link #scheduleRevert}, which
+ * wrap a {@link TimingWheel} entry in an effect.
+ * <p>
+ * Reverting sweeps collect the owner's reverts on one {@link ClientResync} and send it once, so a reload with many
+ * running effects costs each player a handful of packets instead of one (or one task) per effect.
+ * <p>
+ * Effects tied to fixed blocks can also be {@link #anchor anchored} to the chunks they touch. Once every chunk of an
+ * effect has unloaded, the effect is cancelled: the client drops those chunks too and gets the real blocks with
+ * them when they load again, so there is nothing left to revert.
+ * <p>
+ * Main thread only.
+ */
+public class ActiveEffectRegistry {
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final Map<UUID, Set<ActiveEffect>> effectsByOwner = new HashMap<>();
+    private final Map<UUID, Map<Long, Set<ActiveEffect>>> effectsByChunk = new HashMap<>();
+    private final Map<ActiveEffect, List<ChunkAnchor>> anchorsByEffect = new HashMap<>();
+    private int activeCount = 0;
+
+    public ActiveEffectRegistry(@NotNull Desync plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+    }
+
+    /**
+     * Why effects are being swept.
+     */
+    public enum SweepReason {
+        /**
+         * The owner left; there is nothing to restore on their client.
+         */
+        QUIT(false),
+        /**
+         * The owner's client dropped the old world. Reverts still run for what outlives it (tab entries, items);
+         * block changes for the old world are skipped by {@code EffectUtils.sendBlockChange}.
+         */
+        WORLD_CHANGE(true),
+        /**
+         * The plugin is disabling while the owner stays online, so everything is reverted. Runs after the
+         * {@code PacketDispatcher} has been stopped, so the resync is sent directly.
+         */
+        SHUTDOWN(true);
+
+        private final boolean revert;
+
+        SweepReason(boolean revert) {
+            this.revert = revert;
+        }
+
+        public boolean reverts() {
+            return revert;
+        }
+    }
+
+    /**
+     * Starts tracking an effect. Expired effects of the same owner are reverted on the way.
+     */
+    public void register(@NotNull ActiveEffect effect) {
+        Set<ActiveEffect> effects = effectsByOwner.computeIfAbsent(effect.getOwner(), k -> new LinkedHashSet<>());
+        if (!effects.isEmpty()) {
+            purgeExpired(effects);
+        }
+        if (effects.add(effect)) {
+            activeCount++;
+        }
+    }
+
+    /**
+     * Stops tracking an effect. Called by effects when they end.
+     */
+    public void unregister(@NotNull ActiveEffect effect) {
+        Set<ActiveEffect> effects = effectsByOwner.get(effect.getOwner());
+        if (effects == null || !effects.remove(effect)) return;
+
+        activeCount--;
+        dropAnchors(effect);
+        if (effects.isEmpty()) {
+            effectsByOwner.remove(effect.getOwner());
+        }
+    }
+
+    /**
+     * Runs an action after a delay, as an effect of the owner. It is dropped if the owner's effects are swept first.
+     *
+     * @param owner      The player the action belongs to.
+     * @param type       The effect type, normally the event key.
+     * @param delayTicks Delay in ticks, at least 1.
+     * @param action     The action, run on the main thread.
+     * @return The effect.
+     */
+    public @NotNull ActiveEffect schedule(@NotNull UUID owner, @NotNull String type, long delayTicks, @NotNull Runnable action) {
+        return scheduleInternal(owner, type, delayTicks, action, false, null);
+    }
+
+    /**
+     * Runs a revert (sending the real block back, removing a fake item...) after a delay, as an effect of the owner.
+     * If the owner's effects are swept with a reverting reason first, the revert runs right away instead.
+     *
+     * @param owner      The player the revert belongs to.
+     * @param type       The effect type, normally the event key.
+     * @param delayTicks Delay in ticks, at least 1.
+     * @param revert     The revert, run on the main thread.
+     * @return The effect.
+     */
+    public @NotNull ActiveEffect scheduleRevert(@NotNull UUID owner, @NotNull String type, long delayTicks, @NotNull Runnable revert) {
+        return scheduleInternal(owner, type, delayTicks, revert, true, null);
+    }
+
+    /**
+     * Like {@link #scheduleRevert(UUID, String, long, Runnable)}, with a second form of the revert that queues
+     * its packets on the sweep's {@link ClientResync} instead of sending them.
+     */
+    public @NotNull ActiveEffect scheduleRevert(@NotNull UUID owner, @NotNull String type, long delayTicks, @NotNull Runnable revert,
+                                                @NotNull Consumer<ClientResync> batchedRevert) {
+        return scheduleInternal(owner, type, delayTicks, revert, true, batchedRevert);
+    }
+
+    private @NotNull ActiveEffect scheduleInternal(@NotNull UUID owner, @NotNull String type, long delayTicks, @NotNull Runnable action,
+                                                   boolean runOnRevert, Consumer<ClientResync> batchedRevert) {
+        ScheduledEffect effect = new ScheduledEffect(owner, type, action, runOnRevert, batchedRevert);
+        effect.timer = plugin.getTimingWheel().schedule(owner, delayTicks, effect::fire);
+        register(effect);
+        return effect;
+    }
+
+    /**
+     * Ties a registered effect to the chunk of a location. Effects anchored to several chunks are cancelled once
+     * all of them have unloaded.
+     */
+    public void anchor(@NotNull ActiveEffect effect, @NotNull Location location) {
+        World world = location.getWorld();
+        if (world == null || !isRegistered(effect)) return;
+
+        ChunkAnchor anchor = new ChunkAnchor(world.getUID(), Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        List<ChunkAnchor> anchors = anchorsByEffect.computeIfAbsent(effect, k -> new ArrayList<>(2));
+        if (anchors.contains(anchor)) return;
+
+        anchors.add(anchor);
+        effectsByChunk.computeIfAbsent(anchor.worldId(), k -> new HashMap<>())
+                .computeIfAbsent(anchor.chunkKey(), k -> new HashSet<>())
+                .add(effect);
+    }
+
+    /**
+     * Called when a chunk unloads. Effects with no loaded anchor chunk left are cancelled.
+     *
+     * @return The number of effects cancelled.
+     */
+    public int handleChunkUnload(@NotNull World world, int chunkX, int chunkZ) {
+        if (effectsByChunk.isEmpty()) return 0;
+
+        Map<Long, Set<ActiveEffect>> chunks = effectsByChunk.get(world.getUID());
+        if (chunks == null) return 0;
+
+        long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+        Set<ActiveEffect> effects = chunks.remove(chunkKey);
+        if (chunks.isEmpty()) {
+            effectsByChunk.remove(world.getUID());
+        }
+        if (effects == null) return 0;
+
+        ChunkAnchor unloaded = new ChunkAnchor(world.getUID(), chunkKey);
+        int cancelled = 0;
+        for (ActiveEffect effect : effects) {
+            List<ChunkAnchor> anchors = anchorsByEffect.get(effect);
+            if (anchors == null) continue;
+
+            anchors.remove(unloaded);
+            if (!anchors.isEmpty()) continue;
+
+            anchorsByEffect.remove(effect);
+            try {
+                effect.cancel();
+                cancelled++;
+            } catch (Exception e) {
+                logger.error("Failed to cancel effect '{}' of {} on chunk unload.", effect.getType(), effect.getOwner(), e);
+            }
+        }
+        if (cancelled > 0) {
+            logger.debug("Cancelled {} effects anchored to unloaded chunk {},{} in {}.", cancelled, chunkX, chunkZ, world.getName());
+        }
+        return cancelled;
+    }
+
+    /**
+     * Ends every effect of a player.
+     *
+     * @return The number of effects ended.
+     */
+    public int sweep(@NotNull UUID owner, @NotNull SweepReason reason) {
+        Set<ActiveEffect> effects = effectsByOwner.remove(owner);
+        if (effects == null) return 0;
+
+        activeCount -= effects.size();
+        for (ActiveEffect effect : effects) {
+            dropAnchors(effect);
+        }
+        ClientResync resync = reason.reverts() ? new ClientResync(owner) : null;
+        for (ActiveEffect effect : effects) {
+            end(effect, reason, resync);
+        }
+        if (resync != null) {
+            try {
+                resync.flush(plugin, reason == SweepReason.SHUTDOWN);
+            } catch (Exception e) {
+                logger.error("Failed to resync the client of {} ({}).", owner, reason, e);
+            }
+        }
+        logger.debug("Swept {} active effects of {} ({}).", effects.size(), owner, reason);
+        return effects.size();
+    }
+
+    /**
+     * Ends every effect of every player.
+     *
+     * @return The number of effects ended.
+     */
+    public int sweepAll(@NotNull SweepReason reason) {
+        int swept = 0;
+        for (UUID owner : new ArrayList<>(effectsByOwner.keySet())) {
+            swept += sweep(owner, reason);
+        }
+        return swept;
+    }
+
+    /**
+     * @return The number of tracked effects.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return The number of tracked effects of a player.
+     */
+    public int getActiveCount(@NotNull UUID owner) {
+        Set<ActiveEffect> effects = effectsByOwner.get(owner);
+        return effects != null ? effects.size() : 0;
+    }
+
+    private void purgeExpired(@NotNull Set<ActiveEffect> effects) {
+        long now = Bukkit.getCurrentTick();
+        Iterator<ActiveEffect> iterator = effects.iterator();
+        List<ActiveEffect> expired = null;
+        while (iterator.hasNext()) {
+            ActiveEffect effect = iterator.next();
+            if (effect.getExpiryTick() < now) {
+                iterator.remove();
+                activeCount--;
+                dropAnchors(effect);
+                if (expired == null) expired = new ArrayList<>();
+                expired.add(effect);
+            }
+        }
+        if (expired == null) return;
+
+        for (ActiveEffect effect : expired) {
+            logger.debug("Reverting expired effect '{}' of {}.", effect.getType(), effect.getOwner());
+            try {
+                effect.revert();
+            } catch (Exception e) {
+                logger.error("Failed to revert expired effect '{}' of {}.", effect.getType(), effect.getOwner(), e);
+            }
+        }
+    }
+
+    private boolean isRegistered(@NotNull ActiveEffect effect) {
+        Set<ActiveEffect> effects = effectsByOwner.get(effect.getOwner());
+        return effects != null && effects.contains(effect);
+    }
+
+    private void dropAnchors(@NotNull ActiveEffect effect) {
+        if (anchorsByEffect.isEmpty()) return;
+
+        List<ChunkAnchor> anchors = anchorsByEffect.remove(effect);
+        if (anchors == null) return;
+
+        for (ChunkAnchor anchor : anchors) {
+            Map<Long, Set<ActiveEffect>> chunks = effectsByChunk.get(anchor.worldId());
+            if (chunks == null) continue;
+
+            Set<ActiveEffect> effects = chunks.get(anchor.chunkKey());
+            if (effects != null && effects.remove(effect) && effects.isEmpty()) {
+                chunks.remove(anchor.chunkKey());
+                if (chunks.isEmpty()) {
+                    effectsByChunk.remove(anchor.worldId());
+                }
+            }
+        }
+    }
+
+    private void end(@NotNull ActiveEffect effect, @NotNull SweepReason reason, ClientResync resync) {
+        try {
+            if (resync != null) {
+                effect.revert(resync);
+            } else {
+                effect.cancel();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to end effect '{}' of {} ({}).", effect.getType(), effect.getOwner(), reason, e);
+        }
+    }
+
+    private record ChunkAnchor(@NotNull UUID worldId, long chunkKey) {
+    }
+
+    /**
+     * A one-shot action waiting on the timing wheel.
+     */
+    private final class ScheduledEffect implements ActiveEffect {
+
+        private final UUID owner;
+        private final String type;
+        private final Runnable action;
+        private final boolean runOnRevert;
+        private final Consumer<ClientResync> batchedRevert;
+        private TimingWheel.Timer timer;
+
+        private ScheduledEffect(@NotNull UUID owner, @NotNull String type, @NotNull Runnable action, boolean runOnRevert,
+                                Consumer<ClientResync> batchedRevert) {
+            this.owner = owner;
+            this.type = type;
+            this.action = action;
+            this.runOnRevert = runOnRevert;
+            this.batchedRevert = batchedRevert;
+        }
+
+        private void fire() {
+            unregister(this);
+            action.run();
+        }
+
+        @Override
+        public @NotNull UUID getOwner() {
+            return owner;
+        }
+
+        @Override
+        public @NotNull String getType() {
+            return type;
+        }
+
+        @Override
+        public long getExpiryTick() {
+            // Ends on its own when the wheel fires it.
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public void cancel() {
+            if (timer.cancel()) {
+                unregister(this);
+            }
+        }
+
+        @Override
+        public void revert() {
+            if (timer.cancel()) {
+                unregister(this);
+                if (runOnRevert) {
+                    action.run();
+                }
+            }
+        }
+
+        @Override
+        public void revert(@NotNull ClientResync resync) {
+            if (batchedRevert == null) {
+                revert();
+            } else if (timer.cancel()) {
+                unregister(this);
+                batchedRevert.accept(resync);
+            }
+        }
+    }
+}
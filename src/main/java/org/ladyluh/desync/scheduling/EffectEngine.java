@@ -0,0 +1,200 @@
+package org.ladyluh.desync.scheduling;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+import org.slf4j.Logger;
+
+import java.util.*;
+
+
+/**
+ * Drives every running {@link EffectTask} from a single repeating Bukkit task.
+ * <p>
+ * Effects live in a flat array that is walked once per tick; finished effects are compacted out
+ * in place during the same pass, keeping the order of the rest. The time spent in each effect type
+ * is recorded so {@code /desync stats} can show what the effects cost.
+ */
+public class EffectEngine implements Runnable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final Map<String, EffectTiming> timings = new HashMap<>();
+
+    private EffectTask[] effects = new EffectTask[INITIAL_CAPACITY];
+    private int size = 0;
+    private BukkitTask task;
+
+    public EffectEngine(@NotNull Desync plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+    }
+
+    /**
+     * Starts the engine task, running every tick.
+     */
+    public void start() {
+        if (task != null && !task.isCancelled()) {
+            logger.warn("EffectEngine task already running!");
+            return;
+        }
+
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+        logger.debug("EffectEngine started.");
+    }
+
+    /**
+     * Stops the engine task. Registered effects are kept until {@link #clear()}, so their owners can still clean up.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+            logger.debug("EffectEngine stopped.");
+        }
+    }
+
+    /**
+     * Drops every effect without ticking it again.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            effects[i].cancel();
+            effects[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds an effect. Effects added while the engine is ticking are first ticked on the next pass.
+     * Main thread only.
+     */
+    void register(@NotNull EffectTask effect) {
+        if (size == effects.length) {
+            effects = Arrays.copyOf(effects, size * 2);
+        }
+        effects[size++] = effect;
+    }
+
+    @Override
+    public void run() {
+        int count = size;
+        int write = 0;
+        long now = Bukkit.getCurrentTick();
+
+        for (int read = 0; read < count; read++) {
+            EffectTask effect = effects[read];
+
+            if (!effect.isCancelled() && effect.getExpiryTick() <= now) {
+                logger.debug("Effect of type '{}' for {} outlived its lifetime and is reverted.", effect.getType(), effect.getOwner());
+                try {
+                    effect.revert();
+                } catch (Exception e) {
+                    logger.error("Effect of type '{}' failed to revert and was cancelled.", effect.getType(), e);
+                    effect.cancel();
+                }
+            }
+
+            if (!effect.isCancelled() && effect.advance()) {
+                long start = System.nanoTime();
+                try {
+                    effect.tick();
+                } catch (Exception e) {
+                    logger.error("Effect of type '{}' failed during tick and was cancelled.", effect.getType(), e);
+                    effect.cancel();
+                }
+                timings.computeIfAbsent(effect.getType(), k -> new EffectTiming()).record(System.nanoTime() - start);
+            }
+
+            if (!effect.isCancelled()) {
+                effects[write++] = effect;
+            }
+        }
+
+        // Effects registered during this pass sit behind the scanned range, move them down too.
+        for (int read = count; read < size; read++) {
+            effects[write++] = effects[read];
+        }
+        Arrays.fill(effects, write, size, null);
+        size = write;
+    }
+
+    /**
+     * @return The number of running effects.
+     */
+    public int getActiveCount() {
+        return size;
+    }
+
+    /**
+     * @return The number of running effects per type.
+     */
+    public @NotNull Map<String, Integer> getActiveCountsByType() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            if (!effects[i].isCancelled()) {
+                counts.merge(effects[i].getType(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return A snapshot of the recorded tick time per effect type, sorted by type.
+     */
+    public @NotNull Map<String, EffectTiming> getTimings() {
+        Map<String, EffectTiming> snapshot = new TreeMap<>();
+        timings.forEach((type, timing) -> snapshot.put(type, timing.copy()));
+        return snapshot;
+    }
+
+    /**
+     * Clears the recorded tick times.
+     */
+    public void resetTimings() {
+        timings.clear();
+    }
+
+    /**
+     * Accumulated tick time of one effect type.
+     */
+    public static final class EffectTiming {
+
+        private long ticks;
+        private long totalNanos;
+        private long maxNanos;
+
+        private void record(long nanos) {
+            ticks++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) maxNanos = nanos;
+        }
+
+        private EffectTiming copy() {
+            EffectTiming copy = new EffectTiming();
+            copy.ticks = ticks;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            return copy;
+        }
+
+        public long getTicks() {
+            return ticks;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getAverageMicros() {
+            return ticks == 0 ? 0 : totalNanos / 1000.0 / ticks;
+        }
+    }
+}
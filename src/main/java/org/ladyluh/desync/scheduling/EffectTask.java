@@ -0,0 +1,128 @@
+package org.ladyluh.desync.scheduling;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+
+import java.util.UUID;
+
+
+/**
+ * State of one running effect (a staring mob, a stalker, a particle emitter...) driven by the {@link EffectEngine}.
+ * <p>
+ * Replaces a per-effect {@code BukkitRunnable} timer: subclasses implement {@link #tick()} and call
+ * {@link #cancel()} when they are done, and the engine drops them on its next pass.
+ * <p>
+ * Running tasks are also tracked in the {@link ActiveEffectRegistry} under their owner. Subclasses release their
+ * bookkeeping in {@link #onCancel()}, and override {@link #revert()} if they leave something on the client.
+ */
+public abstract class EffectTask implements ActiveEffect {
+
+    private final String type;
+    private final UUID owner;
+    private long period = 1L;
+    private long countdown;
+    private long expiryTick = Long.MAX_VALUE;
+    private boolean cancelled = false;
+    private ActiveEffectRegistry registry;
+
+    /**
+     * @param type  The effect type, normally the event key. Tick time is recorded per type.
+     * @param owner The player the effect is shown to.
+     */
+    protected EffectTask(@NotNull String type, @NotNull UUID owner) {
+        this.type = type;
+        this.owner = owner;
+    }
+
+    /**
+     * Called on the main thread every {@code period} ticks until cancelled.
+     */
+    public abstract void tick();
+
+    /**
+     * Registers this effect with the plugin's engine, like {@code runTaskTimer(plugin, delay, period)}.
+     *
+     * @param plugin The main plugin instance.
+     * @param delay  Ticks before the first {@link #tick()}.
+     * @param period Ticks between ticks, at least 1.
+     * @return This effect.
+     */
+    public @NotNull EffectTask start(@NotNull Desync plugin, long delay, long period) {
+        return start(plugin, delay, period, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #start(Desync, long, long)}, but the engine reverts the effect once it has run for
+     * {@code maxLifetimeTicks}, should it not have ended itself by then.
+     */
+    public @NotNull EffectTask start(@NotNull Desync plugin, long delay, long period, long maxLifetimeTicks) {
+        this.period = Math.max(1L, period);
+        this.countdown = Math.max(0L, delay - 1);
+        if (maxLifetimeTicks != Long.MAX_VALUE) {
+            this.expiryTick = Bukkit.getCurrentTick() + Math.max(0L, delay) + maxLifetimeTicks;
+        }
+        this.registry = plugin.getActiveEffectRegistry();
+        plugin.getEffectEngine().register(this);
+        registry.register(this);
+        return this;
+    }
+
+    /**
+     * Stops the effect. It is removed from the engine on the next pass and never ticked again.
+     */
+    @Override
+    public void cancel() {
+        if (cancelled) return;
+
+        cancelled = true;
+        if (registry != null) {
+            registry.unregister(this);
+        }
+        onCancel();
+    }
+
+    /**
+     * Called once when the effect is cancelled, for any reason. Releases server side state (map entries, mob AI...).
+     */
+    protected void onCancel() {
+    }
+
+    @Override
+    public void revert() {
+        cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public @NotNull String getType() {
+        return type;
+    }
+
+    @Override
+    public @NotNull UUID getOwner() {
+        return owner;
+    }
+
+    @Override
+    public long getExpiryTick() {
+        return expiryTick;
+    }
+
+    /**
+     * Advances the countdown by one engine tick.
+     *
+     * @return True if the effect is due this tick.
+     */
+    boolean advance() {
+        if (countdown > 0) {
+            countdown--;
+            return false;
+        }
+        countdown = period - 1;
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package org.ladyluh.desync.scheduling;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A time budget for one event invocation on the main thread.
+ * <p>
+ * The {@code EventService} opens a budget around every canTrigger check and trigger. Search loops of the events
+ * (spawn spot searches, block scans...) poll {@link #current()}{@code .isExhausted()} and give up once the deadline
+ * has passed, so one unlucky search cannot stall a tick. Polling only reads the clock every few calls.
+ * <p>
+ * A budget is bound to the thread that opened it and must be closed again, ideally with try-with-resources.
+ */
+public final class ExecutionBudget implements AutoCloseable {
+
+    private static final int CLOCK_CHECK_MASK = 3;
+    private static final ThreadLocal<ExecutionBudget> CURRENT = new ThreadLocal<>();
+    private static final ExecutionBudget UNLIMITED = new ExecutionBudget(Long.MAX_VALUE, null);
+
+    private final long budgetNanos;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final ExecutionBudget previous;
+    private int polls = 0;
+    private boolean exhausted = false;
+
+    private ExecutionBudget(long budgetNanos, ExecutionBudget previous) {
+        this.budgetNanos = budgetNanos;
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = budgetNanos == Long.MAX_VALUE ? Long.MAX_VALUE : startNanos + budgetNanos;
+        this.previous = previous;
+    }
+
+    /**
+     * Opens a budget on the current thread. It becomes {@link #current()} until closed.
+     *
+     * @param budgetNanos The budget in nanoseconds, or {@link Long#MAX_VALUE} for none.
+     */
+    public static @NotNull ExecutionBudget open(long budgetNanos) {
+        ExecutionBudget budget = new ExecutionBudget(Math.max(0L, budgetNanos), CURRENT.get());
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    /**
+     * @return The innermost open budget of this thread, or an unlimited one.
+     */
+    public static @NotNull ExecutionBudget current() {
+        ExecutionBudget budget = CURRENT.get();
+        return budget != null ? budget : UNLIMITED;
+    }
+
+    /**
+     * Polled by search loops. Once it has returned true it keeps doing so, and {@link #wasExhausted()} tells the
+     * caller the invocation gave up early.
+     *
+     * @return True if the deadline has passed.
+     */
+    public boolean isExhausted() {
+        if (exhausted) return true;
+        if (deadlineNanos == Long.MAX_VALUE || (polls++ & CLOCK_CHECK_MASK) != 0) return false;
+
+        if (System.nanoTime() - deadlineNanos >= 0) {
+            exhausted = true;
+        }
+        return exhausted;
+    }
+
+    /**
+     * Like {@link #isExhausted()}, but without ending the budget. For code that hands its work off asynchronously:
+     * a latched budget tells the caller nothing was shown, and the invocation would be retried while the handed off
+     * work still shows its effect.
+     *
+     * @return True if the budget is exhausted or its deadline has passed.
+     */
+    public boolean isPastDeadline() {
+        return exhausted || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /**
+     * Ends the budget before its deadline, for shared per-tick limits that ran out first. No-op on the unlimited one.
+     */
+    public void exhaust() {
+        if (this == UNLIMITED) return;
+        exhausted = true;
+    }
+
+    /**
+     * @return True if a search gave up because of this budget.
+     */
+    public boolean wasExhausted() {
+        return exhausted;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return True if the invocation has taken longer than its budget, whether or not anything gave up.
+     */
+    public boolean isOverrun() {
+        return budgetNanos != Long.MAX_VALUE && getElapsedNanos() > budgetNanos;
+    }
+
+    @Override
+    public void close() {
+        if (this == UNLIMITED) return;
+
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.ladyluh.desync.scheduling;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.ladyluh.desync.Desync;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Hierarchical timing wheel for one-shot delayed actions (block reverts, footstep sounds, delayed packets...),
+ * driven by a single repeating Bukkit task.
+ * <p>
+ * Four levels of 64 slots cover delays of up to 64^4 ticks. An entry sits in the level matching its remaining
+ * delay and is cascaded down as time passes, so every tick only touches one slot per level. Entries are intrusive
+ * doubly linked nodes, in their slot and in a per-owner list, which makes insert, cancel and
+ * "cancel everything of this player" O(1) per entry.
+ * <p>
+ * Main thread only.
+ */
+public class TimingWheel implements Runnable {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final Timer[][] slots = new Timer[LEVELS][WHEEL_SIZE];
+    private final Map<UUID, Timer> ownerHeads = new HashMap<>();
+
+    private long currentTick = 0;
+    private int pendingCount = 0;
+    private BukkitTask task;
+
+    public TimingWheel(@NotNull Desync plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+    }
+
+    /**
+     * Starts the wheel task, advancing one slot every tick.
+     */
+    public void start() {
+        if (task != null && !task.isCancelled()) {
+            logger.warn("TimingWheel task already running!");
+            return;
+        }
+
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+        logger.debug("TimingWheel started.");
+    }
+
+    /**
+     * Stops the wheel task. Pending entries are kept until {@link #clear()}.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+            logger.debug("TimingWheel stopped.");
+        }
+    }
+
+    /**
+     * Schedules an action, like {@code runTaskLater(plugin, delayTicks)}.
+     *
+     * @param owner      The player the action belongs to, or null. Used by {@link #cancelAll(UUID)}.
+     * @param delayTicks Delay in ticks, at least 1.
+     * @param action     The action, run on the main thread.
+     * @return A handle that can cancel the action.
+     */
+    public @NotNull Timer schedule(@Nullable UUID owner, long delayTicks, @NotNull Runnable action) {
+        long delay = Math.max(1L, Math.min(MAX_DELAY_TICKS, delayTicks));
+        Timer timer = new Timer(owner, currentTick + delay, action);
+
+        place(timer);
+        if (owner != null) {
+            Timer head = ownerHeads.get(owner);
+            timer.ownerNext = head;
+            if (head != null) head.ownerPrev = timer;
+            ownerHeads.put(owner, timer);
+        }
+        pendingCount++;
+        return timer;
+    }
+
+    /**
+     * Cancels every pending action of an owner.
+     *
+     * @return The number of cancelled actions.
+     */
+    public int cancelAll(@NotNull UUID owner) {
+        Timer timer = ownerHeads.remove(owner);
+        int cancelled = 0;
+        while (timer != null) {
+            Timer next = timer.ownerNext;
+            timer.ownerPrev = null;
+            timer.ownerNext = null;
+            unlinkSlot(timer);
+            timer.state = Timer.CANCELLED;
+            pendingCount--;
+            cancelled++;
+            timer = next;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Drops every pending action without running it.
+     */
+    public void clear() {
+        for (Timer[] level : slots) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                for (Timer timer = level[i]; timer != null; timer = timer.next) {
+                    timer.state = Timer.CANCELLED;
+                }
+                level[i] = null;
+            }
+        }
+        ownerHeads.clear();
+        pendingCount = 0;
+    }
+
+    /**
+     * @return The number of actions waiting to run.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    @Override
+    public void run() {
+        currentTick++;
+
+        int cascadeLevels = 0;
+        while (cascadeLevels + 1 < LEVELS && (currentTick & ((1L << (WHEEL_BITS * (cascadeLevels + 1))) - 1)) == 0) {
+            cascadeLevels++;
+        }
+        // Higher levels first, so entries they move down are picked up by the lower cascades of the same tick.
+        for (int level = cascadeLevels; level >= 1; level--) {
+            cascade(level);
+        }
+
+        int slot = (int) (currentTick & WHEEL_MASK);
+        Timer timer;
+        while ((timer = slots[0][slot]) != null) {
+            unlinkSlot(timer);
+            if (timer.deadline > currentTick) {
+                place(timer);
+                continue;
+            }
+
+            unlinkOwner(timer);
+            timer.state = Timer.FIRED;
+            pendingCount--;
+            try {
+                timer.action.run();
+            } catch (Exception e) {
+                logger.error("Delayed action failed.", e);
+            }
+        }
+    }
+
+    private void cascade(int level) {
+        int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Timer timer = slots[level][slot];
+        slots[level][slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            timer.level = -1;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void place(@NotNull Timer timer) {
+        long remaining = Math.max(0L, timer.deadline - currentTick);
+        int level = 0;
+        while (level + 1 < LEVELS && remaining >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((timer.deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        Timer head = slots[level][slot];
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) head.prev = timer;
+        slots[level][slot] = timer;
+        timer.level = level;
+        timer.slot = slot;
+    }
+
+    private void unlinkSlot(@NotNull Timer timer) {
+        if (timer.level < 0) return;
+
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+
+    private void unlinkOwner(@NotNull Timer timer) {
+        if (timer.owner == null) return;
+
+        if (timer.ownerPrev != null) {
+            timer.ownerPrev.ownerNext = timer.ownerNext;
+        } else if (timer.ownerNext != null) {
+            ownerHeads.put(timer.owner, timer.ownerNext);
+        } else {
+            ownerHeads.remove(timer.owner, timer);
+        }
+        if (timer.ownerNext != null) timer.ownerNext.ownerPrev = timer.ownerPrev;
+        timer.ownerPrev = null;
+        timer.ownerNext = null;
+    }
+
+    /**
+     * Handle of a scheduled action.
+     */
+    public final class Timer {
+
+        private static final int PENDING = 0;
+        private static final int FIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final UUID owner;
+        private final long deadline;
+        private final Runnable action;
+        private int state = PENDING;
+
+        private int level = -1;
+        private int slot;
+        private Timer prev;
+        private Timer next;
+        private Timer ownerPrev;
+        private Timer ownerNext;
+
+        private Timer(@Nullable UUID owner, long deadline, @NotNull Runnable action) {
+            this.owner = owner;
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        /**
+         * Cancels the action if it has not run yet.
+         *
+         * @return True if it was still pending.
+         */
+        public boolean cancel() {
+            if (state != PENDING) return false;
+
+            unlinkSlot(this);
+            unlinkOwner(this);
+            state = CANCELLED;
+            pendingCount--;
+            return true;
+        }
+
+        public boolean isPending() {
+            return state == PENDING;
+        }
+    }
+}
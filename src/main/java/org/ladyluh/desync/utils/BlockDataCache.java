@@ -0,0 +1,118 @@
+package org.ladyluh.desync.utils;
+
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Intern cache for block states sent in fake BLOCK_CHANGE packets.
+ * <p>
+ * Creating block data parses the state string and wrapping it for ProtocolLib goes through reflection,
+ * so each distinct state is built once and reused. Events pre-warm their fixed palettes at enable
+ * (see {@link org.ladyluh.desync.events.EventService}), which keeps creation off the hot path entirely.
+ * <p>
+ * Cached {@link BlockData} instances are shared and must never be mutated; clone them first.
+ */
+public final class BlockDataCache {
+
+    /**
+     * Upper bound for {@link #wrap(BlockData)}, which interns arbitrary world states (e.g. revert data).
+     */
+    private static final int MAX_WRAPPED_STATES = 4096;
+
+    private static final Map<Key, CachedBlockData> BY_KEY = new ConcurrentHashMap<>();
+    private static final Map<BlockData, WrappedBlockData> WRAPPED = new ConcurrentHashMap<>();
+
+    private BlockDataCache() {
+    }
+
+    /**
+     * A block state together with its ProtocolLib wrapper.
+     */
+    public record CachedBlockData(@NotNull BlockData blockData, @NotNull WrappedBlockData wrapped) {
+    }
+
+    private record Key(@NotNull Material material, @Nullable String state) {
+    }
+
+    /**
+     * Gets the default state of a material.
+     */
+    public static @NotNull CachedBlockData get(@NotNull Material material) {
+        return get(material, null);
+    }
+
+    /**
+     * Gets a material with the given state string, e.g. {@code "[facing=south,half=upper]"}.
+     *
+     * @param material The block material.
+     * @param state    The state string as accepted by {@link Bukkit#createBlockData(Material, String)}, or null for the default state.
+     * @return The interned block data and wrapper.
+     * @throws IllegalArgumentException If the material is not a block or the state string is invalid.
+     */
+    public static @NotNull CachedBlockData get(@NotNull Material material, @Nullable String state) {
+        Key key = new Key(material, state);
+        CachedBlockData cached = BY_KEY.get(key);
+        if (cached != null) return cached;
+
+        BlockData blockData = state == null ? Bukkit.createBlockData(material) : Bukkit.createBlockData(material, state);
+        CachedBlockData created = new CachedBlockData(blockData, WrappedBlockData.createData(blockData));
+        CachedBlockData existing = BY_KEY.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * Wraps arbitrary block data (for example the real block being reverted to), reusing earlier wrappers
+     * for equal states.
+     *
+     * @param blockData The block data. It is copied before being used as a key, so callers may keep mutating it.
+     * @return The ProtocolLib wrapper.
+     */
+    public static @NotNull WrappedBlockData wrap(@NotNull BlockData blockData) {
+        WrappedBlockData cached = WRAPPED.get(blockData);
+        if (cached != null) return cached;
+
+        WrappedBlockData created = WrappedBlockData.createData(blockData);
+        if (WRAPPED.size() < MAX_WRAPPED_STATES) {
+            WrappedBlockData existing = WRAPPED.putIfAbsent(blockData.clone(), created);
+            if (existing != null) return existing;
+        }
+        return created;
+    }
+
+    /**
+     * Builds an entry ahead of time.
+     *
+     * @return True if the state is valid and now cached.
+     */
+    public static boolean prewarm(@NotNull Material material, @Nullable String state) {
+        try {
+            get(material, state);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of interned states.
+     */
+    public static int size() {
+        return BY_KEY.size() + WRAPPED.size();
+    }
+
+    /**
+     * Drops every cached entry. Called on disable so a reload does not keep stale server objects.
+     */
+    public static void clear() {
+        BY_KEY.clear();
+        WRAPPED.clear();
+    }
+}
@@ -1,13 +1,9 @@
 package org.ladyluh.desync.utils;
 
-import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketContainer;
-import com.comphenix.protocol.wrappers.BlockPosition;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import com.comphenix.protocol.wrappers.Pair;
-import com.comphenix.protocol.wrappers.WrappedBlockData;
-import org.bukkit.FluidCollisionMode;
+import org.bukkit.HeightMap;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -15,10 +11,13 @@ import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.util.RayTraceResult;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.packets.PacketDispatcher;
+import org.ladyluh.desync.packets.PacketWriters;
+import org.ladyluh.desync.world.BlockSearchService;
+import org.ladyluh.desync.world.MaterialMask;
 
 import java.util.List;
 
@@ -29,6 +28,8 @@ import java.util.List;
  */
 public class EffectUtils {
 
+    private static final MaterialMask AIR_TYPES = MaterialMask.of(Material::isAir);
+
     private EffectUtils() {
     }
 
@@ -41,46 +42,89 @@ public class EffectUtils {
      * @param plugin    The main plugin instance.
      */
     public static void sendBlockChange(@NotNull Player player, @NotNull Location location, @NotNull BlockData blockData, @NotNull Desync plugin) {
-        try {
-            ProtocolManager protocolManager = plugin.getProtocolManager();
-            PacketContainer blockChangePacket = protocolManager.createPacket(PacketType.Play.Server.BLOCK_CHANGE);
+        if (!player.getWorld().equals(location.getWorld())) {
+            // The player's client no longer has that world loaded, the change would land in the wrong one.
+            plugin.getPluginLogger().debug("Skipping BlockChange for {} at {} - player is in another world.", player.getName(), location.toVector());
+            return;
+        }
 
-            blockChangePacket.getBlockPositionModifier().write(0, new BlockPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
-            blockChangePacket.getBlockData().write(0, WrappedBlockData.createData(blockData));
+        try {
+            PacketDispatcher packetDispatcher = plugin.getPacketDispatcher();
+            PacketContainer blockChangePacket = PacketWriters.blockChange(location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+                    BlockDataCache.wrap(blockData));
 
-            protocolManager.sendServerPacket(player, blockChangePacket);
+            packetDispatcher.send(player, blockChangePacket);
         } catch (Exception e) {
             plugin.getPluginLogger().error("Failed to send BlockChange packet to {} for location {}", player.getName(), location.toVector(), e);
         }
     }
 
     /**
-     * Crude helper to find the Y level of the ground below a location.
+     * Helper to find the Y level of the ground below a location.
      * Logic moved from EventExecutor.
      *
      * @param loc The starting location.
      * @return The Y level of the first non-passable block below, plus 1. Returns minY - 1 if no solid block found above world minimum.
      */
     public static double findGroundY(@NotNull Location loc) {
+        return findGroundY(loc, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Helper to find the Y level of the ground below a location, looking at most {@code maxDepth} blocks down.
+     * <p>
+     * Above the surface, the OCEAN_FLOOR heightmap answers directly. Below it (caves, overhangs), the column is
+     * scanned block by block, skipping whole chunk sections the block search has recently seen to hold only air.
+     *
+     * @param loc      The starting location.
+     * @param maxDepth How many blocks below the start to look at.
+     * @return The Y level of the first non-passable block below, plus 1. Returns minY - 1 if none was found in
+     * range or the chunk is not loaded.
+     */
+    public static double findGroundY(@NotNull Location loc, int maxDepth) {
         World world = loc.getWorld();
         if (world == null) return loc.getY();
 
-        int startY = loc.getBlockY();
-        int minY = world.getMinHeight();
+        int x = loc.getBlockX();
+        int z = loc.getBlockZ();
+        int worldMinY = world.getMinHeight();
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) return worldMinY - 1;
 
+        int startY = Math.min(loc.getBlockY(), world.getMaxHeight() - 1);
+        int minY = (int) Math.max(worldMinY, (long) startY - maxDepth);
+
+        // OCEAN_FLOOR tracks the highest block that blocks motion, nothing above it can be ground.
+        int surfaceY = world.getHighestBlockYAt(x, z, HeightMap.OCEAN_FLOOR);
+        if (startY > surfaceY) {
+            if (surfaceY < minY) return worldMinY - 1;
+            startY = surfaceY;
+        }
+
+        BlockSearchService blockSearchService = Desync.getInstance().getBlockSearchService();
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
         for (int y = startY; y >= minY; y--) {
-            Block block = world.getBlockAt(loc.getBlockX(), y, loc.getBlockZ());
+            if (y == startY || (y & 15) == 15) {
+                MaterialMask section = blockSearchService.getSectionSummary(world, chunkX, y >> 4, chunkZ);
+                if (section != null && section.isSubsetOf(AIR_TYPES)) {
+                    // Nothing but air down to the bottom of the section.
+                    y = y & ~15;
+                    continue;
+                }
+            }
 
+            Block block = world.getBlockAt(x, y, z);
             if (!block.isPassable() && block.getType() != Material.AIR) {
                 return y + 1.0;
             }
         }
-        return minY - 1;
+        return worldMinY - 1;
     }
 
     /**
      * Basic Line of Sight Check using RayTracing.
-     * Logic moved from EventExecutor.
+     * Logic moved from EventExecutor. Answers are shared within a tick and ray traces are capped per tick,
+     * see {@link org.ladyluh.desync.world.LineOfSightCache}; past the cap this returns false.
      *
      * @param start  The starting location (e.g., eye level).
      * @param end    The ending location (e.g., target player's eye level).
@@ -93,22 +137,8 @@ public class EffectUtils {
             return false;
         }
 
-        World world = start.getWorld();
-        double distance = start.distance(end);
-        if (distance <= 0.01) return true;
-
         try {
-
-            RayTraceResult result = world.rayTraceBlocks(
-                    start,
-                    end.toVector().subtract(start.toVector()).normalize(),
-                    distance,
-                    FluidCollisionMode.NEVER,
-                    true
-            );
-
-
-            return result == null;
+            return plugin.getLineOfSightCache().hasLineOfSight(start, end);
         } catch (Exception e) {
             plugin.getPluginLogger().error("Error during ray trace line of sight check from {} to {}: {}",
                     start.toVector(), end.toVector(), e.getMessage());
@@ -0,0 +1,117 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+
+/**
+ * The blocks of interest around one player at one moment, as found by a single {@link BlockSearchService} scan.
+ * <p>
+ * One census covers every registered {@link BlockSearchService.Query}: the scan walks the largest of their areas once
+ * and sorts each matching block into the bucket of every query it satisfies, within that query's own radius. All
+ * block events checking the same player during a scheduler pass then read the same census.
+ * <p>
+ * A bucket counts every match but only keeps a uniform random sample of {@value #SAMPLE_SIZE} of them (reservoir
+ * sampling), so its memory does not grow with the number of matches.
+ */
+public final class BlockCensus {
+
+    static final int SAMPLE_SIZE = 16;
+
+    private final UUID worldId;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final long tick;
+    private final Map<BlockSearchService.Query, Bucket> buckets;
+
+    /**
+     * The matches of one query. Filled on a worker thread, read-only once the census is published.
+     */
+    static final class Bucket {
+
+        private static final Bucket EMPTY = new Bucket();
+
+        private final long[] sample = new long[SAMPLE_SIZE];
+        private int count = 0;
+
+        /**
+         * Counts a match and keeps it with the probability that leaves every match equally likely to be sampled.
+         */
+        void offer(long packedPosition, @NotNull Random random) {
+            if (count < SAMPLE_SIZE) {
+                sample[count] = packedPosition;
+            } else {
+                int slot = random.nextInt(count + 1);
+                if (slot < SAMPLE_SIZE) sample[slot] = packedPosition;
+            }
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int sampleSize() {
+            return Math.min(count, SAMPLE_SIZE);
+        }
+
+        long sampleAt(int index) {
+            return sample[index];
+        }
+    }
+
+    BlockCensus(@NotNull UUID worldId, int originX, int originY, int originZ, long tick,
+                @NotNull Map<BlockSearchService.Query, Bucket> buckets) {
+        this.worldId = worldId;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.tick = tick;
+        this.buckets = buckets;
+    }
+
+    public @NotNull UUID getWorldId() {
+        return worldId;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return True if the query was registered when this census was taken.
+     */
+    public boolean covers(@NotNull BlockSearchService.Query query) {
+        return buckets.containsKey(query);
+    }
+
+    /**
+     * @return The matches of the query, sampled as packed positions (see {@link BlockSearchService#unpackX}).
+     */
+    @NotNull Bucket bucket(@NotNull BlockSearchService.Query query) {
+        Bucket bucket = buckets.get(query);
+        return bucket != null ? bucket : Bucket.EMPTY;
+    }
+
+    /**
+     * @return How many blocks matched the query, not just the sampled ones.
+     */
+    public int count(@NotNull BlockSearchService.Query query) {
+        return bucket(query).count();
+    }
+
+    /**
+     * @return True if the location is within the given distance of where the census was taken, on every axis.
+     */
+    boolean isNear(@NotNull Location location, int maxDrift) {
+        return location.getWorld() != null && location.getWorld().getUID().equals(worldId)
+                && Math.abs(location.getBlockX() - originX) <= maxDrift
+                && Math.abs(location.getBlockY() - originY) <= maxDrift
+                && Math.abs(location.getBlockZ() - originZ) <= maxDrift;
+    }
+}
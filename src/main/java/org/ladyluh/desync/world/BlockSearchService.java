@@ -0,0 +1,604 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.ladyluh.desync.Desync;
+import org.ladyluh.desync.scheduling.ExecutionBudget;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+
+/**
+ * Finds blocks of interest around a player (glass, doors, lit blocks...) without scanning the world on the main thread.
+ * <p>
+ * The chunks around the player are captured as {@link ChunkSnapshot}s on the main thread, the scan itself runs on a
+ * small worker pool, and the result comes back to the main thread on a later tick. One scan per player serves every
+ * registered {@link Query} at once and is kept as the player's {@link BlockCensus}, so {@code canTrigger} checks of
+ * all block events answer from it and only ask for a refresh, instead of each scanning the area again on every
+ * scheduler pass. A {@link SectionPresenceIndex} remembers which materials each chunk section holds, so sections
+ * without any wanted block are skipped, and a check around a player whose sections are all known to lack them fails
+ * without starting a scan at all.
+ * <p>
+ * A census can be a few seconds old, so callers pick a candidate through {@link #pick}, which checks it against the
+ * live block again.
+ */
+public class BlockSearchService {
+
+    private static final int WORKER_THREADS = 2;
+    private static final long SHUTDOWN_TIMEOUT_MS = 500L;
+    private static final long SNAPSHOT_MAX_AGE_TICKS = 20L;
+    private static final long CENSUS_MAX_AGE_TICKS = 200L;
+    private static final int MAX_SIGHT_CAPTURES_PER_CALL = 8;
+    private static final int MAX_SIGHT_CAPTURES_PER_TICK = 16;
+
+    private static final List<Query> QUERIES = new CopyOnWriteArrayList<>();
+
+    /**
+     * What to look for around a player. Every query created is registered and taken into account by the next census,
+     * so events keep theirs in a constant. Queries are compared by identity.
+     */
+    public static final class Query {
+
+        private final int radius;
+        private final int verticalRadius;
+        private final Predicate<BlockData> dataFilter;
+        private final MaterialMask types;
+
+        /**
+         * @param radius         Horizontal search radius in blocks.
+         * @param verticalRadius Vertical search radius in blocks.
+         * @param typeFilter     Filter on the block type. Evaluated once per material up front.
+         * @param dataFilter     Optional filter on the block data of matching types. Must be thread-safe.
+         */
+        public Query(int radius, int verticalRadius, @NotNull Predicate<Material> typeFilter,
+                     @Nullable Predicate<BlockData> dataFilter) {
+            this.radius = radius;
+            this.verticalRadius = verticalRadius;
+            this.dataFilter = dataFilter;
+            this.types = MaterialMask.of(typeFilter);
+            QUERIES.add(this);
+        }
+
+        public int radius() {
+            return radius;
+        }
+
+        public int verticalRadius() {
+            return verticalRadius;
+        }
+
+        public @NotNull MaterialMask types() {
+            return types;
+        }
+
+        public @Nullable Predicate<BlockData> dataFilter() {
+            return dataFilter;
+        }
+
+        private boolean matches(@NotNull World world, int x, int y, int z) {
+            return types.contains(world.getType(x, y, z)) && (dataFilter == null || dataFilter.test(world.getBlockData(x, y, z)));
+        }
+
+        private boolean inRange(int dx, int dy, int dz) {
+            return Math.abs(dx) <= radius && Math.abs(dz) <= radius && Math.abs(dy) <= verticalRadius;
+        }
+
+        /**
+         * @return The farthest distance shell that can still hold a block in range.
+         */
+        private int maxShell() {
+            return (int) Math.ceil(Math.sqrt((double) (2 * radius * radius + verticalRadius * verticalRadius)));
+        }
+    }
+
+    private record SnapshotEntry(@NotNull ChunkSnapshot snapshot, @NotNull SectionPresenceIndex.ChunkPresence presence, long tick) {
+    }
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final Map<UUID, BlockCensus> censuses = new HashMap<>();
+    /**
+     * Players with a census on its way, with the picks waiting for it.
+     */
+    private final Map<UUID, List<Consumer<BlockCensus>>> pending = new HashMap<>();
+    private final Map<SectionPresenceIndex.ChunkKey, SnapshotEntry> snapshots = new HashMap<>();
+    private final SectionPresenceIndex presenceIndex = new SectionPresenceIndex();
+    private long sightCapturesTick = -1;
+    private int sightCapturesThisTick = 0;
+
+    private volatile ExecutorService executor;
+
+    public BlockSearchService(@NotNull Desync plugin) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+    }
+
+    /**
+     * Starts the worker pool.
+     */
+    public void start() {
+        if (executor != null) {
+            logger.warn("BlockSearchService start requested, but it is already running.");
+            return;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Desync-BlockSearch-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the worker pool and drops every census. Scans still running are abandoned.
+     */
+    public void stop() {
+        ExecutorService current = executor;
+        executor = null;
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                if (!current.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    logger.warn("Block search workers did not stop in time.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        censuses.clear();
+        pending.clear();
+        snapshots.clear();
+        presenceIndex.clear();
+    }
+
+    /**
+     * Answers a {@code canTrigger} check from the player's census. A missing or stale census is refreshed in the
+     * background and counts as no candidates until it arrives.
+     *
+     * @return True if the latest usable census has candidates for the query.
+     */
+    public boolean hasCandidates(@NotNull Player player, @NotNull Query query) {
+        BlockCensus census = getUsableCensus(player, query);
+        if (census != null) return census.count(query) > 0;
+
+        if (!mayHaveCandidates(player, query)) {
+            // Every section around the player is known not to hold any wanted material.
+            return false;
+        }
+        requestCensus(player, null);
+        return false;
+    }
+
+    /**
+     * Finds a random candidate and hands it to the callback on the main thread: right away if a usable census is
+     * cached, otherwise once a fresh one has been taken (on a later tick). The callback gets null if there is
+     * no candidate, and is skipped if the player went offline or the service stopped meanwhile.
+     */
+    public void pick(@NotNull Player player, @NotNull Query query, @NotNull Consumer<Block> callback) {
+        BlockCensus census = getUsableCensus(player, query);
+        if (census != null) {
+            callback.accept(pickFrom(player, query, census));
+            return;
+        }
+
+        requestCensus(player, fresh -> {
+            if (player.isOnline()) {
+                callback.accept(pickFrom(player, query, fresh));
+            }
+        });
+    }
+
+    /**
+     * Checks on the workers which targets can be seen from the eye and hands the index of the first visible one, in
+     * list order, to the callback on the main thread (-1 if none is). Only the chunks the sight lines cross are
+     * captured, at most {@value #MAX_SIGHT_CAPTURES_PER_CALL} new ones per call and
+     * {@value #MAX_SIGHT_CAPTURES_PER_TICK} per tick, and none once the caller's {@link ExecutionBudget} is past its
+     * deadline (without ending it, the check still goes ahead and shows the caller's effect). Targets whose sight
+     * line needs a chunk that was not captured are left out, as hidden. The callback is skipped if the service
+     * stopped meanwhile.
+     * <p>
+     * Partial blocks count as full ones here (see {@link VoxelRaycast}), so a target may be reported hidden that
+     * {@code EffectUtils.hasLineOfSight} would see.
+     *
+     * @param targets Locations in the eye's world.
+     */
+    public void findFirstVisible(@NotNull Location eye, @NotNull List<Location> targets, @NotNull IntConsumer callback) {
+        ExecutorService current = executor;
+        World world = eye.getWorld();
+        if (current == null || world == null || targets.isEmpty()) {
+            callback.accept(-1);
+            return;
+        }
+
+        long tick = Bukkit.getCurrentTick();
+        if (tick != sightCapturesTick) {
+            sightCapturesTick = tick;
+            sightCapturesThisTick = 0;
+        }
+        snapshots.values().removeIf(entry -> tick - entry.tick() > SNAPSHOT_MAX_AGE_TICKS);
+
+        double eyeX = eye.getX();
+        double eyeY = eye.getY();
+        double eyeZ = eye.getZ();
+        double[] points = new double[targets.size() * 3];
+        int[] indices = new int[targets.size()];
+        int count = 0;
+        int capturesLeft = MAX_SIGHT_CAPTURES_PER_CALL;
+        Map<Long, ChunkSnapshot> chunkSnapshots = new HashMap<>();
+        Set<Long> targetKeys = new HashSet<>();
+        for (int i = 0; i < targets.size(); i++) {
+            Location target = targets.get(i);
+            targetKeys.clear();
+            VoxelRaycast.collectChunks(eyeX, eyeZ, target.getX(), target.getZ(), targetKeys);
+
+            boolean covered = true;
+            for (long key : targetKeys) {
+                if (chunkSnapshots.containsKey(key)) continue;
+
+                int chunkX = (int) (key >> 32);
+                int chunkZ = (int) key;
+                SnapshotEntry entry = snapshots.get(new SectionPresenceIndex.ChunkKey(world.getUID(), chunkX, chunkZ));
+                if (entry == null && capturesLeft > 0 && sightCapturesThisTick < MAX_SIGHT_CAPTURES_PER_TICK
+                        && !ExecutionBudget.current().isPastDeadline()) {
+                    entry = captureSnapshot(world, chunkX, chunkZ, tick);
+                    if (entry != null) {
+                        capturesLeft--;
+                        sightCapturesThisTick++;
+                    }
+                }
+                if (entry == null) {
+                    covered = false;
+                    break;
+                }
+                chunkSnapshots.put(key, entry.snapshot());
+            }
+            if (!covered) continue;
+
+            points[count * 3] = target.getX();
+            points[count * 3 + 1] = target.getY();
+            points[count * 3 + 2] = target.getZ();
+            indices[count++] = i;
+        }
+        if (count == 0) {
+            callback.accept(-1);
+            return;
+        }
+
+        int checked = count;
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight() - 1;
+
+        try {
+            CompletableFuture
+                    .supplyAsync(() -> {
+                        VoxelRaycast raycast = new VoxelRaycast(chunkSnapshots, minY, maxY);
+                        for (int i = 0; i < checked; i++) {
+                            if (raycast.isClear(eyeX, eyeY, eyeZ, points[i * 3], points[i * 3 + 1], points[i * 3 + 2])) {
+                                return indices[i];
+                            }
+                        }
+                        return -1;
+                    }, current)
+                    .whenComplete((index, error) -> {
+                        if (executor == null || !plugin.isEnabled()) return;
+
+                        Bukkit.getScheduler().runTask(plugin, () -> {
+                            if (executor == null) return;
+                            if (error != null || index == null) {
+                                logger.error("Line of sight check from {} failed.", eye.toVector(), error);
+                                return;
+                            }
+                            try {
+                                callback.accept(index);
+                            } catch (Exception e) {
+                                logger.error("Line of sight callback failed.", e);
+                            }
+                        });
+                    });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Line of sight check from {} rejected, the service is stopping.", eye.toVector());
+        }
+    }
+
+    /**
+     * @param sectionY The absolute section Y (block Y >> 4).
+     * @return The materials known to be in the chunk section, or null if unknown. Blocks removed since may still
+     * be listed. Blocks added by changes that fire no event (commands, other plugins) may be missing, so summaries
+     * older than a census are not returned.
+     */
+    public @Nullable MaterialMask getSectionSummary(@NotNull World world, int chunkX, int sectionY, int chunkZ) {
+        return presenceIndex.peek(world, chunkX, sectionY, chunkZ, Bukkit.getCurrentTick(), CENSUS_MAX_AGE_TICKS);
+    }
+
+    /**
+     * Forgets what is known about the chunk holding the block. Called when a block changes.
+     */
+    public void invalidateBlock(@NotNull World world, int blockX, int blockZ) {
+        presenceIndex.invalidate(world, blockX, blockZ);
+        snapshots.remove(new SectionPresenceIndex.ChunkKey(world.getUID(), blockX >> 4, blockZ >> 4));
+    }
+
+    public void forgetChunk(@NotNull World world, int chunkX, int chunkZ) {
+        presenceIndex.forgetChunk(world, chunkX, chunkZ);
+        snapshots.remove(new SectionPresenceIndex.ChunkKey(world.getUID(), chunkX, chunkZ));
+    }
+
+    /**
+     * Drops the census of a player.
+     */
+    public void removePlayer(@NotNull UUID playerUUID) {
+        censuses.remove(playerUUID);
+        pending.remove(playerUUID);
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * @return The worker pool, or null if the service is not running.
+     */
+    @Nullable Executor workers() {
+        return executor;
+    }
+
+    private @Nullable BlockCensus getUsableCensus(@NotNull Player player, @NotNull Query query) {
+        BlockCensus census = censuses.get(player.getUniqueId());
+        if (census == null || !census.covers(query)) return null;
+
+        boolean usable = Bukkit.getCurrentTick() - census.getTick() <= CENSUS_MAX_AGE_TICKS
+                && census.isNear(player.getLocation(), Math.max(1, query.radius() / 2));
+        return usable ? census : null;
+    }
+
+    private boolean mayHaveCandidates(@NotNull Player player, @NotNull Query query) {
+        Location location = player.getLocation();
+        World world = location.getWorld();
+        if (world == null) return false;
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        return presenceIndex.mayContain(world, query.types(),
+                x - query.radius(), Math.max(world.getMinHeight(), y - query.verticalRadius()), z - query.radius(),
+                x + query.radius(), Math.min(world.getMaxHeight() - 1, y + query.verticalRadius()), z + query.radius());
+    }
+
+    private @Nullable Block pickFrom(@NotNull Player player, @NotNull Query query, @NotNull BlockCensus census) {
+        World world = player.getWorld();
+        BlockCensus.Bucket bucket = census.bucket(query);
+        int sampleSize = bucket.sampleSize();
+        if (sampleSize == 0 || !world.getUID().equals(census.getWorldId())) return null;
+
+        // The sample is already random, start anywhere and take the first one that still matches;
+        // the world may have changed since the snapshot.
+        int start = ThreadLocalRandom.current().nextInt(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+            long packed = bucket.sampleAt((start + i) % sampleSize);
+            int x = unpackX(packed);
+            int y = unpackY(packed);
+            int z = unpackZ(packed);
+            if (!world.isChunkLoaded(x >> 4, z >> 4)) continue;
+
+            if (query.matches(world, x, y, z)) {
+                return world.getBlockAt(x, y, z);
+            }
+        }
+        return null;
+    }
+
+    private void requestCensus(@NotNull Player player, @Nullable Consumer<BlockCensus> onCensus) {
+        ExecutorService current = executor;
+        if (current == null) return;
+
+        UUID playerUUID = player.getUniqueId();
+        List<Consumer<BlockCensus>> waiting = pending.get(playerUUID);
+        if (waiting != null) {
+            // A census is already on its way, everyone waits for that one.
+            if (onCensus != null) waiting.add(onCensus);
+            return;
+        }
+
+        Location origin = player.getLocation();
+        World world = origin.getWorld();
+        if (world == null || QUERIES.isEmpty()) return;
+
+        List<Query> queries = List.copyOf(QUERIES);
+        long[] unionWords = MaterialMask.newWords();
+        int radius = 0;
+        int verticalRadius = 0;
+        for (Query query : queries) {
+            query.types().addTo(unionWords);
+            radius = Math.max(radius, query.radius());
+            verticalRadius = Math.max(verticalRadius, query.verticalRadius());
+        }
+        MaterialMask union = MaterialMask.wrap(unionWords);
+
+        List<SnapshotEntry> chunkSnapshots = captureSnapshots(world, origin, radius);
+        OffsetTable offsets = OffsetTable.get(radius, verticalRadius);
+        long tick = Bukkit.getCurrentTick();
+        UUID worldId = world.getUID();
+        int originX = origin.getBlockX();
+        int originY = origin.getBlockY();
+        int originZ = origin.getBlockZ();
+        int minY = Math.max(world.getMinHeight(), originY - verticalRadius);
+        int maxY = Math.min(world.getMaxHeight() - 1, originY + verticalRadius);
+        int scanRadius = radius;
+
+        waiting = new ArrayList<>(2);
+        if (onCensus != null) waiting.add(onCensus);
+        pending.put(playerUUID, waiting);
+
+        try {
+            CompletableFuture
+                    .supplyAsync(() -> new BlockCensus(worldId, originX, originY, originZ, tick,
+                            scan(chunkSnapshots, offsets, queries, union, scanRadius, originX, originY, originZ, minY, maxY)), current)
+                    .whenComplete((census, error) -> deliver(playerUUID, census, error));
+        } catch (RejectedExecutionException e) {
+            pending.remove(playerUUID);
+            logger.debug("Block census for {} rejected, the service is stopping.", player.getName());
+        }
+    }
+
+    private void deliver(@NotNull UUID playerUUID, @Nullable BlockCensus census, @Nullable Throwable error) {
+        if (executor == null || !plugin.isEnabled()) return;
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (executor == null) return;
+            List<Consumer<BlockCensus>> waiting = pending.remove(playerUUID);
+            if (error != null || census == null) {
+                logger.error("Block census for {} failed.", playerUUID, error);
+                return;
+            }
+            if (Bukkit.getPlayer(playerUUID) == null) return;
+
+            censuses.put(playerUUID, census);
+            if (waiting == null) return;
+            for (Consumer<BlockCensus> callback : waiting) {
+                try {
+                    callback.accept(census);
+                } catch (Exception e) {
+                    logger.error("Block search callback for {} failed.", playerUUID, e);
+                }
+            }
+        });
+    }
+
+    private @NotNull List<SnapshotEntry> captureSnapshots(@NotNull World world, @NotNull Location origin, int radius) {
+        long tick = Bukkit.getCurrentTick();
+        snapshots.values().removeIf(entry -> tick - entry.tick() > SNAPSHOT_MAX_AGE_TICKS);
+
+        List<SnapshotEntry> captured = new ArrayList<>(4);
+        int minChunkX = (origin.getBlockX() - radius) >> 4;
+        int maxChunkX = (origin.getBlockX() + radius) >> 4;
+        int minChunkZ = (origin.getBlockZ() - radius) >> 4;
+        int maxChunkZ = (origin.getBlockZ() + radius) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                SnapshotEntry entry = captureSnapshot(world, chunkX, chunkZ, tick);
+                if (entry != null) captured.add(entry);
+            }
+        }
+        return captured;
+    }
+
+    /**
+     * @return The cached snapshot of the chunk, taking one if needed, or null if the chunk is not loaded.
+     */
+    private @Nullable SnapshotEntry captureSnapshot(@NotNull World world, int chunkX, int chunkZ, long tick) {
+        if (!world.isChunkLoaded(chunkX, chunkZ)) return null;
+
+        SectionPresenceIndex.ChunkKey key = new SectionPresenceIndex.ChunkKey(world.getUID(), chunkX, chunkZ);
+        SnapshotEntry entry = snapshots.get(key);
+        if (entry == null) {
+            Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+            entry = new SnapshotEntry(chunk.getChunkSnapshot(false, false, false),
+                    presenceIndex.acquire(world, chunkX, chunkZ, tick), tick);
+            snapshots.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Runs on a worker thread. Walks the largest query area once, nearest blocks first, and offers every block to
+     * the buckets of the queries it matches. Sections whose summary lists none of the wanted materials are skipped,
+     * and a query stops being considered past its farthest distance shell.
+     */
+    private static @NotNull Map<Query, BlockCensus.Bucket> scan(@NotNull List<SnapshotEntry> chunkSnapshots,
+                                                                @NotNull OffsetTable offsets, @NotNull List<Query> queries,
+                                                                @NotNull MaterialMask union, int radius,
+                                                                int originX, int originY, int originZ, int minY, int maxY) {
+        int queryCount = queries.size();
+        BlockCensus.Bucket[] buckets = new BlockCensus.Bucket[queryCount];
+        int[] queryEnds = new int[queryCount];
+        int walkEnd = 0;
+        for (int i = 0; i < queryCount; i++) {
+            buckets[i] = new BlockCensus.Bucket();
+            queryEnds[i] = offsets.shellEnd(queries.get(i).maxShell());
+            walkEnd = Math.max(walkEnd, queryEnds[i]);
+        }
+
+        // Snapshots and section verdicts laid out on the chunk grid of the box, so the walk needs no lookups.
+        int minChunkX = (originX - radius) >> 4;
+        int minChunkZ = (originZ - radius) >> 4;
+        int gridWidth = ((originX + radius) >> 4) - minChunkX + 1;
+        int gridDepth = ((originZ + radius) >> 4) - minChunkZ + 1;
+        int minSectionY = minY >> 4;
+        int sectionCount = (maxY >> 4) - minSectionY + 1;
+        SnapshotEntry[] grid = new SnapshotEntry[gridWidth * gridDepth];
+        for (SnapshotEntry entry : chunkSnapshots) {
+            grid[(entry.snapshot().getX() - minChunkX) * gridDepth + entry.snapshot().getZ() - minChunkZ] = entry;
+        }
+        byte[] sectionVerdicts = new byte[grid.length * sectionCount];
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < walkEnd; i++) {
+            int y = originY + offsets.dy(i);
+            if (y < minY || y > maxY) continue;
+            int x = originX + offsets.dx(i);
+            int z = originZ + offsets.dz(i);
+
+            int cell = ((x >> 4) - minChunkX) * gridDepth + (z >> 4) - minChunkZ;
+            SnapshotEntry entry = grid[cell];
+            if (entry == null) continue;
+
+            int verdictIndex = cell * sectionCount + (y >> 4) - minSectionY;
+            byte verdict = sectionVerdicts[verdictIndex];
+            if (verdict == 0) {
+                verdict = entry.presence().getOrBuild(entry.snapshot(), y >> 4).intersects(union) ? (byte) 1 : (byte) -1;
+                sectionVerdicts[verdictIndex] = verdict;
+            }
+            if (verdict < 0) continue;
+
+            ChunkSnapshot snapshot = entry.snapshot();
+            Material type = snapshot.getBlockType(x & 15, y, z & 15);
+            if (!union.contains(type)) continue;
+
+            BlockData data = null;
+            for (int q = 0; q < queryCount; q++) {
+                if (i >= queryEnds[q]) continue;
+                Query query = queries.get(q);
+                if (!query.types().contains(type) || !query.inRange(x - originX, y - originY, z - originZ)) continue;
+                if (query.dataFilter() != null) {
+                    if (data == null) data = snapshot.getBlockData(x & 15, y, z & 15);
+                    if (!query.dataFilter().test(data)) continue;
+                }
+                buckets[q].offer(pack(x, y, z), random);
+            }
+        }
+
+        Map<Query, BlockCensus.Bucket> byQuery = new IdentityHashMap<>(queryCount * 2);
+        for (int i = 0; i < queryCount; i++) {
+            byQuery.put(queries.get(i), buckets[i]);
+        }
+        return byQuery;
+    }
+}
@@ -0,0 +1,108 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.Bukkit;
+import org.bukkit.FluidCollisionMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.RayTraceResult;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.scheduling.ExecutionBudget;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Main-thread line of sight ray traces, remembered for the rest of the tick and capped per tick across all events.
+ * <p>
+ * Answers are keyed by the world and the blocks holding both ends, in either order, so placement retries and events for players
+ * standing close together share them. Once the tick's ray traces are spent, further checks answer "not visible" and
+ * exhaust the caller's {@link ExecutionBudget}, so the event gives up its search and is retried on a later tick.
+ */
+public class LineOfSightCache {
+
+    private static final int MAX_RAYCASTS_PER_TICK = 64;
+
+    private record SightKey(UUID worldId, long first, long second) {
+    }
+
+    private final Map<SightKey, Boolean> answers = new HashMap<>();
+    private int answersTick = -1;
+    private int raycastsThisTick = 0;
+
+    private long hits;
+    private long misses;
+    private long deferrals;
+
+    /**
+     * @return True if no block blocks the segment between the two locations, which must be in the same world.
+     */
+    public boolean hasLineOfSight(@NotNull Location start, @NotNull Location end) {
+        int tick = Bukkit.getCurrentTick();
+        if (tick != answersTick) {
+            answers.clear();
+            answersTick = tick;
+            raycastsThisTick = 0;
+        }
+
+        World world = start.getWorld();
+        UUID worldId = world != null ? world.getUID() : null;
+        long startBlock = BlockSearchService.pack(start.getBlockX(), start.getBlockY(), start.getBlockZ());
+        long endBlock = BlockSearchService.pack(end.getBlockX(), end.getBlockY(), end.getBlockZ());
+        SightKey key = startBlock <= endBlock
+                ? new SightKey(worldId, startBlock, endBlock)
+                : new SightKey(worldId, endBlock, startBlock);
+        Boolean known = answers.get(key);
+        if (known != null) {
+            hits++;
+            return known;
+        }
+
+        if (raycastsThisTick >= MAX_RAYCASTS_PER_TICK) {
+            deferrals++;
+            ExecutionBudget.current().exhaust();
+            return false;
+        }
+        raycastsThisTick++;
+        misses++;
+
+        double distance = start.distance(end);
+        boolean visible = true;
+        if (world != null && distance > 0.01) {
+            Vector direction = end.toVector().subtract(start.toVector()).multiply(1.0 / distance);
+            RayTraceResult result = world.rayTraceBlocks(start, direction, distance, FluidCollisionMode.NEVER, true);
+            visible = result == null;
+        }
+        answers.put(key, visible);
+        return visible;
+    }
+
+    /**
+     * @return Checks answered from an earlier ray trace of the same tick.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Checks that needed a ray trace.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Checks turned away because the tick's ray traces were spent.
+     */
+    public long getDeferrals() {
+        return deferrals;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        deferrals = 0;
+    }
+}
@@ -0,0 +1,119 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Lightable;
+import org.bukkit.block.data.type.Door;
+import org.bukkit.block.data.type.Gate;
+import org.bukkit.block.data.type.TrapDoor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Predicate;
+
+
+/**
+ * Category bits of every material, indexed by {@link Material#ordinal()}, so a type check is an array load and a mask
+ * test instead of a set lookup or a chain of {@code Material} calls.
+ * <p>
+ * The built-in categories are computed once, when the class is first used (the events' constants, during enable).
+ * Events add categories of their own with {@link #register}, which hands out the next free bit. The table is safe to
+ * read from any thread.
+ */
+public final class MaterialClass {
+
+    /**
+     * {@link Material#isSolid()}: the block stops movement.
+     */
+    public static final int SOLID = 1;
+    public static final int GRAVITY = 1 << 1;
+    public static final int AIR = 1 << 2;
+    /**
+     * Water, lava and bubble columns.
+     */
+    public static final int LIQUID = 1 << 3;
+    /**
+     * Glass blocks and panes, tinted and stained ones included.
+     */
+    public static final int GLASS = 1 << 4;
+    /**
+     * Doors, trapdoors and fence gates.
+     */
+    public static final int DOOR = 1 << 5;
+    /**
+     * Blocks with a lit state (lamps, furnaces, candles, redstone torches...).
+     */
+    public static final int LIGHTABLE = 1 << 6;
+
+    private static final int BUILT_IN_BITS = 7;
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private static volatile int[] classes = buildBuiltIn();
+    private static int nextBit = BUILT_IN_BITS;
+
+    private MaterialClass() {
+    }
+
+    /**
+     * @return All category bits of the material.
+     */
+    public static int of(@NotNull Material material) {
+        return classes[material.ordinal()];
+    }
+
+    /**
+     * @return True if the material is in any of the categories of the mask.
+     */
+    public static boolean is(@NotNull Material material, int mask) {
+        return (classes[material.ordinal()] & mask) != 0;
+    }
+
+    /**
+     * Adds a category of every non-legacy material accepted by the filter. Call it once, from a static constant.
+     *
+     * @return The bit of the new category.
+     */
+    public static synchronized int register(@NotNull Predicate<Material> filter) {
+        if (nextBit >= Integer.SIZE) {
+            throw new IllegalStateException("No material class bit left, " + Integer.SIZE + " are in use.");
+        }
+        int bit = 1 << nextBit++;
+
+        int[] updated = classes.clone();
+        for (Material material : MATERIALS) {
+            if (!material.isLegacy() && filter.test(material)) {
+                updated[material.ordinal()] |= bit;
+            }
+        }
+        classes = updated;
+        return bit;
+    }
+
+    private static int @NotNull [] buildBuiltIn() {
+        int[] table = new int[MATERIALS.length];
+        for (Material material : MATERIALS) {
+            if (material.isLegacy()) continue;
+
+            int bits = 0;
+            if (material.isAir()) bits |= AIR;
+            if (!material.isBlock()) {
+                table[material.ordinal()] = bits;
+                continue;
+            }
+
+            if (material.isSolid()) bits |= SOLID;
+            if (material.hasGravity()) bits |= GRAVITY;
+            if (material == Material.WATER || material == Material.LAVA || material == Material.BUBBLE_COLUMN) bits |= LIQUID;
+
+            String name = material.name();
+            if (name.endsWith("GLASS") || name.endsWith("GLASS_PANE")) bits |= GLASS;
+
+            BlockData data = material.createBlockData();
+            if (data instanceof Door || data instanceof TrapDoor || data instanceof Gate) bits |= DOOR;
+            if (data instanceof Lightable) bits |= LIGHTABLE;
+
+            table[material.ordinal()] = bits;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,88 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Predicate;
+
+
+/**
+ * An immutable set of block materials stored as a bitmask over {@link Material#ordinal()}, so that two sets can be
+ * intersected with a handful of long operations.
+ */
+public final class MaterialMask {
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final int WORDS = (MATERIALS.length + 63) >>> 6;
+
+    public static final MaterialMask EMPTY = new MaterialMask(new long[WORDS]);
+
+    private final long[] words;
+
+    private MaterialMask(long @NotNull [] words) {
+        this.words = words;
+    }
+
+    /**
+     * @return A mask of every non-legacy material accepted by the filter.
+     */
+    public static @NotNull MaterialMask of(@NotNull Predicate<Material> filter) {
+        long[] words = new long[WORDS];
+        for (Material material : MATERIALS) {
+            if (!material.isLegacy() && filter.test(material)) {
+                set(words, material);
+            }
+        }
+        return new MaterialMask(words);
+    }
+
+    /**
+     * @return A fresh, empty word array for {@link #set} and {@link #wrap}.
+     */
+    static long @NotNull [] newWords() {
+        return new long[WORDS];
+    }
+
+    static void set(long @NotNull [] words, @NotNull Material material) {
+        int ordinal = material.ordinal();
+        words[ordinal >>> 6] |= 1L << ordinal;
+    }
+
+    /**
+     * Wraps words filled through {@link #set}. The array must not be modified afterwards.
+     */
+    static @NotNull MaterialMask wrap(long @NotNull [] words) {
+        return new MaterialMask(words);
+    }
+
+    /**
+     * Adds this set's materials to words from {@link #newWords()}.
+     */
+    void addTo(long @NotNull [] target) {
+        for (int i = 0; i < WORDS; i++) {
+            target[i] |= words[i];
+        }
+    }
+
+    public boolean contains(@NotNull Material material) {
+        int ordinal = material.ordinal();
+        return (words[ordinal >>> 6] & 1L << ordinal) != 0;
+    }
+
+    /**
+     * @return True if every material of this set is also in the other one.
+     */
+    public boolean isSubsetOf(@NotNull MaterialMask other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & ~other.words[i]) != 0) return false;
+        }
+        return true;
+    }
+
+    public boolean intersects(@NotNull MaterialMask other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & other.words[i]) != 0) return true;
+        }
+        return false;
+    }
+}
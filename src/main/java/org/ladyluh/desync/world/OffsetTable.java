@@ -0,0 +1,90 @@
+package org.ladyluh.desync.world;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Every block offset within a box around the origin, sorted by distance and grouped into shells one block thick.
+ * <p>
+ * Walking a table visits the nearest blocks first, so a walk can stop at the shell past its search radius or as soon
+ * as it has found enough, and it needs no {@code Block} or {@code Location} per visited position. Tables are built
+ * once per box size and shared.
+ */
+public final class OffsetTable {
+
+    private static final int MAX_RADIUS = 127;
+    private static final Map<Integer, OffsetTable> TABLES = new ConcurrentHashMap<>();
+
+    private final int[] offsets;
+    private final int[] shellEnds;
+
+    private OffsetTable(int radius, int verticalRadius) {
+        int count = (2 * radius + 1) * (2 * radius + 1) * (2 * verticalRadius + 1);
+        long[] sortable = new long[count];
+        int i = 0;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -verticalRadius; dy <= verticalRadius; dy++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    long distanceSquared = dx * dx + dy * dy + dz * dz;
+                    sortable[i++] = distanceSquared << 32 | pack(dx, dy, dz);
+                }
+            }
+        }
+        Arrays.sort(sortable);
+
+        offsets = new int[count];
+        int maxShell = (int) Math.sqrt((double) (2 * radius * radius + verticalRadius * verticalRadius));
+        shellEnds = new int[maxShell + 1];
+        for (int j = 0; j < count; j++) {
+            offsets[j] = (int) sortable[j];
+            int shell = (int) Math.sqrt((double) (sortable[j] >>> 32));
+            shellEnds[shell] = j + 1;
+        }
+        for (int shell = 1; shell <= maxShell; shell++) {
+            // Shells without any offset end where the previous one did.
+            shellEnds[shell] = Math.max(shellEnds[shell], shellEnds[shell - 1]);
+        }
+    }
+
+    /**
+     * @return The shared table of the box spanning {@code radius} horizontally and {@code verticalRadius} vertically.
+     */
+    public static @NotNull OffsetTable get(int radius, int verticalRadius) {
+        if (radius < 0 || verticalRadius < 0 || radius > MAX_RADIUS || verticalRadius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Offset table radius out of range: " + radius + "/" + verticalRadius);
+        }
+        return TABLES.computeIfAbsent(radius << 8 | verticalRadius, key -> new OffsetTable(radius, verticalRadius));
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * @return The index just past the last offset whose distance is below {@code distance + 1}.
+     */
+    public int shellEnd(int distance) {
+        if (distance < 0) return 0;
+        return shellEnds[Math.min(distance, shellEnds.length - 1)];
+    }
+
+    public int dx(int index) {
+        return (offsets[index] >> 16 & 0xFF) - 128;
+    }
+
+    public int dy(int index) {
+        return (offsets[index] >> 8 & 0xFF) - 128;
+    }
+
+    public int dz(int index) {
+        return (offsets[index] & 0xFF) - 128;
+    }
+
+    private static int pack(int dx, int dy, int dz) {
+        return (dx + 128) << 16 | (dy + 128) << 8 | (dz + 128);
+    }
+}
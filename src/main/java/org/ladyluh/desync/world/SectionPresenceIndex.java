@@ -0,0 +1,164 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Which materials occur in each 16x16x16 chunk section, so that a block search can reject whole sections without
+ * looking at their blocks.
+ * <p>
+ * A section's summary is built by the block search workers the first time they scan it, and kept until a block in
+ * its chunk changes or the chunk unloads. Summaries are only ever used to skip sections, so one that still lists a
+ * material that has since been removed just costs a wasted scan.
+ * <p>
+ * Invalidation and lookups happen on the main thread, summaries are filled in from the workers.
+ */
+public class SectionPresenceIndex {
+
+    /**
+     * Max age of a summary, for block changes that fire no event (other plugins, commands).
+     */
+    private static final long MAX_AGE_TICKS = 1200L;
+
+    private final Map<ChunkKey, ChunkPresence> chunks = new ConcurrentHashMap<>();
+
+    record ChunkKey(@NotNull UUID worldId, int x, int z) {
+    }
+
+    /**
+     * The section summaries of one chunk. Once invalidated, the object is dropped from the index, so workers that
+     * still fill it in from an older snapshot change nothing.
+     */
+    static final class ChunkPresence {
+
+        private final int minSection;
+        private final long createdTick;
+        private final AtomicReferenceArray<MaterialMask> sections;
+
+        private ChunkPresence(int minSection, int sectionCount, long createdTick) {
+            this.minSection = minSection;
+            this.createdTick = createdTick;
+            this.sections = new AtomicReferenceArray<>(sectionCount);
+        }
+
+        /**
+         * @param sectionY The absolute section Y (block Y >> 4).
+         * @return The section's summary, or null if it has not been built yet.
+         */
+        @Nullable MaterialMask get(int sectionY) {
+            int index = sectionY - minSection;
+            if (index < 0 || index >= sections.length()) return MaterialMask.EMPTY;
+            return sections.get(index);
+        }
+
+        /**
+         * Returns the section's summary, building it from the snapshot first if needed. Worker thread.
+         */
+        @NotNull MaterialMask getOrBuild(@NotNull ChunkSnapshot snapshot, int sectionY) {
+            MaterialMask mask = get(sectionY);
+            if (mask != null) return mask;
+
+            int index = sectionY - minSection;
+            if (snapshot.isSectionEmpty(index)) {
+                mask = MaterialMask.EMPTY;
+            } else {
+                long[] words = MaterialMask.newWords();
+                int baseY = sectionY << 4;
+                Material last = null;
+                for (int y = baseY; y < baseY + 16; y++) {
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            Material type = snapshot.getBlockType(x, y, z);
+                            if (type != last) {
+                                MaterialMask.set(words, type);
+                                last = type;
+                            }
+                        }
+                    }
+                }
+                mask = MaterialMask.wrap(words);
+            }
+            sections.set(index, mask);
+            return mask;
+        }
+    }
+
+    /**
+     * Main thread. Returns the chunk's summaries, starting over if they are too old.
+     */
+    @NotNull ChunkPresence acquire(@NotNull World world, int chunkX, int chunkZ, long tick) {
+        ChunkKey key = new ChunkKey(world.getUID(), chunkX, chunkZ);
+        ChunkPresence presence = chunks.get(key);
+        if (presence == null || tick - presence.createdTick > MAX_AGE_TICKS) {
+            int minSection = world.getMinHeight() >> 4;
+            presence = new ChunkPresence(minSection, (world.getMaxHeight() >> 4) - minSection, tick);
+            chunks.put(key, presence);
+        }
+        return presence;
+    }
+
+    /**
+     * Main thread. Answers whether any section overlapping the box may hold one of the materials.
+     *
+     * @return False only if every overlapped section has a summary and none lists a wanted material.
+     */
+    boolean mayContain(@NotNull World world, @NotNull MaterialMask wanted, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        UUID worldId = world.getUID();
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                ChunkPresence presence = chunks.get(new ChunkKey(worldId, chunkX, chunkZ));
+                if (presence == null) {
+                    if (world.isChunkLoaded(chunkX, chunkZ)) return true;
+                    continue;
+                }
+                for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                    MaterialMask mask = presence.get(sectionY);
+                    if (mask == null || mask.intersects(wanted)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Main thread.
+     *
+     * @param sectionY    The absolute section Y (block Y >> 4).
+     * @param maxAgeTicks Summaries older than this are not returned, for callers that need blocks added since to be
+     *                    listed.
+     * @return The section's summary, or null if it has not been built, was invalidated or is too old.
+     */
+    @Nullable MaterialMask peek(@NotNull World world, int chunkX, int sectionY, int chunkZ, long tick, long maxAgeTicks) {
+        ChunkPresence presence = chunks.get(new ChunkKey(world.getUID(), chunkX, chunkZ));
+        if (presence == null || tick - presence.createdTick > Math.min(maxAgeTicks, MAX_AGE_TICKS)) return null;
+        return presence.get(sectionY);
+    }
+
+    /**
+     * Drops the summaries of the chunk holding the block.
+     */
+    public void invalidate(@NotNull World world, int blockX, int blockZ) {
+        chunks.remove(new ChunkKey(world.getUID(), blockX >> 4, blockZ >> 4));
+    }
+
+    public void forgetChunk(@NotNull World world, int chunkX, int chunkZ) {
+        chunks.remove(new ChunkKey(world.getUID(), chunkX, chunkZ));
+    }
+
+    public void clear() {
+        chunks.clear();
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+}
@@ -0,0 +1,415 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.ladyluh.desync.Desync;
+import org.slf4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Known standable spots (solid ground with two free blocks above) per chunk, for the events that place something
+ * in the world around a player (stalker, structures, particles).
+ * <p>
+ * Chunks are indexed from {@link ChunkSnapshot}s on the block search workers, when they load or when a placement
+ * first asks about them. Every chunk keeps a random sample of {@value #SPOTS_PER_SECTION} spots per section as
+ * packed positions. A block appearing in a chunk drops its spots, and the chunk is indexed again the next time it
+ * is asked about. Removed blocks are not tracked, so callers check a sampled spot against the live world with
+ * {@link #isStandable} before using it.
+ * <p>
+ * Chunks that are not loaded are skipped, unless a placement asks for them through {@link #prepareRing}.
+ * <p>
+ * Main thread, apart from the indexing itself.
+ */
+public class SpotIndex implements Runnable {
+
+    private static final int SPOTS_PER_SECTION = 8;
+    private static final int CHUNKS_PER_TICK = 4;
+    private static final int MAX_QUEUED_CHUNKS = 4096;
+
+    private final Desync plugin;
+    private final Logger logger;
+    private final BlockSearchService blockSearchService;
+    private final Map<SectionPresenceIndex.ChunkKey, long[]> spotsByChunk = new ConcurrentHashMap<>();
+    /**
+     * Bumped on every invalidation, so an indexing run that started before it cannot publish stale spots.
+     */
+    private final Map<SectionPresenceIndex.ChunkKey, Integer> generations = new HashMap<>();
+    private final Set<SectionPresenceIndex.ChunkKey> queued = new LinkedHashSet<>();
+    private final List<RingWaiter> waiters = new ArrayList<>();
+    private BukkitTask task;
+
+    /**
+     * A {@link #prepareRing} call waiting for its chunks to be indexed.
+     */
+    private record RingWaiter(@NotNull Set<SectionPresenceIndex.ChunkKey> remaining, @NotNull List<Chunk> ticketed,
+                              long deadlineTick, @NotNull Runnable onReady) {
+    }
+
+    public SpotIndex(@NotNull Desync plugin, @NotNull BlockSearchService blockSearchService) {
+        this.plugin = plugin;
+        this.logger = plugin.getPluginLogger();
+        this.blockSearchService = blockSearchService;
+    }
+
+    /**
+     * Starts the task feeding queued chunks to the workers.
+     */
+    public void start() {
+        if (task != null && !task.isCancelled()) {
+            logger.warn("SpotIndex task already running!");
+            return;
+        }
+
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+    }
+
+    /**
+     * Stops the task and drops every indexed chunk.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (RingWaiter waiter : waiters) {
+            releaseTickets(waiter);
+        }
+        waiters.clear();
+        spotsByChunk.clear();
+        generations.clear();
+        queued.clear();
+    }
+
+    /**
+     * Queues a chunk for indexing. Called when it loads.
+     */
+    public void enqueue(@NotNull World world, int chunkX, int chunkZ) {
+        if (queued.size() >= MAX_QUEUED_CHUNKS) return;
+        queued.add(new SectionPresenceIndex.ChunkKey(world.getUID(), chunkX, chunkZ));
+    }
+
+    /**
+     * Drops the spots of the chunk holding the block. Called when a block changes.
+     */
+    public void invalidate(@NotNull World world, int blockX, int blockZ) {
+        SectionPresenceIndex.ChunkKey key = new SectionPresenceIndex.ChunkKey(world.getUID(), blockX >> 4, blockZ >> 4);
+        generations.merge(key, 1, Integer::sum);
+        spotsByChunk.remove(key);
+    }
+
+    public void forgetChunk(@NotNull World world, int chunkX, int chunkZ) {
+        SectionPresenceIndex.ChunkKey key = new SectionPresenceIndex.ChunkKey(world.getUID(), chunkX, chunkZ);
+        generations.remove(key);
+        spotsByChunk.remove(key);
+        queued.remove(key);
+    }
+
+    public int size() {
+        return spotsByChunk.size();
+    }
+
+    /**
+     * Fills {@code out} with a uniform random sample of the indexed spots whose horizontal distance to the center is
+     * within the given range and whose Y is within {@code maxDy} of it. Loaded chunks in range that are not indexed
+     * yet are queued, so a later call can use them.
+     *
+     * @return The number of spots written to {@code out}.
+     */
+    public int sample(@NotNull Location center, double minDistance, double maxDistance, int maxDy, long @NotNull [] out) {
+        World world = center.getWorld();
+        if (world == null || out.length == 0) return 0;
+
+        UUID worldId = world.getUID();
+        double centerX = center.getX();
+        double centerZ = center.getZ();
+        int centerY = center.getBlockY();
+        double minSquared = minDistance * minDistance;
+        double maxSquared = maxDistance * maxDistance;
+        int reach = (int) Math.ceil(maxDistance);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        int seen = 0;
+        for (int chunkX = ((int) Math.floor(centerX) - reach) >> 4; chunkX <= ((int) Math.floor(centerX) + reach) >> 4; chunkX++) {
+            for (int chunkZ = ((int) Math.floor(centerZ) - reach) >> 4; chunkZ <= ((int) Math.floor(centerZ) + reach) >> 4; chunkZ++) {
+                if (!overlapsRing(chunkX, chunkZ, centerX, centerZ, minSquared, maxSquared)) continue;
+
+                SectionPresenceIndex.ChunkKey key = new SectionPresenceIndex.ChunkKey(worldId, chunkX, chunkZ);
+                long[] chunkSpots = spotsByChunk.get(key);
+                if (chunkSpots == null) {
+                    if (world.isChunkLoaded(chunkX, chunkZ) && queued.size() < MAX_QUEUED_CHUNKS) queued.add(key);
+                    continue;
+                }
+
+                for (long packed : chunkSpots) {
+                    int y = BlockSearchService.unpackY(packed);
+                    if (Math.abs(y - centerY) > maxDy) continue;
+                    double dx = BlockSearchService.unpackX(packed) + 0.5 - centerX;
+                    double dz = BlockSearchService.unpackZ(packed) + 0.5 - centerZ;
+                    double distanceSquared = dx * dx + dz * dz;
+                    if (distanceSquared < minSquared || distanceSquared > maxSquared) continue;
+
+                    if (seen < out.length) {
+                        out[seen] = packed;
+                    } else {
+                        int slot = random.nextInt(seen + 1);
+                        if (slot < out.length) out[slot] = packed;
+                    }
+                    seen++;
+                }
+            }
+        }
+        return Math.min(seen, out.length);
+    }
+
+    /**
+     * Gets the chunks of a ring ready for {@link #sample} without blocking the main thread. Up to {@code maxChunks}
+     * random chunks of the ring that are not indexed yet are loaded through Paper's {@code getChunkAtAsync} (never
+     * generated) and indexed, then {@code onReady} runs on the main thread. It runs after {@code timeoutTicks} at
+     * the latest, with whatever was indexed by then, and not at all if the index stops first. Chunks loaded for it
+     * hold a plugin ticket until it has run.
+     *
+     * @return False if every chunk of the ring is indexed already; {@code onReady} is not run then.
+     */
+    public boolean prepareRing(@NotNull Location center, double minDistance, double maxDistance, int maxChunks,
+                               long timeoutTicks, @NotNull Runnable onReady) {
+        World world = center.getWorld();
+        if (world == null || task == null) return false;
+
+        UUID worldId = world.getUID();
+        double centerX = center.getX();
+        double centerZ = center.getZ();
+        double minSquared = minDistance * minDistance;
+        double maxSquared = maxDistance * maxDistance;
+        int reach = (int) Math.ceil(maxDistance);
+
+        List<SectionPresenceIndex.ChunkKey> missing = new ArrayList<>();
+        for (int chunkX = ((int) Math.floor(centerX) - reach) >> 4; chunkX <= ((int) Math.floor(centerX) + reach) >> 4; chunkX++) {
+            for (int chunkZ = ((int) Math.floor(centerZ) - reach) >> 4; chunkZ <= ((int) Math.floor(centerZ) + reach) >> 4; chunkZ++) {
+                if (!overlapsRing(chunkX, chunkZ, centerX, centerZ, minSquared, maxSquared)) continue;
+
+                SectionPresenceIndex.ChunkKey key = new SectionPresenceIndex.ChunkKey(worldId, chunkX, chunkZ);
+                if (!spotsByChunk.containsKey(key)) missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) return false;
+
+        Collections.shuffle(missing, ThreadLocalRandom.current());
+        RingWaiter waiter = new RingWaiter(new HashSet<>(), new ArrayList<>(), Bukkit.getCurrentTick() + timeoutTicks, onReady);
+        waiters.add(waiter);
+        for (SectionPresenceIndex.ChunkKey key : missing.subList(0, Math.min(maxChunks, missing.size()))) {
+            waiter.remaining().add(key);
+            if (world.isChunkLoaded(key.x(), key.z())) {
+                queued.add(key);
+                continue;
+            }
+
+            world.getChunkAtAsync(key.x(), key.z(), false).whenComplete((chunk, error) -> {
+                // Paper completes these on the main thread.
+                if (!waiters.contains(waiter)) return;
+                if (error != null || chunk == null) {
+                    // Not generated, or failed to load. Nothing to wait for.
+                    if (error != null) logger.debug("Async load of chunk {},{} failed: {}", key.x(), key.z(), error.getMessage());
+                    waiter.remaining().remove(key);
+                    return;
+                }
+                chunk.addPluginChunkTicket(plugin);
+                waiter.ticketed().add(chunk);
+                queued.add(key);
+            });
+        }
+        return true;
+    }
+
+    public static int spotX(long packed) {
+        return BlockSearchService.unpackX(packed);
+    }
+
+    public static int spotY(long packed) {
+        return BlockSearchService.unpackY(packed);
+    }
+
+    public static int spotZ(long packed) {
+        return BlockSearchService.unpackZ(packed);
+    }
+
+    /**
+     * Checks a spot against the live world: solid, non-falling ground below and free, dry space for feet and head.
+     */
+    public static boolean isStandable(@NotNull World world, int x, int y, int z) {
+        if (y - 1 < world.getMinHeight() || y + 1 >= world.getMaxHeight() || !world.isChunkLoaded(x >> 4, z >> 4)) return false;
+
+        Block ground = world.getBlockAt(x, y - 1, z);
+        if (!isGround(ground.getType()) || ground.isPassable()) return false;
+
+        Block feet = world.getBlockAt(x, y, z);
+        Block head = world.getBlockAt(x, y + 1, z);
+        return isFree(feet.getType()) && feet.isPassable() && isFree(head.getType()) && head.isPassable();
+    }
+
+    /**
+     * Sends a few queued chunks to the workers.
+     */
+    @Override
+    public void run() {
+        if (!waiters.isEmpty()) {
+            completeWaiters();
+        }
+
+        Executor workers = blockSearchService.workers();
+        if (workers == null || queued.isEmpty()) return;
+
+        Iterator<SectionPresenceIndex.ChunkKey> iterator = queued.iterator();
+        int started = 0;
+        while (iterator.hasNext() && started < CHUNKS_PER_TICK) {
+            SectionPresenceIndex.ChunkKey key = iterator.next();
+            iterator.remove();
+            if (spotsByChunk.containsKey(key)) continue;
+
+            World world = Bukkit.getWorld(key.worldId());
+            if (world == null || !world.isChunkLoaded(key.x(), key.z())) continue;
+
+            ChunkSnapshot snapshot = world.getChunkAt(key.x(), key.z()).getChunkSnapshot(true, false, false);
+            int generation = generations.getOrDefault(key, 0);
+            int minY = world.getMinHeight();
+            int maxY = world.getMaxHeight();
+            started++;
+
+            try {
+                workers.execute(() -> {
+                    long[] spots = findSpots(snapshot, minY, maxY);
+                    Bukkit.getScheduler().runTask(plugin, () -> publish(key, generation, spots));
+                });
+            } catch (RejectedExecutionException e) {
+                logger.debug("Spot indexing of chunk {},{} rejected, the service is stopping.", key.x(), key.z());
+                return;
+            }
+        }
+    }
+
+    private void completeWaiters() {
+        int tick = Bukkit.getCurrentTick();
+        Iterator<RingWaiter> iterator = waiters.iterator();
+        List<RingWaiter> ready = new ArrayList<>(1);
+        while (iterator.hasNext()) {
+            RingWaiter waiter = iterator.next();
+            waiter.remaining().removeIf(spotsByChunk::containsKey);
+            if (waiter.remaining().isEmpty() || tick >= waiter.deadlineTick()) {
+                iterator.remove();
+                ready.add(waiter);
+            }
+        }
+
+        // Run after the loop, a callback may start another wait.
+        for (RingWaiter waiter : ready) {
+            if (!waiter.remaining().isEmpty()) {
+                logger.debug("Gave up waiting for {} chunks to be indexed.", waiter.remaining().size());
+            }
+            try {
+                waiter.onReady().run();
+            } catch (Exception e) {
+                logger.error("Spot index ring callback failed.", e);
+            } finally {
+                releaseTickets(waiter);
+            }
+        }
+    }
+
+    private void releaseTickets(@NotNull RingWaiter waiter) {
+        for (Chunk chunk : waiter.ticketed()) {
+            chunk.removePluginChunkTicket(plugin);
+        }
+        waiter.ticketed().clear();
+    }
+
+    /**
+     * @return True if some part of the chunk lies within the ring.
+     */
+    private static boolean overlapsRing(int chunkX, int chunkZ, double centerX, double centerZ, double minSquared, double maxSquared) {
+        double nearestX = Math.max(chunkX << 4, Math.min(centerX, (chunkX << 4) + 16)) - centerX;
+        double nearestZ = Math.max(chunkZ << 4, Math.min(centerZ, (chunkZ << 4) + 16)) - centerZ;
+        if (nearestX * nearestX + nearestZ * nearestZ > maxSquared) return false;
+        double farthestX = Math.max(Math.abs((chunkX << 4) - centerX), Math.abs((chunkX << 4) + 16 - centerX));
+        double farthestZ = Math.max(Math.abs((chunkZ << 4) - centerZ), Math.abs((chunkZ << 4) + 16 - centerZ));
+        return farthestX * farthestX + farthestZ * farthestZ >= minSquared;
+    }
+
+    private void publish(@NotNull SectionPresenceIndex.ChunkKey key, int generation, long @NotNull [] spots) {
+        if (task == null) return;
+        if (generations.getOrDefault(key, 0) != generation) return;
+
+        World world = Bukkit.getWorld(key.worldId());
+        if (world == null || !world.isChunkLoaded(key.x(), key.z())) return;
+
+        spotsByChunk.put(key, spots);
+    }
+
+    /**
+     * Runs on a worker thread.
+     */
+    private static long @NotNull [] findSpots(@NotNull ChunkSnapshot snapshot, int minY, int maxY) {
+        int minSection = minY >> 4;
+        int sectionCount = (maxY >> 4) - minSection;
+        long[][] samples = new long[sectionCount][SPOTS_PER_SECTION];
+        int[] seen = new int[sectionCount];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int top = Math.min(maxY - 2, snapshot.getHighestBlockYAt(x, z) + 1);
+                Material below = snapshot.getBlockType(x, minY, z);
+                Material feet = snapshot.getBlockType(x, minY + 1, z);
+                for (int y = minY + 1; y <= top; y++) {
+                    Material head = snapshot.getBlockType(x, y + 1, z);
+                    if (isGround(below) && isFree(feet) && isFree(head)) {
+                        int section = (y >> 4) - minSection;
+                        if (seen[section] < SPOTS_PER_SECTION) {
+                            samples[section][seen[section]] = BlockSearchService.pack(baseX + x, y, baseZ + z);
+                        } else {
+                            int slot = random.nextInt(seen[section] + 1);
+                            if (slot < SPOTS_PER_SECTION) samples[section][slot] = BlockSearchService.pack(baseX + x, y, baseZ + z);
+                        }
+                        seen[section]++;
+                    }
+                    below = feet;
+                    feet = head;
+                }
+            }
+        }
+
+        int total = 0;
+        for (int section = 0; section < sectionCount; section++) {
+            total += Math.min(seen[section], SPOTS_PER_SECTION);
+        }
+        long[] spots = new long[total];
+        int i = 0;
+        for (int section = 0; section < sectionCount; section++) {
+            int count = Math.min(seen[section], SPOTS_PER_SECTION);
+            System.arraycopy(samples[section], 0, spots, i, count);
+            i += count;
+        }
+        return spots;
+    }
+
+    private static boolean isGround(@NotNull Material type) {
+        return (MaterialClass.of(type) & (MaterialClass.SOLID | MaterialClass.GRAVITY)) == MaterialClass.SOLID;
+    }
+
+    private static boolean isFree(@NotNull Material type) {
+        return !MaterialClass.is(type, MaterialClass.SOLID | MaterialClass.LIQUID);
+    }
+}
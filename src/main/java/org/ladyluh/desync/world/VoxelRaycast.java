@@ -0,0 +1,141 @@
+package org.ladyluh.desync.world;
+
+import org.bukkit.ChunkSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Line of sight through chunk snapshots, walking every block a segment passes through in order (the voxel traversal
+ * of Amanatides and Woo), so it needs no world access and can run on the block search workers.
+ * <p>
+ * A block blocks sight if its material is solid. Unlike {@code World#rayTraceBlocks}, which tests the collision
+ * shape, a partial block (slab, fence, wall...) counts as a full one, so the answer errs on the side of hidden.
+ * A segment through a chunk without a snapshot is hidden as well.
+ */
+final class VoxelRaycast {
+
+    private final Map<Long, ChunkSnapshot> snapshots;
+    private final int minY;
+    private final int maxY;
+
+    private ChunkSnapshot lastSnapshot;
+    private int lastChunkX;
+    private int lastChunkZ;
+
+    /**
+     * @param snapshots The snapshots by {@link #chunkKey}. Not copied.
+     */
+    VoxelRaycast(@NotNull Map<Long, ChunkSnapshot> snapshots, int minY, int maxY) {
+        this.snapshots = snapshots;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return True if no block between the two points blocks sight, including the blocks holding them.
+     */
+    boolean isClear(double fromX, double fromY, double fromZ, double toX, double toY, double toZ) {
+        double dx = toX - fromX;
+        double dy = toY - fromY;
+        double dz = toZ - fromZ;
+
+        int x = (int) Math.floor(fromX);
+        int y = (int) Math.floor(fromY);
+        int z = (int) Math.floor(fromZ);
+        int endX = (int) Math.floor(toX);
+        int endY = (int) Math.floor(toY);
+        int endZ = (int) Math.floor(toZ);
+
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+
+        // Segment parameter (0 at the start, 1 at the end) at which the next block boundary of each axis is crossed,
+        // and how much it grows per block.
+        double deltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+        double deltaY = stepY != 0 ? Math.abs(1.0 / dy) : Double.POSITIVE_INFINITY;
+        double deltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.POSITIVE_INFINITY;
+        double nextX = stepX > 0 ? (x + 1 - fromX) * deltaX : stepX < 0 ? (fromX - x) * deltaX : Double.POSITIVE_INFINITY;
+        double nextY = stepY > 0 ? (y + 1 - fromY) * deltaY : stepY < 0 ? (fromY - y) * deltaY : Double.POSITIVE_INFINITY;
+        double nextZ = stepZ > 0 ? (z + 1 - fromZ) * deltaZ : stepZ < 0 ? (fromZ - z) * deltaZ : Double.POSITIVE_INFINITY;
+
+        int steps = Math.abs(endX - x) + Math.abs(endY - y) + Math.abs(endZ - z);
+        for (int i = 0; ; i++) {
+            if (isOccluding(x, y, z)) return false;
+            if (i >= steps) return true;
+
+            if (nextX <= nextY && nextX <= nextZ) {
+                if (nextX > 1.0) return true;
+                x += stepX;
+                nextX += deltaX;
+            } else if (nextY <= nextZ) {
+                if (nextY > 1.0) return true;
+                y += stepY;
+                nextY += deltaY;
+            } else {
+                if (nextZ > 1.0) return true;
+                z += stepZ;
+                nextZ += deltaZ;
+            }
+        }
+    }
+
+    private boolean isOccluding(int x, int y, int z) {
+        if (y < minY || y > maxY) return false;
+
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (lastSnapshot == null || chunkX != lastChunkX || chunkZ != lastChunkZ) {
+            lastSnapshot = snapshots.get(chunkKey(chunkX, chunkZ));
+            lastChunkX = chunkX;
+            lastChunkZ = chunkZ;
+            if (lastSnapshot == null) return true;
+        }
+        return MaterialClass.is(lastSnapshot.getBlockType(x & 15, y, z & 15), MaterialClass.SOLID);
+    }
+
+    /**
+     * Adds the key of every chunk column the segment passes through, walking the chunk grid the same way.
+     */
+    static void collectChunks(double fromX, double fromZ, double toX, double toZ, @NotNull Set<Long> keys) {
+        double startX = fromX / 16.0;
+        double startZ = fromZ / 16.0;
+        double dx = toX / 16.0 - startX;
+        double dz = toZ / 16.0 - startZ;
+
+        int chunkX = (int) Math.floor(startX);
+        int chunkZ = (int) Math.floor(startZ);
+        int endX = (int) Math.floor(toX / 16.0);
+        int endZ = (int) Math.floor(toZ / 16.0);
+
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+        double deltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+        double deltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.POSITIVE_INFINITY;
+        double nextX = stepX > 0 ? (chunkX + 1 - startX) * deltaX : stepX < 0 ? (startX - chunkX) * deltaX : Double.POSITIVE_INFINITY;
+        double nextZ = stepZ > 0 ? (chunkZ + 1 - startZ) * deltaZ : stepZ < 0 ? (startZ - chunkZ) * deltaZ : Double.POSITIVE_INFINITY;
+
+        int steps = Math.abs(endX - chunkX) + Math.abs(endZ - chunkZ);
+        for (int i = 0; ; i++) {
+            keys.add(chunkKey(chunkX, chunkZ));
+            if (i >= steps) return;
+
+            if (nextX <= nextZ) {
+                if (nextX > 1.0) return;
+                chunkX += stepX;
+                nextX += deltaX;
+            } else {
+                if (nextZ > 1.0) return;
+                chunkZ += stepZ;
+                nextZ += deltaZ;
+            }
+        }
+    }
+}